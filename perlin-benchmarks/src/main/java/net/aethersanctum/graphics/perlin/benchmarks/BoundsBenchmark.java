@@ -0,0 +1,71 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.aethersanctum.graphics.perlin.FractalNoise;
+
+/**
+ * Finding the highest the landscape gets over a small square, by sampling
+ * it densely versus asking for conservative bounds.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoundsBenchmark {
+    private static final double SIDE = 0.25;
+    private static final int SAMPLES = 32;
+
+    private final FractalNoise fractal = new FractalNoise(1);
+    private final float[] grid = new float[SAMPLES * SAMPLES];
+    private final double[] bounds = new double[2];
+    private double x = 10;
+
+    private double nextCorner() {
+        x = x < 100 ? x + SIDE : 10;
+        return x;
+    }
+
+    @Benchmark
+    public double sampledMaximum() {
+        final double x0 = nextCorner();
+        fractal.fillGrid2(x0, x0, SIDE / (SAMPLES - 1), SIDE / (SAMPLES - 1), SAMPLES, SAMPLES, grid);
+        double max = Double.NEGATIVE_INFINITY;
+        for (float height : grid) {
+            max = Math.max(max, height);
+        }
+        return max;
+    }
+
+    @Benchmark
+    public double boundedMaximum() {
+        final double x0 = nextCorner();
+        fractal.fractalNoiseBounds(x0, x0, x0 + SIDE, x0 + SIDE, bounds);
+        return bounds[1];
+    }
+}
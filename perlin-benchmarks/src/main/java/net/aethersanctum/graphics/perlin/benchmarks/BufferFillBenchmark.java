@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.aethersanctum.graphics.perlin.FractalNoise;
+import net.aethersanctum.graphics.perlin.SampleFormat;
+
+/**
+ * Getting a tile of landscape into a direct buffer for native code, by
+ * filling an array and copying it across versus filling the buffer itself.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BufferFillBenchmark {
+    private static final int SIZE = 256;
+    private static final double SPACING = 1.0 / 64;
+
+    private final FractalNoise fractal = new FractalNoise(1);
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(SIZE * SIZE * 4).order(ByteOrder.nativeOrder());
+
+    @Benchmark
+    public ByteBuffer arrayThenCopy() {
+        final float[] heights = new float[SIZE * SIZE];
+        fractal.fillGrid2(0, 0, SPACING, SPACING, 0, 0, SIZE, SIZE, heights, 0, SIZE);
+        buffer.clear();
+        buffer.asFloatBuffer().put(heights);
+        return buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer straightIntoBuffer() {
+        fractal.fillGrid2(0, 0, SPACING, SPACING, 0, 0, SIZE, SIZE, buffer, 0, SIZE * 4, SampleFormat.FLOAT32);
+        return buffer;
+    }
+}
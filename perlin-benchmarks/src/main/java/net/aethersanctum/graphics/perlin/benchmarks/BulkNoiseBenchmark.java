@@ -0,0 +1,99 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.aethersanctum.graphics.perlin.PerlinNoise;
+
+/**
+ * Array-in, array-out noise against a loop of scalar calls. The forks add
+ * the vector module, so on Java 17 or later the bulk calls use the SIMD
+ * kernel unless {@code simd} is false. Needs Java 17 to run at all.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class BulkNoiseBenchmark {
+    private static final int POINTS = 4096;
+
+    private final PerlinNoise perlin = new PerlinNoise(1);
+    private final double[] xs = new double[POINTS];
+    private final double[] ys = new double[POINTS];
+    private final double[] zs = new double[POINTS];
+    private final double[] out = new double[POINTS];
+
+    public BulkNoiseBenchmark() {
+        final Random random = new Random(1);
+        for (int i = 0; i < POINTS; i++) {
+            xs[i] = random.nextDouble() * 1000;
+            ys[i] = random.nextDouble() * 1000;
+            zs[i] = random.nextDouble() * 1000;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void reportKernel() {
+        // a jar without Multi-Release: true quietly runs the scalar kernel
+        System.out.println("bulk kernel: " + PerlinNoise.getBulkKernel());
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    public double[] noise2Bulk() {
+        perlin.noise2(xs, ys, out, POINTS);
+        return out;
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    public double[] noise2Scalar() {
+        for (int i = 0; i < POINTS; i++) {
+            out[i] = perlin.noise2(xs[i], ys[i]);
+        }
+        return out;
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    public double[] noise3Bulk() {
+        perlin.noise3(xs, ys, zs, out, POINTS);
+        return out;
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    public double[] noise3Scalar() {
+        for (int i = 0; i < POINTS; i++) {
+            out[i] = perlin.noise3(xs[i], ys[i], zs[i]);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.benchmarks;
+
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.aethersanctum.graphics.perlin.PackedColor;
+import net.aethersanctum.graphics.perlin.TerrainColors;
+
+/**
+ * Colouring and lighting a row of elevations, blending the gradient into
+ * a new Color per pixel versus looking up packed ARGB in its table.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ColorBenchmark {
+    private static final int PIXELS = 1000;
+    private static final double ILLUMINATION = 0.8;
+
+    private final TerrainColors terrain = new TerrainColors();
+    private final int[] pixels = new int[PIXELS];
+
+    @Benchmark
+    public int[] colorAt() {
+        for (int i = 0; i < PIXELS; i++) {
+            final Color shade = terrain.colorAt((double) i / PIXELS);
+            pixels[i] = new Color(
+                    (int) (shade.getRed() * ILLUMINATION),
+                    (int) (shade.getGreen() * ILLUMINATION),
+                    (int) (shade.getBlue() * ILLUMINATION)).getRGB();
+        }
+        return pixels;
+    }
+
+    @Benchmark
+    public int[] argbAt() {
+        for (int i = 0; i < PIXELS; i++) {
+            pixels[i] = PackedColor.shade(terrain.argbAt((double) i / PIXELS), ILLUMINATION);
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.aethersanctum.graphics.perlin.FractalNoise;
+
+/**
+ * Landscape elevations for a scanline of points, as the demo's top down
+ * view asks for them, with every octave and with octaves culled to the
+ * footprint of a nearby and of a distant pixel.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FractalBenchmark {
+    private static final double SCANLINE_STEP = 10.0 / 500;
+    private static final double DISTANT_FOOTPRINT = 0.25;
+
+    private final FractalNoise fractal = new FractalNoise(1);
+    private double scan;
+
+    private double nextScan() {
+        scan += SCANLINE_STEP;
+        return scan;
+    }
+
+    @Benchmark
+    public double fractalNoise() {
+        return fractal.fractalNoise(nextScan(), 3.5);
+    }
+
+    @Benchmark
+    public double fractalNoiseSmoothBottom() {
+        return fractal.fractalNoiseSmoothBottom(nextScan(), 3.5);
+    }
+
+    @Benchmark
+    public double fractalNoiseSmoothBottomPixelFootprint() {
+        return fractal.fractalNoiseSmoothBottom(nextScan(), 3.5, SCANLINE_STEP);
+    }
+
+    @Benchmark
+    public double fractalNoiseSmoothBottomDistant() {
+        return fractal.fractalNoiseSmoothBottom(nextScan(), 3.5, DISTANT_FOOTPRINT);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.aethersanctum.graphics.perlin.FloatPerlinNoise;
+import net.aethersanctum.graphics.perlin.FractalNoise;
+import net.aethersanctum.graphics.perlin.PerlinNoise;
+
+/**
+ * Filling a heightmap tile point by point versus with the bulk grid methods,
+ * in double and single precision.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GridBenchmark {
+    private static final double STEP = 1.0 / 64;
+
+    @Param({"256"})
+    int size;
+
+    private final PerlinNoise perlin = new PerlinNoise(1);
+    private final FloatPerlinNoise floatPerlin = new FloatPerlinNoise(1);
+    private final FractalNoise fractal = new FractalNoise(1);
+    private double[] tile;
+    private float[] floatTile;
+
+    @Setup
+    public void setup() {
+        tile = new double[size * size];
+        floatTile = new float[size * size];
+    }
+
+    @Benchmark
+    public double[] noise2PerPoint() {
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                tile[row * size + col] = perlin.noise2(col * STEP, row * STEP);
+            }
+        }
+        return tile;
+    }
+
+    @Benchmark
+    public double[] noise2Grid() {
+        perlin.fillGrid2(0, 0, STEP, STEP, size, size, tile);
+        return tile;
+    }
+
+    @Benchmark
+    public double[] fractalPerPoint() {
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                tile[row * size + col] = fractal.fractalNoise(col * STEP, row * STEP);
+            }
+        }
+        return tile;
+    }
+
+    @Benchmark
+    public double[] fractalGrid() {
+        fractal.fillGrid2(0, 0, STEP, STEP, size, size, tile);
+        return tile;
+    }
+
+    @Benchmark
+    public float[] noise2GridFloat() {
+        floatPerlin.fillGrid2(0, 0, STEP, STEP, size, size, floatTile);
+        return floatTile;
+    }
+
+    @Benchmark
+    public float[] fractalGridFloat() {
+        fractal.fillGrid2(0, 0, STEP, STEP, size, size, floatTile);
+        return floatTile;
+    }
+}
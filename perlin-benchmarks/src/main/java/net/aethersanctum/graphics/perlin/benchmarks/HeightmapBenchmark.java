@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.aethersanctum.graphics.perlin.FractalNoise;
+import net.aethersanctum.graphics.perlin.HeightmapGenerator;
+
+/**
+ * Building a large heightmap on one thread versus tiled on a fork/join pool.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HeightmapBenchmark {
+    private static final double STEP = 1.0 / 64;
+
+    @Param({"1024"})
+    int size;
+
+    @Param({"1", "4", "0"})
+    int threads;
+
+    private final FractalNoise fractal = new FractalNoise(1);
+    private ForkJoinPool pool;
+    private HeightmapGenerator generator;
+
+    @Setup
+    public void setup() {
+        pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        generator = new HeightmapGenerator(fractal, pool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public float[] singleThreaded() {
+        final float[] out = new float[size * size];
+        fractal.fillGrid2(0, 0, STEP, STEP, size, size, out);
+        return out;
+    }
+
+    @Benchmark
+    public float[] tiled() {
+        return generator.generate(0, 0, STEP, STEP, size, size);
+    }
+}
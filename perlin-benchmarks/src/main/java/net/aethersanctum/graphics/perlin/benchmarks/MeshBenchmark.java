@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.aethersanctum.graphics.perlin.FractalNoise;
+import net.aethersanctum.graphics.perlin.TerrainMesh;
+import net.aethersanctum.graphics.perlin.TerrainMesher;
+
+/**
+ * Meshing a square of smooth bottomed landscape as a uniform grid at the
+ * finest spacing versus as a quadtree refined only where it strays.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MeshBenchmark {
+    private static final int LEVELS = 8;
+    private static final int SPACINGS = 1 << (LEVELS + 1);
+    private static final double SIZE = 16;
+
+    @Param({"2", "8"})
+    public double errorThreshold;
+
+    private final FractalNoise fractal = new FractalNoise(1);
+    private final TerrainMesher mesher = new TerrainMesher(fractal, true, LEVELS);
+
+    @Benchmark
+    public int[] uniformGrid() {
+        final int across = SPACINGS + 1;
+        final float[] heights = new float[across * across];
+        fractal.fillGridSmoothBottom2(0, 0, SIZE / SPACINGS, SIZE / SPACINGS, across, across, heights);
+        final int[] indices = new int[SPACINGS * SPACINGS * 6];
+        int at = 0;
+        for (int row = 0; row < SPACINGS; row++) {
+            for (int col = 0; col < SPACINGS; col++) {
+                final int corner = row * across + col;
+                indices[at++] = corner;
+                indices[at++] = corner + across;
+                indices[at++] = corner + 1;
+                indices[at++] = corner + 1;
+                indices[at++] = corner + across;
+                indices[at++] = corner + across + 1;
+            }
+        }
+        return indices;
+    }
+
+    @Benchmark
+    public TerrainMesh quadtree() {
+        return mesher.build(0, 0, SIZE, errorThreshold);
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.aethersanctum.graphics.perlin.FractalNoise;
+import net.aethersanctum.graphics.perlin.NoiseEngine;
+import net.aethersanctum.graphics.perlin.NoiseMetrics;
+import net.aethersanctum.graphics.perlin.PerlinNoise;
+import net.aethersanctum.graphics.perlin.demo.HeightfieldTracer;
+import net.aethersanctum.graphics.perlin.demo.TerrainEstimator;
+import net.aethersanctum.graphics.perlin.demo.Vector;
+
+/**
+ * The same work with metrics off, as every other benchmark runs it, and
+ * with them on in a separate fork, to show what counting costs and what
+ * is left of it when turned off.
+ * <p>
+ * The octave sums also run against a baseline with no hooks in its code
+ * at all: a copy of {@link FractalNoise#fractalNoise(double, double)} with
+ * its counting call taken out, over noise which never counts, so that
+ * switched off hooks can be told apart from no hooks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class MetricsBenchmark {
+    private static final int POINTS = 1 << 12;
+    private static final String METRICS_ON = "-D" + NoiseMetrics.PROPERTY + "=true";
+
+    private static final int OCTAVES = 7;
+    private static final double FREQUENCY = 0.5;
+    private static final double LACUNARITY = 2;
+    private static final double AMPLITUDE = 128;
+    private static final double GAIN = 0.5;
+
+    private final PerlinNoise perlin = new PerlinNoise(1);
+    private final FractalNoise fractal = new FractalNoise(perlin);
+    private final UncountedNoise uncounted = new UncountedNoise(1);
+    private final FractalNoise uncountedFractal = FractalNoise.builder()
+            .noise(uncounted)
+            .octaves(OCTAVES)
+            .frequency(FREQUENCY)
+            .lacunarity(LACUNARITY)
+            .amplitude(AMPLITUDE)
+            .gain(GAIN)
+            .build();
+    private final HookFreeFractal hookFree =
+            new HookFreeFractal(uncounted, OCTAVES, FREQUENCY, LACUNARITY, AMPLITUDE, GAIN);
+    private final Vector eye = new Vector(0, 300, 0);
+    private final HeightfieldTracer tracer =
+            new HeightfieldTracer(new TerrainEstimator(fractal, 0.01, 0.75), -1024, -512, 2, 2048);
+    private final Vector ray = new Vector(1, -3, 5).normalized();
+    private final Vector position = new Vector(0, 0, 0);
+    private final Vector normal = new Vector(0, 0, 0);
+    private final double[] xs = new double[POINTS];
+    private final double[] ys = new double[POINTS];
+    private int next;
+
+    public MetricsBenchmark() {
+        final Random random = new Random(1);
+        for (int i = 0; i < POINTS; i++) {
+            xs[i] = random.nextDouble() * 1000;
+            ys[i] = random.nextDouble() * 1000;
+        }
+    }
+
+    private int nextRandom() {
+        next = (next + 1) & (POINTS - 1);
+        return next;
+    }
+
+    private double noise2() {
+        final int i = nextRandom();
+        return perlin.noise2(xs[i], ys[i]);
+    }
+
+    private double fractalNoise() {
+        final int i = nextRandom();
+        return fractal.fractalNoise(xs[i], ys[i]);
+    }
+
+    private double octavesSummed() {
+        final int i = nextRandom();
+        return uncountedFractal.fractalNoise(xs[i], ys[i]);
+    }
+
+    private double octavesHookFree() {
+        final int i = nextRandom();
+        return hookFree.fractalNoise(xs[i], ys[i]);
+    }
+
+    private Vector trace() {
+        position.set(eye.getX(), eye.getY(), eye.getZ());
+        tracer.findStrikeWithNormal(eye, ray, position, normal);
+        return normal;
+    }
+
+    @Benchmark
+    @Fork(1)
+    public double noise2Plain() {
+        return noise2();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = METRICS_ON)
+    public double noise2Counted() {
+        return noise2();
+    }
+
+    @Benchmark
+    @Fork(1)
+    public double fractalPlain() {
+        return fractalNoise();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = METRICS_ON)
+    public double fractalCounted() {
+        return fractalNoise();
+    }
+
+    @Benchmark
+    @Fork(1)
+    public double octavesHookFreeBaseline() {
+        return octavesHookFree();
+    }
+
+    @Benchmark
+    @Fork(1)
+    public double octavesPlain() {
+        return octavesSummed();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = METRICS_ON)
+    public double octavesCounted() {
+        return octavesSummed();
+    }
+
+    @Benchmark
+    @Fork(1)
+    public Vector tracePlain() {
+        return trace();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = METRICS_ON)
+    public Vector traceCounted() {
+        return trace();
+    }
+
+    /**
+     * {@link FractalNoise}'s octave sum as it is built, line for line, less
+     * the counting for {@link NoiseMetrics}.
+     */
+    private static final class HookFreeFractal {
+        private final NoiseEngine noise;
+        private final int octaves;
+        private final double frequency;
+        private final double lacunarity;
+        private final double amplitude;
+        private final double gain;
+
+        HookFreeFractal(NoiseEngine noise, int octaves, double frequency, double lacunarity,
+                        double amplitude, double gain) {
+            this.noise = noise;
+            this.octaves = octaves;
+            this.frequency = frequency;
+            this.lacunarity = lacunarity;
+            this.amplitude = amplitude;
+            this.gain = gain;
+        }
+
+        double fractalNoise(double ix, double iz) {
+            return fractalNoise(ix, iz, 0);
+        }
+
+        double fractalNoise(double ix, double iz, double footprint) {
+            double amp = amplitude;
+            double ascale = frequency;
+            double size = 0;
+            for (int round = 0; round < octaves; round ++) {
+                final double weight = octaveWeight(round, ascale, footprint);
+                if (weight == 0) {
+                    break;
+                }
+                size += weight * amp * noise.noise2(ascale * ix, ascale * iz);
+                amp *= gain;
+                ascale *= lacunarity;
+            }
+            return size;
+        }
+
+        private static double octaveWeight(int round, double ascale, double footprint) {
+            final double cellsPerFootprint = footprint * ascale;
+            if (round == 0 || cellsPerFootprint <= 1) {
+                return 1;
+            }
+            return Math.max(0, 2 - cellsPerFootprint);
+        }
+    }
+
+    /**
+     * Gradient noise like Perlin's, with no metrics hooks, so the octave
+     * loop is the only place anything can be counted.
+     */
+    private static final class UncountedNoise implements NoiseEngine {
+        private static final int MASK = 0xff;
+
+        private final long seed;
+        private final int[] permutation = new int[2 * (MASK + 1)];
+        private final double[] gradients = new double[2 * (MASK + 1)];
+
+        UncountedNoise(long seed) {
+            this.seed = seed;
+            final Random random = new Random(seed);
+            for (int i = 0; i <= MASK; i++) {
+                permutation[i] = i;
+                final double angle = random.nextDouble() * 2 * Math.PI;
+                gradients[2 * i] = Math.cos(angle);
+                gradients[2 * i + 1] = Math.sin(angle);
+            }
+            for (int i = MASK; i > 0; i--) {
+                final int j = random.nextInt(i + 1), swap = permutation[i];
+                permutation[i] = permutation[j];
+                permutation[j] = swap;
+            }
+            System.arraycopy(permutation, 0, permutation, MASK + 1, MASK + 1);
+        }
+
+        @Override
+        public long getSeed() {
+            return seed;
+        }
+
+        @Override
+        public double noise2(double x, double y) {
+            final double fx = Math.floor(x), fy = Math.floor(y);
+            final int bx = (int) fx & MASK, by = (int) fy & MASK;
+            final double rx = x - fx, ry = y - fy,
+                    sx = rx * rx * (3 - 2 * rx),
+                    sy = ry * ry * (3 - 2 * ry),
+                    a = lerp(sx, dot(bx, by, rx, ry), dot(bx + 1, by, rx - 1, ry)),
+                    b = lerp(sx, dot(bx, by + 1, rx, ry - 1), dot(bx + 1, by + 1, rx - 1, ry - 1));
+            return lerp(sy, a, b);
+        }
+
+        @Override
+        public double noise3(double x, double y, double z) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public double noise2WithGradient(double x, double y, double[] out) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void fillGrid2(double x0, double y0, double dx, double dy, int w, int h, double[] out) {
+            for (int row = 0; row < h; row++) {
+                for (int col = 0; col < w; col++) {
+                    out[row * w + col] = noise2(x0 + col * dx, y0 + row * dy);
+                }
+            }
+        }
+
+        @Override
+        public void fillGrid2(double x0, double y0, double dx, double dy, int col0, int row0, int w, int h,
+                              float[] out, int offset, int stride) {
+            for (int row = 0; row < h; row++) {
+                for (int col = 0; col < w; col++) {
+                    out[offset + row * stride + col] = (float) noise2(x0 + (col0 + col) * dx, y0 + (row0 + row) * dy);
+                }
+            }
+        }
+
+        private double dot(int bx, int by, double rx, double ry) {
+            final int at = 2 * permutation[permutation[bx] + by];
+            return rx * gradients[at] + ry * gradients[at + 1];
+        }
+
+        private static double lerp(double t, double a, double b) {
+            return a + t * (b - a);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.aethersanctum.graphics.perlin.CompiledNoise;
+import net.aethersanctum.graphics.perlin.NoiseModule;
+import net.aethersanctum.graphics.perlin.PerlinNoise;
+
+/**
+ * Filling a heightmap tile from a warped ridged multifractal module graph,
+ * by walking the graph for each point versus running the compiled program.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ModuleBenchmark {
+    private static final int SIZE = 128;
+    private static final double STEP = 1.0 / 32;
+
+    private final NoiseModule module;
+    private final CompiledNoise compiled;
+    private final double[] tile = new double[SIZE * SIZE];
+
+    public ModuleBenchmark() {
+        final PerlinNoise perlin = new PerlinNoise(1), warp = new PerlinNoise(2);
+        final NoiseModule ridges = NoiseModule.source(perlin).abs().multiply(-1).add(1).fractal(6, 2, 0.5);
+        final NoiseModule mask = NoiseModule.source(perlin).scaleDomain(0.05, 0.05).add(0.5).clamp(0, 1);
+        module = ridges.warp(NoiseModule.source(warp), NoiseModule.source(warp).shiftDomain(5.2, 1.3), 0.5)
+                .multiply(mask);
+        compiled = module.compile();
+    }
+
+    @Benchmark
+    public double[] graphPerPoint() {
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                tile[row * SIZE + col] = module.value(col * STEP, row * STEP);
+            }
+        }
+        return tile;
+    }
+
+    @Benchmark
+    public double[] compiledGrid() {
+        compiled.fillGrid2(0, 0, STEP, STEP, SIZE, SIZE, tile);
+        return tile;
+    }
+}
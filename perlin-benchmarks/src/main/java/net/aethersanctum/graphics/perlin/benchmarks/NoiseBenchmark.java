@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.aethersanctum.graphics.perlin.PerlinNoise;
+
+/**
+ * Single noise evaluations, fed either scattered points (every call lands
+ * in a different lattice cell, so the tables are read all over) or a
+ * scanline of nearby points as a renderer would ask for them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NoiseBenchmark {
+    private static final int POINTS = 1 << 12;
+    private static final double SCANLINE_STEP = 1.0 / 256;
+
+    private final PerlinNoise perlin = new PerlinNoise(1);
+    private final double[] xs = new double[POINTS];
+    private final double[] ys = new double[POINTS];
+    private final double[] zs = new double[POINTS];
+    private final double[] gradient = new double[4];
+    private int next;
+    private double scan;
+
+    public NoiseBenchmark() {
+        final Random random = new Random(1);
+        for (int i = 0; i < POINTS; i++) {
+            xs[i] = random.nextDouble() * 1000;
+            ys[i] = random.nextDouble() * 1000;
+            zs[i] = random.nextDouble() * 1000;
+        }
+    }
+
+    private int nextRandom() {
+        next = (next + 1) & (POINTS - 1);
+        return next;
+    }
+
+    private double nextScan() {
+        scan += SCANLINE_STEP;
+        return scan;
+    }
+
+    @Benchmark
+    public double noise1Random() {
+        return perlin.noise1(xs[nextRandom()]);
+    }
+
+    @Benchmark
+    public double noise1Scanline() {
+        return perlin.noise1(nextScan());
+    }
+
+    @Benchmark
+    public double noise2Random() {
+        final int i = nextRandom();
+        return perlin.noise2(xs[i], ys[i]);
+    }
+
+    @Benchmark
+    public double noise2Scanline() {
+        return perlin.noise2(nextScan(), 12.5);
+    }
+
+    @Benchmark
+    public double noise3Random() {
+        final int i = nextRandom();
+        return perlin.noise3(xs[i], ys[i], zs[i]);
+    }
+
+    @Benchmark
+    public double noise3Scanline() {
+        return perlin.noise3(nextScan(), 12.5, 7.25);
+    }
+
+    @Benchmark
+    public double[] noise2WithGradientRandom() {
+        final int i = nextRandom();
+        perlin.noise2WithGradient(xs[i], ys[i], gradient);
+        return gradient;
+    }
+
+    @Benchmark
+    public double[] noise3WithGradientRandom() {
+        final int i = nextRandom();
+        perlin.noise3WithGradient(xs[i], ys[i], zs[i], gradient);
+        return gradient;
+    }
+}
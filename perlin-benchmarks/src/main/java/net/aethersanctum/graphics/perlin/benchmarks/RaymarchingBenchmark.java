@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.aethersanctum.graphics.perlin.FractalNoise;
+import net.aethersanctum.graphics.perlin.demo.HeightfieldTracer;
+import net.aethersanctum.graphics.perlin.demo.Raymarching;
+import net.aethersanctum.graphics.perlin.demo.TerrainEstimator;
+import net.aethersanctum.graphics.perlin.demo.Vector;
+
+/**
+ * Rays cast into the demo's landscape from the demo's camera, one ray per
+ * operation, cycling over a coarse grid of screen positions. Compares the
+ * distance estimating raymarcher with the max-height pyramid tracer.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RaymarchingBenchmark {
+    private static final int GRID = 32;
+
+    private final Vector eye = new Vector(0, 300, 0);
+    private final TerrainEstimator terrain = new TerrainEstimator(new FractalNoise(1), 0.01, 0.75);
+    private final Raymarching raymarching = new Raymarching(terrain);
+    // hiding the normals makes the marcher find them with two more rays
+    private final Raymarching raymarchingNormals = new Raymarching(terrain::distance);
+    private final HeightfieldTracer tracer = new HeightfieldTracer(terrain, -1024, -512, 2, 2048);
+    private final Vector[] rays = new Vector[GRID * GRID];
+    private final Vector position = new Vector(0, 0, 0);
+    private final Vector normal = new Vector(0, 0, 0);
+    private int next;
+
+    public RaymarchingBenchmark() {
+        final Vector look = new Vector(1, -3, 5).normalized();
+        final Vector right = new Vector(0, 1, 0).cross(look).normalized();
+        final Vector up = look.cross(right).normalized();
+        for (int row = 0; row < GRID; row++) {
+            for (int col = 0; col < GRID; col++) {
+                final Vector view = new Vector((col - GRID / 2.0) / GRID, -(row - GRID / 2.0) / GRID, 1).normalized();
+                rays[row * GRID + col] = look.plus(right.scaled(view.getX())).plus(up.scaled(view.getY())).normalized();
+            }
+        }
+    }
+
+    @Benchmark
+    public Vector findStrikeWithNormal() {
+        next = (next + 1) % rays.length;
+        position.set(eye.getX(), eye.getY(), eye.getZ());
+        raymarching.findStrikeWithNormal(eye, rays[next], position, normal);
+        return normal;
+    }
+
+    @Benchmark
+    public Vector findStrikeMarchingNormal() {
+        next = (next + 1) % rays.length;
+        position.set(eye.getX(), eye.getY(), eye.getZ());
+        raymarchingNormals.findStrikeWithNormal(eye, rays[next], position, normal);
+        return normal;
+    }
+
+    @Benchmark
+    public Vector heightfieldTracer() {
+        next = (next + 1) % rays.length;
+        position.set(eye.getX(), eye.getY(), eye.getZ());
+        tracer.findStrikeWithNormal(eye, rays[next], position, normal);
+        return normal;
+    }
+}
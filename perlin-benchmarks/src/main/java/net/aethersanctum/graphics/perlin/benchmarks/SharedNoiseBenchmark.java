@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.aethersanctum.graphics.perlin.PerlinNoise;
+
+/**
+ * Compares one {@link PerlinNoise} shared by every benchmark thread against
+ * the old pattern of giving each thread an instance of its own.
+ * <p>
+ * Both variants should report an allocation rate of (close to) zero bytes
+ * per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class SharedNoiseBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        final PerlinNoise perlin = new PerlinNoise();
+    }
+
+    @State(Scope.Thread)
+    public static class PerThread {
+        final PerlinNoise perlin = new PerlinNoise();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        double x = 0.123;
+        double y = 4.567;
+        double z = 8.901;
+
+        void advance() {
+            x += 0.0137;
+            y += 0.0071;
+            z += 0.0029;
+        }
+    }
+
+    @Benchmark
+    public double noise2Shared(Shared shared, Cursor cursor) {
+        cursor.advance();
+        return shared.perlin.noise2(cursor.x, cursor.y);
+    }
+
+    @Benchmark
+    public double noise2PerThread(PerThread perThread, Cursor cursor) {
+        cursor.advance();
+        return perThread.perlin.noise2(cursor.x, cursor.y);
+    }
+
+    @Benchmark
+    public double noise3Shared(Shared shared, Cursor cursor) {
+        cursor.advance();
+        return shared.perlin.noise3(cursor.x, cursor.y, cursor.z);
+    }
+
+    @Benchmark
+    public double noise3PerThread(PerThread perThread, Cursor cursor) {
+        cursor.advance();
+        return perThread.perlin.noise3(cursor.x, cursor.y, cursor.z);
+    }
+}
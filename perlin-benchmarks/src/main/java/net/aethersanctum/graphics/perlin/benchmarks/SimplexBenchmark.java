@@ -0,0 +1,134 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.aethersanctum.graphics.perlin.FractalNoise;
+import net.aethersanctum.graphics.perlin.HashNoise;
+import net.aethersanctum.graphics.perlin.PerlinNoise;
+import net.aethersanctum.graphics.perlin.SimplexNoise;
+
+/**
+ * Cost per sample of simplex noise in 2, 3 and 4 dimensions, next to
+ * Perlin's noise2 and noise3 at the same scattered points, and of a
+ * landscape summed from each. Table-free hash noise is measured alongside.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SimplexBenchmark {
+    private static final int POINTS = 1 << 12;
+
+    private final PerlinNoise perlin = new PerlinNoise(1);
+    private final SimplexNoise simplex = new SimplexNoise(1);
+    private final FractalNoise perlinFractal = new FractalNoise(perlin);
+    private final FractalNoise simplexFractal = new FractalNoise(simplex);
+    private final HashNoise hash = new HashNoise(1);
+    private final FractalNoise hashFractal = new FractalNoise(hash);
+    private final double[] xs = new double[POINTS];
+    private final double[] ys = new double[POINTS];
+    private final double[] zs = new double[POINTS];
+    private final double[] ws = new double[POINTS];
+    private int next;
+
+    public SimplexBenchmark() {
+        final Random random = new Random(1);
+        for (int i = 0; i < POINTS; i++) {
+            xs[i] = random.nextDouble() * 1000;
+            ys[i] = random.nextDouble() * 1000;
+            zs[i] = random.nextDouble() * 1000;
+            ws[i] = random.nextDouble() * 1000;
+        }
+    }
+
+    private int nextRandom() {
+        next = (next + 1) & (POINTS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public double perlinNoise2() {
+        final int i = nextRandom();
+        return perlin.noise2(xs[i], ys[i]);
+    }
+
+    @Benchmark
+    public double perlinNoise3() {
+        final int i = nextRandom();
+        return perlin.noise3(xs[i], ys[i], zs[i]);
+    }
+
+    @Benchmark
+    public double simplexNoise2() {
+        final int i = nextRandom();
+        return simplex.noise2(xs[i], ys[i]);
+    }
+
+    @Benchmark
+    public double simplexNoise3() {
+        final int i = nextRandom();
+        return simplex.noise3(xs[i], ys[i], zs[i]);
+    }
+
+    @Benchmark
+    public double simplexNoise4() {
+        final int i = nextRandom();
+        return simplex.noise4(xs[i], ys[i], zs[i], ws[i]);
+    }
+
+    @Benchmark
+    public double perlinFractal() {
+        final int i = nextRandom();
+        return perlinFractal.fractalNoise(xs[i], ys[i]);
+    }
+
+    @Benchmark
+    public double simplexFractal() {
+        final int i = nextRandom();
+        return simplexFractal.fractalNoise(xs[i], ys[i]);
+    }
+
+    @Benchmark
+    public double hashNoise2() {
+        final int i = nextRandom();
+        return hash.noise2(xs[i], ys[i]);
+    }
+
+    @Benchmark
+    public double hashNoise3() {
+        final int i = nextRandom();
+        return hash.noise3(xs[i], ys[i], zs[i]);
+    }
+
+    @Benchmark
+    public double hashFractal() {
+        final int i = nextRandom();
+        return hashFractal.fractalNoise(xs[i], ys[i]);
+    }
+}
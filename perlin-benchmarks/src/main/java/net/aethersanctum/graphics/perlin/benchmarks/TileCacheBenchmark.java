@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.aethersanctum.graphics.perlin.FractalNoise;
+import net.aethersanctum.graphics.perlin.TileCache;
+
+/**
+ * Height queries scattered around a neighbourhood, answered by the tile
+ * cache versus by evaluating the fractal sum every time, and queries
+ * wandering a short way at a time, answered from the tile in hand.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class TileCacheBenchmark {
+    private static final double NEIGHBOURHOOD = 64;
+
+    private final FractalNoise fractal = new FractalNoise(1);
+    private final TileCache cache = new TileCache(fractal, 64, 1.0 / 16, 16L << 20);
+
+    @Benchmark
+    public float cached() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        return cache.height(random.nextDouble(NEIGHBOURHOOD), random.nextDouble(NEIGHBOURHOOD));
+    }
+
+    @Benchmark
+    public float tileLocal(Walk walk) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        walk.x = Math.floorMod((long) (walk.x * 16) + random.nextInt(-1, 2), (long) NEIGHBOURHOOD * 16) / 16.0;
+        walk.z = Math.floorMod((long) (walk.z * 16) + random.nextInt(-1, 2), (long) NEIGHBOURHOOD * 16) / 16.0;
+        if (walk.tile == null || !walk.tile.contains(walk.x, walk.z)) {
+            walk.tile = cache.tileAt(walk.x, walk.z, 0);
+        }
+        return walk.tile.height(walk.x, walk.z);
+    }
+
+    @Benchmark
+    public double uncached() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        return fractal.fractalNoise(random.nextDouble(NEIGHBOURHOOD), random.nextDouble(NEIGHBOURHOOD));
+    }
+
+    /**
+     * Where one thread's queries have wandered to, and the tile under them.
+     */
+    @State(Scope.Thread)
+    public static class Walk {
+        double x = NEIGHBOURHOOD / 2;
+        double z = NEIGHBOURHOOD / 2;
+        TileCache.Tile tile;
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.demo;
+
+/**
+ * Finds where rays meet the terrain by walking a pyramid of maximum
+ * heights, rather than treating the terrain as a distance estimator.
+ * <p>
+ * The bottom level of the pyramid holds, for each cell of a square grid
+ * over the terrain, a height nothing in the cell rises above at any level
+ * of detail, from {@link TerrainEstimator#heightBounds}. Each level up
+ * holds the maximum of four cells below. A ray passing over a cell
+ * higher than its maximum can skip the whole cell in one step, so most of
+ * a ray's length is crossed a few big cells at a time, dropping to finer
+ * levels only close to the ground. In a bottom level cell the ray samples
+ * the real terrain a few times and pins down the crossing by false
+ * position, interpolating between the heights either side of it.
+ * <p>
+ * Rays which leave the grid without meeting the terrain are treated as
+ * missing it.
+ */
+public class HeightfieldTracer implements SurfaceFinder {
+    private static final int SAMPLES_PER_CELL = 2;
+    private static final int REFINEMENTS = 8;
+    private static final double PRECISION = 0.01;
+    private static final double NUDGE = 1e-6;
+
+    private final TerrainEstimator terrain;
+    private final double x0;
+    private final double z0;
+    private final double cellSize;
+    private final int cells;
+    private final float[][] maxHeights;
+    private final TraceStatistics statistics = new TraceStatistics();
+
+    /**
+     * Build the pyramid for a square of terrain.
+     *
+     * @param terrain the terrain to trace
+     * @param x0 x coordinate of the square's west edge
+     * @param z0 z coordinate of the square's south edge
+     * @param cellSize width of a bottom level cell
+     * @param cells number of bottom level cells along each edge, a power of two
+     */
+    public HeightfieldTracer(TerrainEstimator terrain, double x0, double z0, double cellSize, int cells) {
+        if (cells <= 0 || Integer.bitCount(cells) != 1) {
+            throw new IllegalArgumentException("cells along each edge must be a power of two");
+        }
+        this.terrain = terrain;
+        this.x0 = x0;
+        this.z0 = z0;
+        this.cellSize = cellSize;
+        this.cells = cells;
+        this.maxHeights = new float[Integer.numberOfTrailingZeros(cells) + 1][];
+
+        // bound each cell from the noise's lattice rather than samples,
+        // which can miss peaks between them
+        final float[] bottom = new float[cells * cells];
+        final double[] bounds = new double[2];
+        for (int row = 0; row < cells; row++) {
+            for (int col = 0; col < cells; col++) {
+                terrain.heightBounds(x0 + col * cellSize, z0 + row * cellSize,
+                        x0 + (col + 1) * cellSize, z0 + (row + 1) * cellSize, bounds);
+                bottom[row * cells + col] = Math.nextUp((float) bounds[1]);
+            }
+        }
+        maxHeights[0] = bottom;
+        for (int level = 1, size = cells / 2; level < maxHeights.length; level++, size /= 2) {
+            final float[] below = maxHeights[level - 1],
+                    above = new float[size * size];
+            final int belowSize = size * 2;
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    final int at = row * 2 * belowSize + col * 2;
+                    above[row * size + col] = Math.max(
+                            Math.max(below[at], below[at + 1]),
+                            Math.max(below[at + belowSize], below[at + belowSize + 1]));
+                }
+            }
+            maxHeights[level] = above;
+        }
+    }
+
+    public TraceStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public boolean findStrikeWithNormal(Vector eye, Vector ray, Vector position, Vector normal) {
+        final double ox = eye.getX(), oy = eye.getY(), oz = eye.getZ(),
+                dx = ray.getX(), dy = ray.getY(), dz = ray.getZ(),
+                extent = cellSize * cells,
+                top = maxHeights[maxHeights.length - 1][0];
+
+        // clip the ray to the box over the grid, below the highest point
+        double tEnter = Math.max(0, Math.max(slabEnter(ox, dx, x0, x0 + extent), slabEnter(oz, dz, z0, z0 + extent))),
+                tExit = Math.min(slabExit(ox, dx, x0, x0 + extent), slabExit(oz, dz, z0, z0 + extent));
+        if (oy > top) {
+            if (dy >= 0) {
+                statistics.record(false, 0, 0);
+                return false;
+            }
+            tEnter = Math.max(tEnter, (top - oy) / dy);
+        } else if (dy > 0) {
+            tExit = Math.min(tExit, (top - oy) / dy);
+        }
+
+        long steps = 0, evaluations = 0;
+        int level = maxHeights.length - 1;
+        double t = tEnter,
+                tSampled = Double.NaN,
+                fSampled = 0;
+        while (t < tExit) {
+            steps++;
+            final int size = cells >> level;
+            final double width = cellSize * (1 << level),
+                    px = ox + t * dx,
+                    pz = oz + t * dz;
+            final int cx = clamp((int) Math.floor((px - x0) / width), size),
+                    cz = clamp((int) Math.floor((pz - z0) / width), size);
+            final double tx = dx > 0 ? (x0 + (cx + 1) * width - ox) / dx
+                    : dx < 0 ? (x0 + cx * width - ox) / dx : Double.POSITIVE_INFINITY,
+                    tz = dz > 0 ? (z0 + (cz + 1) * width - oz) / dz
+                    : dz < 0 ? (z0 + cz * width - oz) / dz : Double.POSITIVE_INFINITY,
+                    tNext = Math.min(tExit, Math.min(tx, tz)),
+                    lowest = oy + Math.min(t * dy, tNext * dy);
+
+            if (lowest > maxHeights[level][cz * size + cx]) {
+                // clear of everything in this cell; step over it and try bigger cells again
+                t = tNext + NUDGE;
+                if (level < maxHeights.length - 1) {
+                    level++;
+                }
+                continue;
+            }
+            if (level > 0) {
+                level--;
+                continue;
+            }
+
+            // close to the ground: look for the crossing in this cell,
+            // carrying on from where the last cell's search left off
+            if (t != tSampled) {
+                fSampled = heightAbove(ox, oy, oz, dx, dy, dz, t);
+                evaluations++;
+            }
+            double tLow = t,
+                    fLow = fSampled,
+                    tHigh = t,
+                    fHigh = fLow;
+            for (int sample = 1; sample <= SAMPLES_PER_CELL && fHigh > 0; sample++) {
+                tHigh = t + (tNext - t) * sample / SAMPLES_PER_CELL;
+                fHigh = heightAbove(ox, oy, oz, dx, dy, dz, tHigh);
+                evaluations++;
+                if (fHigh > 0) {
+                    tLow = tHigh;
+                    fLow = fHigh;
+                }
+            }
+            if (fHigh <= 0) {
+                // the terrain is smooth this close up, so interpolating
+                // between the heights either side homes in quickly
+                for (int i = 0; i < REFINEMENTS && tHigh - tLow > PRECISION; i++) {
+                    final double tMid = tLow + (tHigh - tLow) * fLow / (fLow - fHigh),
+                            fMid = heightAbove(ox, oy, oz, dx, dy, dz, tMid);
+                    evaluations++;
+                    if (Math.abs(fMid) < PRECISION) {
+                        tHigh = tMid;
+                        break;
+                    }
+                    if (fMid <= 0) {
+                        tHigh = tMid;
+                        fHigh = fMid;
+                    } else {
+                        tLow = tMid;
+                        fLow = fMid;
+                    }
+                }
+                position.set(ox + tHigh * dx, oy + tHigh * dy, oz + tHigh * dz);
+                terrain.normalAt(position.getX(), position.getY(), position.getZ(), normal);
+                statistics.record(true, steps, evaluations);
+                return true;
+            }
+            tSampled = tNext + NUDGE;
+            fSampled = fLow;
+            t = tNext + NUDGE;
+        }
+        statistics.record(false, steps, evaluations);
+        return false;
+    }
+
+    /**
+     * How far a point along the ray is above the terrain.
+     */
+    private double heightAbove(double ox, double oy, double oz, double dx, double dy, double dz, double t) {
+        return terrain.distance(ox + t * dx, oy + t * dy, oz + t * dz);
+    }
+
+    /**
+     * Find where a ray enters the space between two planes along one axis.
+     */
+    private static double slabEnter(double origin, double direction, double low, double high) {
+        if (direction == 0) {
+            return origin >= low && origin <= high ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        return Math.min((low - origin) / direction, (high - origin) / direction);
+    }
+
+    /**
+     * Find where a ray leaves the space between two planes along one axis.
+     */
+    private static double slabExit(double origin, double direction, double low, double high) {
+        if (direction == 0) {
+            return origin >= low && origin <= high ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+        }
+        return Math.max((low - origin) / direction, (high - origin) / direction);
+    }
+
+    private static int clamp(int index, int size) {
+        return Math.max(0, Math.min(size - 1, index));
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.demo;
+
+/**
+ * Works out the colour of one pixel.
+ */
+@FunctionalInterface
+public interface PixelShader {
+    /**
+     * @param x pixel column
+     * @param y pixel row
+     * @return the pixel's colour, packed as ARGB
+     */
+    int argb(int x, int y);
+
+    /**
+     * @return a tile shader which asks this one for each pixel in turn
+     */
+    default TileShader perPixel() {
+        return (x0, y0, w, h, pixels, offset, stride) -> {
+            for (int row = 0; row < h; row++) {
+                final int at = offset + row * stride;
+                for (int col = 0; col < w; col++) {
+                    pixels[at + col] = argb(x0 + col, y0 + row);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.demo;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import net.aethersanctum.graphics.perlin.LatencyHistogram;
+import net.aethersanctum.graphics.perlin.NoiseMetrics;
+
+/**
+ * Counts rendering work across every tracer and renderer in the JVM: rays
+ * traced, how many hit, the steps they took, and how long each tile took.
+ * <p>
+ * Switched on and published through JMX along with {@link NoiseMetrics},
+ * by {@code -Daether.perlin.metrics=true}; when off, the JIT drops the
+ * counting calls.
+ */
+public final class RenderMetrics {
+    /** Where the counts appear in JMX. */
+    public static final String OBJECT_NAME = "net.aethersanctum.graphics.perlin.demo:type=RenderMetrics";
+
+    private static final TraceStatistics traces = new TraceStatistics();
+    private static final LatencyHistogram tiles = new LatencyHistogram();
+
+    static {
+        if (NoiseMetrics.ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                // already registered by another copy of this class; counting still works
+            }
+        }
+    }
+
+    private RenderMetrics() {
+    }
+
+    /**
+     * @return rays traced by every surface finder, since the last reset
+     */
+    public static TraceStatistics getTraces() {
+        return traces;
+    }
+
+    /**
+     * @return how long tiles have taken to render
+     */
+    public static LatencyHistogram getTileLatency() {
+        return tiles;
+    }
+
+    /**
+     * Start counting again from zero.
+     */
+    public static void reset() {
+        traces.reset();
+        tiles.reset();
+    }
+
+    static void traced(boolean hit, long steps, long evaluations) {
+        if (NoiseMetrics.ENABLED) {
+            traces.add(hit, steps, evaluations);
+        }
+    }
+
+    static void tile(long nanos) {
+        if (NoiseMetrics.ENABLED) {
+            tiles.record(nanos);
+        }
+    }
+
+    private static final class Bean implements RenderMetricsMXBean {
+        @Override
+        public long getRays() {
+            return traces.getRays();
+        }
+
+        @Override
+        public long getHits() {
+            return traces.getHits();
+        }
+
+        @Override
+        public long getMisses() {
+            return traces.getRays() - traces.getHits();
+        }
+
+        @Override
+        public double getHitRate() {
+            final long rays = traces.getRays();
+            return rays == 0 ? 0 : (double) traces.getHits() / rays;
+        }
+
+        @Override
+        public double getStepsPerRay() {
+            return traces.stepsPerRay();
+        }
+
+        @Override
+        public double getEvaluationsPerRay() {
+            return traces.evaluationsPerRay();
+        }
+
+        @Override
+        public long getTiles() {
+            return tiles.getCount();
+        }
+
+        @Override
+        public long getTileMedianNanos() {
+            return tiles.percentile(0.5);
+        }
+
+        @Override
+        public long getTile99thPercentileNanos() {
+            return tiles.percentile(0.99);
+        }
+
+        @Override
+        public long[] getTileLatencyCounts() {
+            return tiles.getCounts();
+        }
+
+        @Override
+        public void reset() {
+            RenderMetrics.reset();
+        }
+    }
+}
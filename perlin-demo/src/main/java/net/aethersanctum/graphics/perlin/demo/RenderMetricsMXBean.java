@@ -0,0 +1,43 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.demo;
+
+/**
+ * What {@link RenderMetrics} shows through JMX, under
+ * {@value RenderMetrics#OBJECT_NAME}.
+ */
+public interface RenderMetricsMXBean {
+
+    long getRays();
+
+    long getHits();
+
+    long getMisses();
+
+    double getHitRate();
+
+    double getStepsPerRay();
+
+    double getEvaluationsPerRay();
+
+    long getTiles();
+
+    long getTileMedianNanos();
+
+    long getTile99thPercentileNanos();
+
+    long[] getTileLatencyCounts();
+
+    void reset();
+}
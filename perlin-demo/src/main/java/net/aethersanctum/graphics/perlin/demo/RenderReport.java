@@ -0,0 +1,112 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.demo;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * How long a render took, as a whole and tile by tile.
+ */
+public class RenderReport {
+    private final long elapsedNanos;
+    private final List<TileTiming> tiles;
+
+    RenderReport(long elapsedNanos, List<TileTiming> tiles) {
+        this.elapsedNanos = elapsedNanos;
+        this.tiles = Collections.unmodifiableList(tiles);
+    }
+
+    /**
+     * @return wall clock time from the first tile starting to the last finishing
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return timings of every tile, in row-major tile order
+     */
+    public List<TileTiming> getTiles() {
+        return tiles;
+    }
+
+    /**
+     * @return time spent in all tiles added together, over all threads
+     */
+    public long getTotalTileNanos() {
+        long total = 0;
+        for (TileTiming tile : tiles) {
+            total += tile.getNanos();
+        }
+        return total;
+    }
+
+    /**
+     * @return the time taken by the slowest tile
+     */
+    public long getSlowestTileNanos() {
+        long slowest = 0;
+        for (TileTiming tile : tiles) {
+            slowest = Math.max(slowest, tile.getNanos());
+        }
+        return slowest;
+    }
+
+    @Override
+    public String toString() {
+        final double millis = 1e-6;
+        return String.format("%d tiles in %.1f ms, %.1f ms of tile work, slowest tile %.1f ms",
+                tiles.size(), elapsedNanos * millis, getTotalTileNanos() * millis, getSlowestTileNanos() * millis);
+    }
+
+    /**
+     * Where one tile was and how long it took.
+     */
+    public static class TileTiming {
+        private final int x;
+        private final int y;
+        private final int width;
+        private final int height;
+        private final long nanos;
+
+        TileTiming(int x, int y, int width, int height, long nanos) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.nanos = nanos;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.demo;
+
+/**
+ * Finds where rays from the eye first meet a surface.
+ */
+public interface SurfaceFinder {
+    /**
+     * @param eye where the ray starts
+     * @param ray unit vector along the ray
+     * @param position set to the eye on entry; moved to where the ray meets the surface
+     * @param normal receives the surface normal where the ray meets the surface
+     * @return whether the ray meets the surface at all
+     */
+    boolean findStrikeWithNormal(Vector eye, Vector ray, Vector position, Vector normal);
+}
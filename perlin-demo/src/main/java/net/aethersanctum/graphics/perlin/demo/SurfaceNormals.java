@@ -0,0 +1,28 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.demo;
+
+/**
+ * Something which knows which way its surface faces, so the raymarcher
+ * doesn't need to work it out from neighbouring rays.
+ */
+public interface SurfaceNormals {
+    /**
+     * @param x x coordinate of a point on or near the surface
+     * @param y y coordinate of the point
+     * @param z z coordinate of the point
+     * @param normal receives the unit vector pointing out of the surface at that point
+     */
+    void normalAt(double x, double y, double z, Vector normal);
+}
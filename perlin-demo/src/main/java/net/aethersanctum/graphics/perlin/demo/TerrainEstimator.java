@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.demo;
+
+import net.aethersanctum.graphics.perlin.FractalNoise;
+
+/**
+ * Uses fractal noise landscape heights as a distance estimator for the
+ * raymarcher: how far a point is above (or below) the ground.
+ * <p>
+ * Given where the eye is and how wide a pixel's view is, far away ground
+ * leaves out the octaves finer than a pixel, which are only noise at that
+ * distance anyway.
+ * <p>
+ * Surface normals come straight from the landscape's analytic slope.
+ */
+public class TerrainEstimator implements DistanceEstimator, SurfaceNormals {
+    private final FractalNoise fractalNoise;
+    private final double scale;
+    private final double yscale;
+    private final Vector eye;
+    private final double pixelAngle;
+    private final ThreadLocal<double[]> gradient = ThreadLocal.withInitial(() -> new double[3]);
+
+    /**
+     * @param fractalNoise the landscape
+     * @param scale how far apart landscape features are, horizontally
+     * @param yscale how tall landscape features are
+     */
+    public TerrainEstimator(FractalNoise fractalNoise, double scale, double yscale) {
+        this(fractalNoise, scale, yscale, null, 0);
+    }
+
+    /**
+     * @param fractalNoise the landscape
+     * @param scale how far apart landscape features are, horizontally
+     * @param yscale how tall landscape features are
+     * @param eye where rays start from
+     * @param pixelAngle angle between neighbouring pixels' rays, in radians
+     */
+    public TerrainEstimator(FractalNoise fractalNoise, double scale, double yscale, Vector eye, double pixelAngle) {
+        this.fractalNoise = fractalNoise;
+        this.scale = scale;
+        this.yscale = yscale;
+        this.eye = eye;
+        this.pixelAngle = pixelAngle;
+    }
+
+    @Override
+    public double distance(double x, double y, double z) {
+        return y - yscale * fractalNoise.fractalNoiseSmoothBottom(x * scale, z * scale, footprint(x, y, z));
+    }
+
+    @Override
+    public void normalAt(double x, double y, double z, Vector normal) {
+        final double[] slope = gradient.get();
+        fractalNoise.fractalNoiseSmoothBottomWithGradient(x * scale, z * scale, footprint(x, y, z), slope);
+        final double nx = -yscale * scale * slope[1],
+                nz = -yscale * scale * slope[2],
+                ratio = 1 / Math.sqrt(nx * nx + 1 + nz * nz);
+        normal.set(nx * ratio, ratio, nz * ratio);
+    }
+
+    /**
+     * Find heights the ground stays between everywhere over a rectangle,
+     * at whatever level of detail {@link #distance} samples it.
+     *
+     * @param x0 least x coordinate of the rectangle
+     * @param z0 least z coordinate of the rectangle
+     * @param x1 greatest x coordinate, at least x0
+     * @param z1 greatest z coordinate, at least z0
+     * @param out receives the lowest height, then the highest
+     */
+    public void heightBounds(double x0, double z0, double x1, double z1, double[] out) {
+        fractalNoise.fractalNoiseSmoothBottomBoundsAnyFootprint(Math.min(x0 * scale, x1 * scale),
+                Math.min(z0 * scale, z1 * scale), Math.max(x0 * scale, x1 * scale), Math.max(z0 * scale, z1 * scale),
+                out);
+        final double low = yscale * out[0],
+                high = yscale * out[1];
+        out[0] = Math.min(low, high);
+        out[1] = Math.max(low, high);
+    }
+
+    private double footprint(double x, double y, double z) {
+        if (eye == null) {
+            return 0;
+        }
+        final double dx = x - eye.getX(),
+                dy = y - eye.getY(),
+                dz = z - eye.getZ();
+        return Math.sqrt(dx * dx + dy * dy + dz * dz) * pixelAngle * scale;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.demo;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Renders rectangles of an image in square tiles on many threads, with
+ * the shaders writing packed colours straight into the image's pixel
+ * array rather than drawing through {@link java.awt.Graphics2D}.
+ * <p>
+ * Images must store each pixel as one int, as
+ * {@link BufferedImage#TYPE_INT_ARGB} and {@link BufferedImage#TYPE_INT_RGB} do.
+ */
+public class TileRenderer {
+    private final Executor executor;
+    private final int tileSize;
+
+    /**
+     * Create a renderer which runs on the common fork/join pool.
+     * @param tileSize pixels along each tile edge
+     */
+    public TileRenderer(int tileSize) {
+        this(ForkJoinPool.commonPool(), tileSize);
+    }
+
+    /**
+     * @param executor runs the tiles
+     * @param tileSize pixels along each tile edge
+     */
+    public TileRenderer(Executor executor, int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("tile size must be positive");
+        }
+        this.executor = executor;
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Render a rectangle of an image one pixel at a time.
+     */
+    public RenderReport render(BufferedImage image, int x0, int y0, int w, int h, PixelShader shader) {
+        return render(image, x0, y0, w, h, shader.perPixel());
+    }
+
+    /**
+     * Render a rectangle of an image, waiting until every tile is done.
+     *
+     * @param image the image to draw into
+     * @param x0 left edge of the rectangle
+     * @param y0 top edge of the rectangle
+     * @param w width of the rectangle
+     * @param h height of the rectangle
+     * @param shader colours the tiles; it is given coordinates relative to the rectangle
+     * @return how long the rendering and each tile took
+     */
+    public RenderReport render(BufferedImage image, int x0, int y0, int w, int h, TileShader shader) {
+        final WritableRaster raster = image.getRaster();
+        if (!(raster.getDataBuffer() instanceof DataBufferInt)
+                || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)) {
+            throw new IllegalArgumentException("image must store one int per pixel");
+        }
+        if (x0 < 0 || y0 < 0 || w < 0 || h < 0 || x0 + w > image.getWidth() || y0 + h > image.getHeight()) {
+            throw new IllegalArgumentException("rectangle lies outside the image");
+        }
+        final int[] pixels = ((DataBufferInt) raster.getDataBuffer()).getData();
+        final int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride(),
+                origin = (y0 - raster.getSampleModelTranslateY()) * stride + x0 - raster.getSampleModelTranslateX();
+
+        final long start = System.nanoTime();
+        final List<CompletableFuture<RenderReport.TileTiming>> tiles = new ArrayList<>();
+        for (int ty = 0; ty < h; ty += tileSize) {
+            for (int tx = 0; tx < w; tx += tileSize) {
+                final int col0 = tx, row0 = ty,
+                        tw = Math.min(tileSize, w - tx),
+                        th = Math.min(tileSize, h - ty);
+                // handed to the executor directly: supplyAsync would swap a
+                // single threaded common pool for a thread per tile
+                final CompletableFuture<RenderReport.TileTiming> tile = new CompletableFuture<>();
+                executor.execute(() -> {
+                    try {
+                        final long tileStart = System.nanoTime();
+                        shader.shade(col0, row0, tw, th, pixels, origin + row0 * stride + col0, stride);
+                        final long nanos = System.nanoTime() - tileStart;
+                        RenderMetrics.tile(nanos);
+                        tile.complete(new RenderReport.TileTiming(x0 + col0, y0 + row0, tw, th, nanos));
+                    } catch (RuntimeException | Error e) {
+                        tile.completeExceptionally(e);
+                    }
+                });
+                tiles.add(tile);
+            }
+        }
+        final List<RenderReport.TileTiming> timings = new ArrayList<>(tiles.size());
+        for (CompletableFuture<RenderReport.TileTiming> tile : tiles) {
+            timings.add(tile.join());
+        }
+        return new RenderReport(System.nanoTime() - start, timings);
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.demo;
+
+/**
+ * Works out the colours of a rectangle of pixels at once, for views which
+ * can share work between neighbouring pixels.
+ */
+@FunctionalInterface
+public interface TileShader {
+    /**
+     * @param x0 x coordinate of the tile's first column
+     * @param y0 y coordinate of the tile's first row
+     * @param w number of columns
+     * @param h number of rows
+     * @param pixels receives packed ARGB colours, {@code pixels[offset + row * stride + col]}
+     * @param offset where in pixels the tile's first pixel goes
+     * @param stride distance in pixels between the starts of consecutive rows
+     */
+    void shade(int x0, int y0, int w, int h, int[] pixels, int offset, int stride);
+}
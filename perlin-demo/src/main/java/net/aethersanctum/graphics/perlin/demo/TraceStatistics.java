@@ -0,0 +1,98 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.demo;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the work done finding surfaces, so that tracers can be compared
+ * by how many steps each ray takes.
+ */
+public class TraceStatistics {
+    private final LongAdder rays = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder steps = new LongAdder();
+    private final LongAdder evaluations = new LongAdder();
+
+    /**
+     * Record one traced ray.
+     * @param hit whether it met the surface
+     * @param raySteps how many steps it took
+     * @param rayEvaluations how many times it evaluated the surface function
+     */
+    void record(boolean hit, long raySteps, long rayEvaluations) {
+        add(hit, raySteps, rayEvaluations);
+        RenderMetrics.traced(hit, raySteps, rayEvaluations);
+    }
+
+    /**
+     * Count a ray here only, without passing it on to {@link RenderMetrics}.
+     */
+    void add(boolean hit, long raySteps, long rayEvaluations) {
+        rays.increment();
+        if (hit) {
+            hits.increment();
+        }
+        steps.add(raySteps);
+        evaluations.add(rayEvaluations);
+    }
+
+    /**
+     * Start counting again from zero.
+     */
+    public void reset() {
+        rays.reset();
+        hits.reset();
+        steps.reset();
+        evaluations.reset();
+    }
+
+    public long getRays() {
+        return rays.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return steps taken along all rays, each being one march or one cell visited
+     */
+    public long getSteps() {
+        return steps.sum();
+    }
+
+    /**
+     * @return times the surface function was evaluated, over all rays
+     */
+    public long getEvaluations() {
+        return evaluations.sum();
+    }
+
+    public double stepsPerRay() {
+        final long count = getRays();
+        return count == 0 ? 0 : (double) getSteps() / count;
+    }
+
+    public double evaluationsPerRay() {
+        final long count = getRays();
+        return count == 0 ? 0 : (double) getEvaluations() / count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rays, %d hits, %.1f steps and %.1f surface evaluations per ray",
+                getRays(), getHits(), stepsPerRay(), evaluationsPerRay());
+    }
+}
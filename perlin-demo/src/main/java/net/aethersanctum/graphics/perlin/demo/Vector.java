@@ -38,6 +38,13 @@ public class Vector {
         return new Vector(x * ratio, y * ratio, z * ratio);
     }
 
+    public void normalize() {
+        final double ratio = 1 / length();
+        x *= ratio;
+        y *= ratio;
+        z *= ratio;
+    }
+
     private double length() {
         return sqrt(x * x + y * y + z * z);
     }
@@ -54,6 +61,12 @@ public class Vector {
         return x;
     }
 
+    public void set(double vx, double vy, double vz) {
+        x = vx;
+        y = vy;
+        z = vz;
+    }
+
     public void add(double vx, double vy, double vz) {
         x += vx;
         y += vy;
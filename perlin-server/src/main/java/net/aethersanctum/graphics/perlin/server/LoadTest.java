@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.aethersanctum.graphics.perlin.LatencyHistogram;
+
+/**
+ * Hammers a tile server from many client threads and reports throughput,
+ * latency percentiles and how requests were answered.
+ * <p>
+ * Clients pick tiles at random from a square of tiles, in random formats.
+ * Once a client has fetched a tile it sometimes asks for it again with
+ * its ETag, as a caching client would, which should come back 304.
+ * Usage:
+ * <pre>
+ * LoadTest [url|local] [clients] [seconds] [tiles across] [revalidate fraction]
+ * </pre>
+ * With no url, or {@code local}, a server is started in this JVM on the
+ * loopback interface and stopped afterwards.
+ */
+public final class LoadTest {
+    private static final String[] PATHS = {"height/%d/%d.f32", "height/%d/%d.u16", "height/%d/%d.png", "color/%d/%d.png"};
+
+    private final String base;
+    private final int clients;
+    private final long seconds;
+    private final int across;
+    private final double revalidate;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    private final Map<String, String> etags = new ConcurrentHashMap<>();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private LoadTest(String base, int clients, long seconds, int across, double revalidate) {
+        this.base = base;
+        this.clients = clients;
+        this.seconds = seconds;
+        this.across = across;
+        this.revalidate = revalidate;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final String url = args.length > 0 ? args[0] : "local";
+        final int clients = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        final long seconds = args.length > 2 ? Long.parseLong(args[2]) : 10;
+        final int across = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+        final double revalidate = args.length > 4 ? Double.parseDouble(args[4]) : 0.5;
+
+        TileServer server = null;
+        String base = url;
+        if (url.equals("local")) {
+            server = new TileServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                    Runtime.getRuntime().availableProcessors(), TileServer.DEFAULT_PERMIT_WAIT_MILLIS, TileServer.DEFAULT_SPACING);
+            server.start();
+            base = "http://localhost:" + server.getPort();
+            System.out.println("started a local server on " + base + " using "
+                    + (server.isVirtualThreads() ? "virtual threads" : "a thread pool"));
+        }
+        try {
+            new LoadTest(base + TileKey.PREFIX + "42/", clients, seconds, across, revalidate).run();
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    private void run() throws InterruptedException {
+        final ExecutorService pool = Executors.newFixedThreadPool(clients);
+        final long start = System.nanoTime(), end = start + TimeUnit.SECONDS.toNanos(seconds);
+        for (int i = 0; i < clients; i++) {
+            final Random random = new Random(i);
+            pool.execute(() -> {
+                while (System.nanoTime() < end) {
+                    fetch(random);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+        report(System.nanoTime() - start);
+    }
+
+    private void fetch(Random random) {
+        final String path = String.format(PATHS[random.nextInt(PATHS.length)],
+                random.nextInt(across), random.nextInt(across));
+        final String etag = etags.get(path);
+        final long start = System.nanoTime();
+        try {
+            final HttpURLConnection connection = (HttpURLConnection) new URL(base + path).openConnection();
+            if (etag != null && random.nextDouble() < revalidate) {
+                connection.setRequestProperty("If-None-Match", etag);
+            }
+            final int status = connection.getResponseCode();
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (in != null) {
+                    final byte[] buffer = new byte[8192];
+                    for (int n; (n = in.read(buffer)) > 0; ) {
+                        bytes.add(n);
+                    }
+                }
+            }
+            latency.record(System.nanoTime() - start);
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+            final String tag = connection.getHeaderField("ETag");
+            if (status == 200 && tag != null) {
+                etags.put(path, tag);
+            }
+        } catch (IOException e) {
+            failures.increment();
+        }
+    }
+
+    private void report(long nanos) {
+        final double elapsed = nanos / 1e9;
+        System.out.printf("%d clients for %.1f s: %d requests, %.1f per second, %.1f MB/s, %d failed%n",
+                clients, elapsed, latency.getCount(), latency.getCount() / elapsed,
+                bytes.sum() / elapsed / 1e6, failures.sum());
+        System.out.println("statuses: " + statuses);
+        System.out.printf("latency ms: p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f%n",
+                latency.percentile(0.5) / 1e6, latency.percentile(0.9) / 1e6,
+                latency.percentile(0.99) / 1e6, latency.percentile(0.999) / 1e6);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.server;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.imageio.ImageIO;
+
+import net.aethersanctum.graphics.perlin.FractalNoise;
+import net.aethersanctum.graphics.perlin.HeightQuantizer;
+import net.aethersanctum.graphics.perlin.HeightmapRowWriter;
+import net.aethersanctum.graphics.perlin.PackedColor;
+import net.aethersanctum.graphics.perlin.PngHeightmapWriter;
+import net.aethersanctum.graphics.perlin.RawHeightmapWriter;
+import net.aethersanctum.graphics.perlin.TerrainColors;
+import net.aethersanctum.graphics.perlin.TileStore;
+
+/**
+ * Generates a tile and encodes it, all on the calling thread.
+ * <p>
+ * Heights are the {@link FractalNoise} landscape for the tile's seed,
+ * sampled {@code spacing} apart, and come out in the same formats as
+ * {@link RawHeightmapWriter} and {@link PngHeightmapWriter} write, rows
+ * running north to south. Colour tiles are the demo's terrain colours,
+ * lit from the same direction as the demo's landscape view.
+ */
+@ThreadSafe
+final class TileEncoder {
+    private static final double AMBIENT = 0.3;
+    /** Horizontal and vertical scale of the demo's landscape view, which colour tiles are lit as. */
+    private static final double WORLD_SCALE = 0.01, YSCALE = 0.75;
+    private static final double SUN_X = 2, SUN_Y = 1, SUN_Z = -1;
+
+    private final double spacing;
+    private final TerrainColors colors = new TerrainColors();
+
+    TileEncoder(double spacing) {
+        this.spacing = spacing;
+    }
+
+    double getSpacing() {
+        return spacing;
+    }
+
+    byte[] encode(TileKey key) throws IOException {
+        final int size = TileServer.TILE_SIZE;
+        final FractalNoise noise = new FractalNoise(key.seed);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(size * size * 4);
+        if (key.layer == TileKey.Layer.COLOR) {
+            ImageIO.write(color(noise, key), "png", bytes);
+            return bytes.toByteArray();
+        }
+        final float[] heights = new float[size * size];
+        noise.fillGrid2(0, 0, spacing, spacing, key.tx * size, key.tz * size, size, size, heights, 0, size);
+        final HeightQuantizer quantizer = quantizer(key);
+        try (HeightmapRowWriter writer = key.format == TileKey.Format.PNG
+                ? new PngHeightmapWriter(bytes, size, size, quantizer)
+                : new RawHeightmapWriter(bytes, size, size,
+                        key.format == TileKey.Format.U16 ? TileStore.Encoding.UINT16 : TileStore.Encoding.FLOAT32, quantizer)) {
+            writer.writeRows(heights, 0, size);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return how the altitudes of 16-bit and PNG height tiles for a key are quantized
+     */
+    HeightQuantizer quantizer(TileKey key) {
+        return HeightQuantizer.forLandscape(new FractalNoise(key.seed));
+    }
+
+    private BufferedImage color(FractalNoise noise, TileKey key) {
+        final int size = TileServer.TILE_SIZE, edge = size + 2;
+        // one sample of border all round, for the slopes at the tile's edges
+        final float[] heights = new float[edge * edge];
+        noise.fillGrid2(0, 0, spacing, spacing, key.tx * size - 1, key.tz * size - 1, edge, edge, heights, 0, edge);
+        final double slopeScale = YSCALE * WORLD_SCALE / (2 * spacing),
+                sunLength = Math.sqrt(SUN_X * SUN_X + SUN_Y * SUN_Y + SUN_Z * SUN_Z);
+        final int[] argb = new int[size * size];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                final int at = (row + 1) * edge + col + 1;
+                final double slopeX = (heights[at + 1] - heights[at - 1]) * slopeScale,
+                        slopeZ = (heights[at + edge] - heights[at - edge]) * slopeScale,
+                        length = Math.sqrt(slopeX * slopeX + 1 + slopeZ * slopeZ),
+                        normalY = 1 / length,
+                        lit = Math.max(0, (-slopeX * SUN_X + SUN_Y - slopeZ * SUN_Z) / (length * sunLength)),
+                        illumination = AMBIENT + (1 - AMBIENT) * lit,
+                        elevation = 128 + heights[at];
+                argb[row * size + col] = PackedColor.shade(colors.argbAt(elevation / 256.0 + normalY * 0.2), illumination);
+            }
+        }
+        final BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, size, size, argb, 0, size);
+        return image;
+    }
+}
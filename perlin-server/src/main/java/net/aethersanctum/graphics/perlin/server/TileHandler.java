@@ -0,0 +1,162 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import net.aethersanctum.graphics.perlin.HeightQuantizer;
+
+/**
+ * Answers tile requests.
+ * <p>
+ * A request whose {@code If-None-Match} already names the tile is
+ * answered 304 straight away, since tiles never change. Anything else
+ * must take one of a fixed number of generation permits first; if none
+ * comes free within the wait, the request gets 503 with a
+ * {@code Retry-After}, so that overload shows up as quick refusals
+ * rather than every request slowing down together.
+ */
+@ThreadSafe
+final class TileHandler implements HttpHandler {
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    private final TileEncoder encoder;
+    private final Semaphore generating;
+    private final long permitWaitMillis;
+
+    TileHandler(TileEncoder encoder, Semaphore generating, long permitWaitMillis) {
+        this.encoder = encoder;
+        this.generating = generating;
+        this.permitWaitMillis = permitWaitMillis;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            respond(exchange);
+        } catch (RuntimeException e) {
+            sendText(exchange, 500, "tile failed: " + e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        final String method = exchange.getRequestMethod();
+        final boolean head = "HEAD".equals(method);
+        if (!head && !"GET".equals(method)) {
+            exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+            sendText(exchange, 405, "only GET and HEAD are supported");
+            return;
+        }
+        final TileKey key;
+        try {
+            key = TileKey.parse(exchange.getRequestURI().getPath());
+        } catch (IllegalArgumentException e) {
+            sendText(exchange, 404, e.getMessage());
+            return;
+        }
+
+        final String etag = key.etag(encoder.getSpacing());
+        final Headers headers = exchange.getResponseHeaders();
+        if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+            cacheable(headers, etag);
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        final byte[] body;
+        try {
+            if (!generating.tryAcquire(permitWaitMillis, TimeUnit.MILLISECONDS)) {
+                headers.set("Retry-After", "1");
+                sendText(exchange, 503, "busy generating other tiles");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendText(exchange, 503, "interrupted");
+            return;
+        }
+        try {
+            body = encoder.encode(key);
+        } finally {
+            generating.release();
+        }
+
+        cacheable(headers, etag);
+        headers.set("Content-Type", key.format.contentType);
+        if (key.layer == TileKey.Layer.HEIGHT && key.format != TileKey.Format.F32) {
+            // raw 16-bit tiles can't say what their samples mean, so say it here
+            final HeightQuantizer quantizer = encoder.quantizer(key);
+            headers.set("X-Altitude-Min", Float.toString(quantizer.getMin()));
+            headers.set("X-Altitude-Step", Float.toString(quantizer.getStep()));
+        }
+        if (head) {
+            headers.set("Content-Length", Integer.toString(body.length));
+            exchange.sendResponseHeaders(200, -1);
+        } else {
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * @return whether an If-None-Match header names the tile's tag, or any tag
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            final String trimmed = tag.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mark a response as the tile itself, which never changes, so caches
+     * may keep it for good. Only tiles and 304s get this, never errors.
+     */
+    private static void cacheable(Headers headers, String etag) {
+        headers.set("ETag", etag);
+        headers.set("Cache-Control", CACHE_CONTROL);
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String message) throws IOException {
+        final byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        final Headers headers = exchange.getResponseHeaders();
+        headers.remove("ETag");
+        headers.set("Cache-Control", "no-store");
+        headers.set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.server;
+
+import java.util.Locale;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Which tile a request asks for, parsed from a path of the form
+ * {@code /tiles/<seed>/<layer>/<tx>/<tz>.<format>}.
+ */
+@Immutable
+final class TileKey {
+    /** What the tile shows. */
+    enum Layer { HEIGHT, COLOR }
+
+    /** How the tile is encoded. */
+    enum Format {
+        F32("application/octet-stream"),
+        U16("application/octet-stream"),
+        PNG("image/png");
+
+        final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+    }
+
+    static final String PREFIX = "/tiles/";
+
+    /**
+     * Changes whenever the bytes served for a key do, as when 16-bit tiles
+     * took their range from the landscape, so that caches holding tiles
+     * under the old, immutable tags never mix them with new ones.
+     */
+    static final int ENCODING_VERSION = 2;
+
+    /** Largest tile index either way, so that sample columns stay within an int. */
+    static final int MAX_INDEX = Integer.MAX_VALUE / TileServer.TILE_SIZE - 1;
+
+    final long seed;
+    final Layer layer;
+    final int tx;
+    final int tz;
+    final Format format;
+
+    TileKey(long seed, Layer layer, int tx, int tz, Format format) {
+        this.seed = seed;
+        this.layer = layer;
+        this.tx = tx;
+        this.tz = tz;
+        this.format = format;
+    }
+
+    /**
+     * @return the tile a path names
+     * @throws IllegalArgumentException if the path isn't a tile path
+     */
+    static TileKey parse(String path) {
+        if (!path.startsWith(PREFIX)) {
+            throw new IllegalArgumentException("not a tile path: " + path);
+        }
+        final String[] parts = path.substring(PREFIX.length()).split("/");
+        final int dot = parts.length == 4 ? parts[3].lastIndexOf('.') : -1;
+        if (dot < 0) {
+            throw new IllegalArgumentException("expected /tiles/<seed>/<layer>/<tx>/<tz>.<format>, not " + path);
+        }
+        try {
+            final Layer layer = Layer.valueOf(parts[1].toUpperCase(Locale.ROOT));
+            final Format format = Format.valueOf(parts[3].substring(dot + 1).toUpperCase(Locale.ROOT));
+            if (layer == Layer.COLOR && format != Format.PNG) {
+                throw new IllegalArgumentException("colour tiles are only served as png");
+            }
+            final TileKey key = new TileKey(Long.parseLong(parts[0]), layer,
+                    Integer.parseInt(parts[2]), Integer.parseInt(parts[3].substring(0, dot)), format);
+            if (Math.abs((long) key.tx) > MAX_INDEX || Math.abs((long) key.tz) > MAX_INDEX) {
+                throw new IllegalArgumentException("tile index out of range in " + path);
+            }
+            return key;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad number in " + path, e);
+        }
+    }
+
+    /**
+     * Tiles never change for a given seed, position and sample spacing, so
+     * the entity tag is made from those alone and can be checked without
+     * generating anything.
+     */
+    String etag(double spacing) {
+        return "\"v" + ENCODING_VERSION + '-' + Long.toHexString(seed) + '-' + layer.name().toLowerCase(Locale.ROOT) + '-' + tx + '-' + tz
+                + '-' + format.name().toLowerCase(Locale.ROOT) + '-' + Long.toHexString(Double.doubleToLongBits(spacing)) + '"';
+    }
+
+    @Override
+    public String toString() {
+        return PREFIX + seed + '/' + layer.name().toLowerCase(Locale.ROOT) + '/' + tx + '/' + tz + '.' + format.name().toLowerCase(Locale.ROOT);
+    }
+}
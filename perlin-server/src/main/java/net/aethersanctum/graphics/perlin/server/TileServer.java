@@ -0,0 +1,158 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A small embedded HTTP server handing out landscape tiles, so that
+ * clients fetching terrain over the network share one implementation.
+ * <p>
+ * Tiles are {@value #TILE_SIZE} samples square and are fetched as
+ * {@code GET /tiles/<seed>/<layer>/<tx>/<tz>.<format>}, where the layer
+ * is {@code height} or {@code color} and the format is {@code f32}
+ * (little-endian floats), {@code u16} (little-endian, quantized over the
+ * landscape's whole range by
+ * {@link net.aethersanctum.graphics.perlin.HeightQuantizer#forLandscape}) or
+ * {@code png}. Colour tiles are png only. 16-bit height tiles come with
+ * {@code X-Altitude-Min} and {@code X-Altitude-Step} headers giving the
+ * altitude of sample 0 and between consecutive samples. Tile (0, 0) starts at the
+ * origin and tile indices count in samples of {@code spacing}, so
+ * neighbouring tiles meet without a seam.
+ * <p>
+ * Each request runs on a virtual thread where the JVM has them, and on a
+ * fixed pool otherwise. Generation is CPU-bound, so however many requests
+ * are waiting, only {@code permits} tiles are generated at once; see
+ * {@link TileHandler} for how requests beyond that are turned away.
+ */
+@ThreadSafe
+public class TileServer implements Closeable {
+    /**
+     * Samples along each edge of a tile.
+     */
+    public static final int TILE_SIZE = 256;
+
+    /**
+     * How long a request waits for a generation permit unless told otherwise.
+     */
+    public static final long DEFAULT_PERMIT_WAIT_MILLIS = 500;
+
+    /**
+     * Distance between samples unless told otherwise, so that a tile spans
+     * a few of the landscape's largest hills.
+     */
+    public static final double DEFAULT_SPACING = 1.0 / 64;
+
+    /**
+     * Request threads in the pool used where there are no virtual threads.
+     */
+    private static final int FALLBACK_THREADS = 64;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    /**
+     * Create a server on all interfaces, generating one tile per processor at a time.
+     * @param port port to listen on, or 0 for any free one
+     */
+    public TileServer(int port) throws IOException {
+        this(new InetSocketAddress(port), Runtime.getRuntime().availableProcessors(), DEFAULT_PERMIT_WAIT_MILLIS, DEFAULT_SPACING);
+    }
+
+    /**
+     * Create a server. It doesn't listen until started.
+     * @param address where to listen
+     * @param permits how many tiles may be generated at once
+     * @param permitWaitMillis how long a request may wait to start generating before it is refused
+     * @param spacing distance between samples in the landscape
+     */
+    public TileServer(InetSocketAddress address, int permits, long permitWaitMillis, double spacing) throws IOException {
+        if (permits <= 0 || permitWaitMillis < 0 || !(spacing > 0)) {
+            throw new IllegalArgumentException("permits and spacing must be positive and the wait not negative");
+        }
+        final ExecutorService virtual = virtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtualThreads ? virtual : Executors.newFixedThreadPool(FALLBACK_THREADS);
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext(TileKey.PREFIX,
+                new TileHandler(new TileEncoder(spacing), new Semaphore(permits), permitWaitMillis));
+    }
+
+    /**
+     * Start listening.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return whether requests run on virtual threads rather than a pool
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Stop listening, letting requests in progress finish for up to a second.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    /**
+     * Virtual threads arrived in Java 21; look for them by reflection so
+     * that the server still builds and runs on older JVMs.
+     * @return an executor starting a virtual thread per task, or null if there are none
+     */
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Serve tiles until killed.
+     * @param args optionally the port to listen on, 8080 by default
+     */
+    public static void main(String[] args) throws IOException {
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        final TileServer server = new TileServer(port);
+        server.start();
+        System.out.println("serving tiles on http://" + InetAddress.getLoopbackAddress().getHostName() + ":" + server.getPort()
+                + TileKey.PREFIX + " using " + (server.isVirtualThreads() ? "virtual threads" : "a thread pool"));
+    }
+}
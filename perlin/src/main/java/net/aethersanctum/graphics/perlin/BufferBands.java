@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes bands of a grid into a buffer, a row at a time.
+ */
+final class BufferBands implements GridBands {
+    private final ByteBuffer out;
+    private final int offset;
+    private final int sampleStride;
+    private final int rowStride;
+    private final int w;
+    private final SampleFormat format;
+    private final HeightQuantizer quantizer;
+
+    /**
+     * @param quantizer maps altitudes to {@link SampleFormat#UINT16} samples; only needed for that format
+     */
+    BufferBands(ByteBuffer out, int offset, int sampleStride, int rowStride, int w, SampleFormat format,
+                HeightQuantizer quantizer) {
+        this.out = out;
+        this.offset = offset;
+        this.sampleStride = sampleStride;
+        this.rowStride = rowStride;
+        this.w = w;
+        this.format = format;
+        this.quantizer = quantizer;
+    }
+
+    @Override
+    public void singles(int row, int rows, float[] values) {
+        for (int r = 0; r < rows; r++) {
+            int at = offset + (row + r) * rowStride;
+            final int from = r * w, to = from + w;
+            if (format == SampleFormat.UINT16) {
+                for (int i = from; i < to; i++, at += sampleStride) {
+                    out.putShort(at, (short) quantizer.quantize(values[i]));
+                }
+            } else {
+                for (int i = from; i < to; i++, at += sampleStride) {
+                    out.putFloat(at, values[i]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void doubles(int row, int rows, double[] values) {
+        for (int r = 0; r < rows; r++) {
+            int at = offset + (row + r) * rowStride;
+            for (int i = r * w, to = i + w; i < to; i++, at += sampleStride) {
+                out.putDouble(at, values[i]);
+            }
+        }
+    }
+}
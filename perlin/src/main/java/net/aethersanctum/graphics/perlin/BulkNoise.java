@@ -0,0 +1,30 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+/**
+ * A way of evaluating noise for many points in one call.
+ */
+interface BulkNoise {
+
+    /**
+     * Evaluate {@link PerlinNoise#noise2} for each of the first count points.
+     */
+    void noise2(PerlinNoise perlin, double[] xs, double[] ys, double[] out, int count);
+
+    /**
+     * Evaluate {@link PerlinNoise#noise3} for each of the first count points.
+     */
+    void noise3(PerlinNoise perlin, double[] xs, double[] ys, double[] zs, double[] out, int count);
+}
@@ -0,0 +1,28 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+/**
+ * Picks the bulk noise implementation for this JVM.
+ * <p>
+ * This is the Java 8 version, which only has the scalar kernel. The jar
+ * carries a Java 17 version of this class under {@code META-INF/versions/17}
+ * which tries the SIMD kernel first.
+ */
+final class BulkNoiseKernels {
+    static final BulkNoise BEST = new ScalarBulkNoise();
+
+    private BulkNoiseKernels() {
+    }
+}
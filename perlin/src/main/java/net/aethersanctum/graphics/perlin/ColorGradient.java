@@ -11,17 +11,27 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package net.aethersanctum.graphics.perlin.demo;
+package net.aethersanctum.graphics.perlin;
 
 import static net.aethersanctum.graphics.perlin.PerlinUtil.lerp;
 import static net.aethersanctum.graphics.perlin.PerlinUtil.sCurve;
 
 import java.awt.*;
 
-
+/**
+ * Blends smoothly between colours placed along 0 to 1.
+ * <p>
+ * The blend is worked out once into a table of packed ARGB values, so
+ * {@link #argbAt(double)} is a single array load; {@link #colorAt(double)}
+ * still computes the exact colour.
+ */
 class ColorGradient {
+    /** How many entries the lookup table has across 0 to 1. */
+    static final int TABLE_SIZE = 4096;
+
     private final Color[] gradientColors;
     private final double[] gradientPoints;
+    private final int[] table = new int[TABLE_SIZE];
 
     public ColorGradient(Color[] colors, double[] points) {
         if (colors.length != points.length) {
@@ -29,12 +39,28 @@ class ColorGradient {
         }
         this.gradientColors = colors;
         this.gradientPoints = points;
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            table[i] = colorAt((double) i / (TABLE_SIZE - 1)).getRGB();
+        }
     }
 
     public Color colorAt(double position) {
         return gradient(position, gradientColors, gradientPoints);
     }
 
+    /**
+     * @return the nearest tabulated colour, as packed ARGB
+     */
+    public int argbAt(double position) {
+        if (!(position > 0)) {
+            return table[0];
+        }
+        if (position >= 1) {
+            return table[TABLE_SIZE - 1];
+        }
+        return table[(int) (position * (TABLE_SIZE - 1) + 0.5)];
+    }
+
     private Color gradient(double position, Color first, Color second) {
         final int red = (int) (lerp(sCurve(position), first.getRed(), second.getRed()));
         final int green = (int) (lerp(sCurve(position), first.getGreen(), second.getGreen()));
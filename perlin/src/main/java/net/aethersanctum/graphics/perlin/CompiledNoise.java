@@ -0,0 +1,173 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A {@link NoiseModule} graph flattened into a straight list of
+ * operations over registers, each register holding a value for every
+ * point of a block.
+ * <p>
+ * Points are evaluated {@value #BLOCK_SIZE} at a time: each operation runs
+ * as one tight loop over the block, so there is one dispatch per operation
+ * per block rather than several virtual calls per node per point, and Perlin
+ * sources use {@link PerlinNoise#noise2(double[], double[], double[], int)}.
+ * Fractal sums are unrolled into one run of operations per octave.
+ * Registers are reused once their values are consumed, keeping the
+ * working set small.
+ * <p>
+ * The values are those {@link NoiseModule#value} gives. A compiled graph
+ * holds no mutable state; each call works in registers of its own.
+ */
+@ThreadSafe
+public final class CompiledNoise {
+    /**
+     * Points evaluated together.
+     */
+    public static final int BLOCK_SIZE = 256;
+
+    private static final int X = 0, Z = 1;
+
+    private final NoiseOp[] program;
+    private final int result;
+    private final int registers;
+
+    CompiledNoise(NoiseModule module) {
+        final Compiler compiler = new Compiler();
+        this.result = module.emit(compiler, X, Z);
+        this.program = compiler.program.toArray(new NoiseOp[0]);
+        this.registers = compiler.registers;
+    }
+
+    /**
+     * @return how many operations are run for each block of points
+     */
+    public int getOperationCount() {
+        return program.length;
+    }
+
+    /**
+     * @return how many registers, each of {@value #BLOCK_SIZE} values, evaluation uses
+     */
+    public int getRegisterCount() {
+        return registers;
+    }
+
+    /**
+     * Find the value for one point. Evaluating many points through
+     * {@link #evaluate} or {@link #fillGrid2} is much cheaper per point.
+     */
+    public double value(double x, double z) {
+        final double[][] regs = new double[registers][1];
+        regs[X][0] = x;
+        regs[Z][0] = z;
+        run(regs, 1);
+        return regs[result][0];
+    }
+
+    /**
+     * Evaluate many scattered points.
+     *
+     * @param xs x coordinates of the points
+     * @param zs z coordinates of the points
+     * @param out receives the value for each point
+     * @param count how many points to evaluate, from the start of each array
+     */
+    public void evaluate(double[] xs, double[] zs, double[] out, int count) {
+        PerlinNoise.checkBulk(count, xs, zs, out);
+        final double[][] regs = new double[registers][BLOCK_SIZE];
+        for (int start = 0; start < count; start += BLOCK_SIZE) {
+            final int n = Math.min(BLOCK_SIZE, count - start);
+            System.arraycopy(xs, start, regs[X], 0, n);
+            System.arraycopy(zs, start, regs[Z], 0, n);
+            run(regs, n);
+            System.arraycopy(regs[result], 0, out, start, n);
+        }
+    }
+
+    /**
+     * Fill a regular grid of points with the values at
+     * {@code (x0 + col * dx, z0 + row * dz)}.
+     *
+     * @param x0 x coordinate of the first column
+     * @param z0 z coordinate of the first row
+     * @param dx distance between columns
+     * @param dz distance between rows
+     * @param w number of columns
+     * @param h number of rows
+     * @param out receives the values in row-major order, {@code out[row * w + col]}
+     */
+    public void fillGrid2(double x0, double z0, double dx, double dz, int w, int h, double[] out) {
+        PerlinNoise.checkGrid(out.length, w, h, 1);
+        final double[][] regs = new double[registers][BLOCK_SIZE];
+        final double[] xs = regs[X], zs = regs[Z];
+        final int count = w * h;
+        for (int start = 0; start < count; start += BLOCK_SIZE) {
+            final int n = Math.min(BLOCK_SIZE, count - start);
+            int col = start % w, row = start / w;
+            for (int i = 0; i < n; i++) {
+                xs[i] = x0 + col * dx;
+                zs[i] = z0 + row * dz;
+                if (++col == w) {
+                    col = 0;
+                    row++;
+                }
+            }
+            run(regs, n);
+            System.arraycopy(regs[result], 0, out, start, n);
+        }
+    }
+
+    private void run(double[][] regs, int count) {
+        for (NoiseOp op : program) {
+            op.run(regs, count);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder text = new StringBuilder();
+        for (NoiseOp op : program) {
+            text.append(op).append('\n');
+        }
+        return text.append("result r").append(result).append('\n').toString();
+    }
+
+    /**
+     * Collects operations while a graph is emitted, handing out registers.
+     */
+    static final class Compiler {
+        private final List<NoiseOp> program = new ArrayList<>();
+        private final ArrayDeque<Integer> free = new ArrayDeque<>();
+        private int registers = 2;
+
+        void add(NoiseOp op) {
+            program.add(op);
+        }
+
+        int allocate() {
+            final Integer reg = free.poll();
+            return reg != null ? reg : registers++;
+        }
+
+        void release(int reg) {
+            free.push(reg);
+        }
+    }
+}
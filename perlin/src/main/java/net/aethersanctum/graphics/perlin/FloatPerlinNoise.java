@@ -0,0 +1,345 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import static net.aethersanctum.graphics.perlin.PerlinNoise.cell;
+import static net.aethersanctum.graphics.perlin.PerlinNoise.checkGrid;
+import static net.aethersanctum.graphics.perlin.PerlinTables.RANGE_MASK;
+import static net.aethersanctum.graphics.perlin.PerlinTables.RANGE_OFFSET;
+import static net.aethersanctum.graphics.perlin.PerlinUtil.lerp;
+import static net.aethersanctum.graphics.perlin.PerlinUtil.sCurve;
+
+import java.util.Random;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Single precision version of {@link PerlinNoise}, for heightmaps and
+ * textures which are stored as floats anyway and would rather not pay
+ * for doubles in memory and bandwidth.
+ * <p>
+ * Uses the same permutation and gradients as {@link PerlinNoise} with the
+ * same seed, so the landscape has the same shape; values differ only by
+ * float rounding. Lattice cells are found from the coordinates in double
+ * precision, so points far from the origin land in the same cell either way.
+ * <p>
+ * Like {@link PerlinNoise}, instances hold no mutable state and can be
+ * shared by any number of threads.
+ */
+@ThreadSafe
+public final class FloatPerlinNoise {
+    /**
+     * How far results may differ from those of {@link PerlinNoise} with the same seed.
+     */
+    public static final float DOUBLE_TOLERANCE = 1e-5f;
+
+    private final long seed;
+    private final int[] indices;
+    private final float[] seeds1d;
+    private final float[] seeds2d;
+    private final float[] seeds3d;
+
+    /**
+     * Create noise for a world picked at random.
+     */
+    public FloatPerlinNoise() {
+        this(new Random().nextLong());
+    }
+
+    /**
+     * Create noise for a particular world, the same world that
+     * {@code new PerlinNoise(seed)} gives.
+     * @param seed the world seed
+     */
+    public FloatPerlinNoise(long seed) {
+        this(PerlinTables.forSeed(seed));
+    }
+
+    FloatPerlinNoise(PerlinTables tables) {
+        this.seed = tables.seed;
+        this.indices = tables.indices;
+        this.seeds1d = tables.floatSeeds1d;
+        this.seeds2d = tables.floatSeeds2d;
+        this.seeds3d = tables.floatSeeds3d;
+    }
+
+    /**
+     * @return the seed this noise was created from
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return a noise value for a point in 1d space
+     */
+    public float noise1(float xArg) {
+        NoiseMetrics.sampled(1, 1);
+        final double tx = xArg + (double) RANGE_OFFSET;
+        final int bx0 = cell(tx),
+                bx1 = (bx0 + 1) & RANGE_MASK;
+        final float rx0 = fraction(tx),
+                rx1 = rx0 - 1.0f;
+
+        final float sx = sCurve(rx0),
+                u = rx0 * seeds1d[indices[bx0]],
+                v = rx1 * seeds1d[indices[bx1]];
+        return lerp(sx, u, v);
+    }
+
+    /**
+     * @return a noise value for a point in 2d space
+     */
+    public float noise2(float xArg, float yArg) {
+        NoiseMetrics.sampled(2, 1);
+        final double tx = xArg + (double) RANGE_OFFSET,
+                ty = yArg + (double) RANGE_OFFSET;
+        final int bx0 = cell(tx),
+                bx1 = (bx0 + 1) & RANGE_MASK,
+                by0 = cell(ty),
+                by1 = (by0 + 1) & RANGE_MASK;
+        final float rx0 = fraction(tx),
+                rx1 = rx0 - 1.0f,
+                ry0 = fraction(ty),
+                ry1 = ry0 - 1.0f;
+
+        final int i = indices[bx0],
+                j = indices[bx1],
+                b00 = indices[i + by0],
+                b10 = indices[j + by0],
+                b01 = indices[i + by1],
+                b11 = indices[j + by1];
+
+        final float sx = sCurve(rx0),
+                sy = sCurve(ry0),
+                a = lerp(sx, dotProduct2d(seeds2d, b00, rx0, ry0), dotProduct2d(seeds2d, b10, rx1, ry0)),
+                b = lerp(sx, dotProduct2d(seeds2d, b01, rx0, ry1), dotProduct2d(seeds2d, b11, rx1, ry1));
+
+        return lerp(sy, a, b);
+    }
+
+    /**
+     * @return a noise value for a point in 3d space
+     */
+    public float noise3(float xArg, float yArg, float zArg) {
+        NoiseMetrics.sampled(3, 1);
+        final double tx = xArg + (double) RANGE_OFFSET,
+                ty = yArg + (double) RANGE_OFFSET,
+                tz = zArg + (double) RANGE_OFFSET;
+        final int bx0 = cell(tx),
+                bx1 = (bx0 + 1) & RANGE_MASK,
+                by0 = cell(ty),
+                by1 = (by0 + 1) & RANGE_MASK,
+                bz0 = cell(tz),
+                bz1 = (bz0 + 1) & RANGE_MASK;
+        final float rx0 = fraction(tx),
+                rx1 = rx0 - 1.0f,
+                ry0 = fraction(ty),
+                ry1 = ry0 - 1.0f,
+                rz0 = fraction(tz),
+                rz1 = rz0 - 1.0f;
+
+        final int i = indices[bx0],
+                j = indices[bx1],
+                b00 = indices[i + by0],
+                b10 = indices[j + by0],
+                b01 = indices[i + by1],
+                b11 = indices[j + by1];
+
+        final float t = sCurve(rx0),
+                sy = sCurve(ry0),
+                sz = sCurve(rz0),
+                a1 = lerp(t, dotProduct3d(seeds3d, b00 + bz0, rx0, ry0, rz0), dotProduct3d(seeds3d, b10 + bz0, rx1, ry0, rz0)),
+                b1 = lerp(t, dotProduct3d(seeds3d, b01 + bz0, rx0, ry1, rz0), dotProduct3d(seeds3d, b11 + bz0, rx1, ry1, rz0)),
+                a2 = lerp(t, dotProduct3d(seeds3d, b00 + bz1, rx0, ry0, rz1), dotProduct3d(seeds3d, b10 + bz1, rx1, ry0, rz1)),
+                b2 = lerp(t, dotProduct3d(seeds3d, b01 + bz1, rx0, ry1, rz1), dotProduct3d(seeds3d, b11 + bz1, rx1, ry1, rz1));
+
+        return lerp(sz, lerp(sy, a1, b1), lerp(sy, a2, b2));
+    }
+
+    /**
+     * Fill a regular grid of points in 2d space with noise values, like
+     * {@link PerlinNoise#fillGrid2} but into a float array. The grid
+     * position is given in double precision, so tiles far from the origin
+     * still line up exactly with their neighbours.
+     *
+     * @param x0 x coordinate of the first column
+     * @param y0 y coordinate of the first row
+     * @param dx distance between columns
+     * @param dy distance between rows
+     * @param w number of columns
+     * @param h number of rows
+     * @param out receives the values in row-major order, {@code out[row * w + col]}
+     */
+    public void fillGrid2(double x0, double y0, double dx, double dy, int w, int h, float[] out) {
+        fillGrid2(x0, y0, dx, dy, 0, 0, w, h, out, 0, w);
+    }
+
+    /**
+     * Fill part of a larger grid of points in 2d space with noise values.
+     * <p>
+     * The larger grid starts at {@code (x0, y0)}; this fills the {@code w} by
+     * {@code h} block of it whose first column and row are {@code col0} and
+     * {@code row0}. Each point is placed at {@code (x0 + (col0 + col) * dx, ...)},
+     * so filling a grid in blocks gives exactly the values a single call
+     * for the whole grid would.
+     *
+     * @param x0 x coordinate of the first column of the larger grid
+     * @param y0 y coordinate of the first row of the larger grid
+     * @param dx distance between columns
+     * @param dy distance between rows
+     * @param col0 first column of the block to fill
+     * @param row0 first row of the block to fill
+     * @param w number of columns in the block
+     * @param h number of rows in the block
+     * @param out receives the values, {@code out[offset + row * stride + col]}
+     * @param offset where in out the block's first value goes
+     * @param stride distance in out between the starts of consecutive rows
+     */
+    public void fillGrid2(double x0, double y0, double dx, double dy, int col0, int row0, int w, int h,
+                          float[] out, int offset, int stride) {
+        checkGrid(out.length, offset, stride, w, h);
+        NoiseMetrics.sampled(2, (long) w * h);
+        final int[] colI = new int[w],
+                colJ = new int[w];
+        final float[] colR = new float[w],
+                colS = new float[w];
+        for (int col = 0; col < w; col++) {
+            final double tx = x0 + (col0 + col) * dx + RANGE_OFFSET;
+            final int bx0 = cell(tx);
+            colI[col] = indices[bx0];
+            colJ[col] = indices[(bx0 + 1) & RANGE_MASK];
+            colR[col] = fraction(tx);
+            colS[col] = sCurve(colR[col]);
+        }
+        for (int row = 0; row < h; row++) {
+            final double ty = y0 + (row0 + row) * dy + RANGE_OFFSET;
+            final int by0 = cell(ty),
+                    by1 = (by0 + 1) & RANGE_MASK;
+            final float ry0 = fraction(ty),
+                    ry1 = ry0 - 1.0f,
+                    sy = sCurve(ry0);
+            final int at = offset + row * stride;
+            for (int col = 0; col < w; col++) {
+                final int i = colI[col],
+                        j = colJ[col],
+                        b00 = indices[i + by0],
+                        b10 = indices[j + by0],
+                        b01 = indices[i + by1],
+                        b11 = indices[j + by1];
+                final float rx0 = colR[col],
+                        rx1 = rx0 - 1.0f,
+                        sx = colS[col],
+                        a = lerp(sx, dotProduct2d(seeds2d, b00, rx0, ry0), dotProduct2d(seeds2d, b10, rx1, ry0)),
+                        b = lerp(sx, dotProduct2d(seeds2d, b01, rx0, ry1), dotProduct2d(seeds2d, b11, rx1, ry1));
+                out[at + col] = lerp(sy, a, b);
+            }
+        }
+    }
+
+    /**
+     * Fill a regular grid of points in 3d space with noise values, like
+     * {@link PerlinNoise#fillGrid3} but into a float array.
+     *
+     * @param x0 x coordinate of the first column
+     * @param y0 y coordinate of the first row
+     * @param z0 z coordinate of the first slice
+     * @param dx distance between columns
+     * @param dy distance between rows
+     * @param dz distance between slices
+     * @param w number of columns
+     * @param h number of rows
+     * @param d number of slices
+     * @param out receives the values, {@code out[(slice * h + row) * w + col]}
+     */
+    public void fillGrid3(double x0, double y0, double z0, double dx, double dy, double dz,
+                          int w, int h, int d, float[] out) {
+        checkGrid(out.length, w, h, d);
+        NoiseMetrics.sampled(3, (long) w * h * d);
+        final int[] colI = new int[w],
+                colJ = new int[w],
+                rowB0 = new int[h],
+                rowB1 = new int[h];
+        final float[] colR = new float[w],
+                colS = new float[w],
+                rowR = new float[h],
+                rowS = new float[h];
+        for (int col = 0; col < w; col++) {
+            final double tx = x0 + col * dx + RANGE_OFFSET;
+            final int bx0 = cell(tx);
+            colI[col] = indices[bx0];
+            colJ[col] = indices[(bx0 + 1) & RANGE_MASK];
+            colR[col] = fraction(tx);
+            colS[col] = sCurve(colR[col]);
+        }
+        for (int row = 0; row < h; row++) {
+            final double ty = y0 + row * dy + RANGE_OFFSET;
+            rowB0[row] = cell(ty);
+            rowB1[row] = (rowB0[row] + 1) & RANGE_MASK;
+            rowR[row] = fraction(ty);
+            rowS[row] = sCurve(rowR[row]);
+        }
+        int at = 0;
+        for (int slice = 0; slice < d; slice++) {
+            final double tz = z0 + slice * dz + RANGE_OFFSET;
+            final int bz0 = cell(tz),
+                    bz1 = (bz0 + 1) & RANGE_MASK;
+            final float rz0 = fraction(tz),
+                    rz1 = rz0 - 1.0f,
+                    sz = sCurve(rz0);
+            for (int row = 0; row < h; row++) {
+                final int by0 = rowB0[row],
+                        by1 = rowB1[row];
+                final float ry0 = rowR[row],
+                        ry1 = ry0 - 1.0f,
+                        sy = rowS[row];
+                for (int col = 0; col < w; col++) {
+                    final int i = colI[col],
+                            j = colJ[col],
+                            b00 = indices[i + by0],
+                            b10 = indices[j + by0],
+                            b01 = indices[i + by1],
+                            b11 = indices[j + by1];
+                    final float rx0 = colR[col],
+                            rx1 = rx0 - 1.0f,
+                            t = colS[col],
+                            a1 = lerp(t, dotProduct3d(seeds3d, b00 + bz0, rx0, ry0, rz0), dotProduct3d(seeds3d, b10 + bz0, rx1, ry0, rz0)),
+                            b1 = lerp(t, dotProduct3d(seeds3d, b01 + bz0, rx0, ry1, rz0), dotProduct3d(seeds3d, b11 + bz0, rx1, ry1, rz0)),
+                            a2 = lerp(t, dotProduct3d(seeds3d, b00 + bz1, rx0, ry0, rz1), dotProduct3d(seeds3d, b10 + bz1, rx1, ry0, rz1)),
+                            b2 = lerp(t, dotProduct3d(seeds3d, b01 + bz1, rx0, ry1, rz1), dotProduct3d(seeds3d, b11 + bz1, rx1, ry1, rz1));
+                    out[at++] = lerp(sz, lerp(sy, a1, b1), lerp(sy, a2, b2));
+                }
+            }
+        }
+    }
+
+    /**
+     * Find how far into its lattice cell a coordinate lies, rounded to float.
+     * @param t the coordinate, already shifted by RANGE_OFFSET
+     * @return distance from the cell's lower corner, from 0.0 to 1.0
+     */
+    private static float fraction(double t) {
+        return (float) (t - (int) t);
+    }
+
+    private static float dotProduct2d(float[] q, int slot, float rx, float ry) {
+        final int at = slot << 1;
+        return rx * q[at] + ry * q[at + 1];
+    }
+
+    private static float dotProduct3d(float[] q, int slot, float rx, float ry, float rz) {
+        final int at = slot * 3;
+        return rx * q[at] + ry * q[at + 1] + rz * q[at + 2];
+    }
+}
@@ -13,16 +13,120 @@
  */
 package net.aethersanctum.graphics.perlin;
 
-import javax.annotation.concurrent.NotThreadSafe;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import javax.annotation.concurrent.ThreadSafe;
 
 /**
- * Use accumulations of Perlin noise at various scales to produce
+ * Use accumulations of coherent noise at various scales to produce
  * crinkly surfaces which look like landscapes.
+ * <p>
+ * Each octave samples the noise at {@code lacunarity} times the frequency
+ * of the one before, with {@code gain} times its amplitude. The defaults,
+ * seven octaves starting at frequency 0.5 and amplitude 128, each twice
+ * the frequency and half the amplitude of the last, can be changed with
+ * {@link #builder()}.
+ * <p>
+ * Octaves whose features are smaller than the area a sample stands for
+ * (a pixel, or the gap between mesh vertices) only add aliasing, so the
+ * sampling methods which take a footprint fade such octaves out and skip
+ * them entirely once they are finer than half the footprint. The first
+ * octave is always kept.
+ * <p>
+ * Sums {@link PerlinNoise} unless given another {@link NoiseEngine}, such
+ * as {@link SimplexNoise}.
+ * <p>
+ * Safe to share between threads, as the underlying noise is.
  */
-@NotThreadSafe
+@ThreadSafe
 public class FractalNoise {
 
-    private final PerlinNoise perlin = new PerlinNoise();
+    private final NoiseEngine noise;
+    private final int octaves;
+    private final double frequency;
+    private final double lacunarity;
+    private final double amplitude;
+    private final double gain;
+    private final double smoothBottomExponent;
+
+    /**
+     * Create a landscape for a world picked at random.
+     */
+    public FractalNoise() {
+        this(new PerlinNoise());
+    }
+
+    /**
+     * Create the landscape for a particular world.
+     * @param seed the world seed
+     */
+    public FractalNoise(long seed) {
+        this(new PerlinNoise(seed));
+    }
+
+    /**
+     * Create a landscape from existing noise.
+     * @param noise the noise to accumulate, such as {@link PerlinNoise} or {@link SimplexNoise}
+     */
+    public FractalNoise(NoiseEngine noise) {
+        this(builder().noise(noise));
+    }
+
+    private FractalNoise(Builder builder) {
+        this.noise = builder.noise != null ? builder.noise : new PerlinNoise(builder.seed);
+        this.octaves = builder.octaves;
+        this.frequency = builder.frequency;
+        this.lacunarity = builder.lacunarity;
+        this.amplitude = builder.amplitude;
+        this.gain = builder.gain;
+        this.smoothBottomExponent = builder.smoothBottomExponent;
+    }
+
+    /**
+     * @return a builder for a landscape with other than the default octaves
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the seed of the underlying noise
+     */
+    public long getSeed() {
+        return noise.getSeed();
+    }
+
+    /**
+     * @return the most octaves summed for a point
+     */
+    public int getOctaves() {
+        return octaves;
+    }
+
+    /**
+     * @return frequency of the first, coarsest octave
+     */
+    double getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Find how many octaves contribute to samples standing for a given area.
+     * @param footprint width of the area a sample stands for, in the same
+     *                  units as the coordinates; 0 for a single point
+     * @return number of octaves evaluated, including any being faded out
+     */
+    public int octavesFor(double footprint) {
+        double ascale = frequency;
+        for (int round = 0; round < octaves; round ++) {
+            if (octaveWeight(round, ascale, footprint) == 0) {
+                return round;
+            }
+            ascale *= lacunarity;
+        }
+        return octaves;
+    }
 
     /**
      * Generate landscape elevations for points in a plane.
@@ -31,15 +135,33 @@ public class FractalNoise {
      * @return the altitude of a point at (ix, iz)
      */
     public double fractalNoise(double ix, double iz) {
-        double amp = 128;
-        double ascale = 0.5;
+        return fractalNoise(ix, iz, 0);
+    }
+
+    /**
+     * Generate landscape elevations for samples standing for an area,
+     * leaving out the octaves too fine to show at that size.
+     * @param ix east-west coordinate
+     * @param iz north-south coordinate
+     * @param footprint width of the area the sample stands for
+     * @return the altitude of a point at (ix, iz)
+     */
+    public double fractalNoise(double ix, double iz, double footprint) {
+        double amp = amplitude;
+        double ascale = frequency;
         double size = 0;
-        int max_rounds = 7;
-        for (int round = 0; round < max_rounds; round ++) {
-            size += amp * perlin.noise2(ascale * ix, ascale * iz);
-            amp *= 0.5;
-            ascale *= 2;
+        int summed = 0;
+        for (int round = 0; round < octaves; round ++) {
+            final double weight = octaveWeight(round, ascale, footprint);
+            if (weight == 0) {
+                break;
+            }
+            summed++;
+            size += weight * amp * noise.noise2(ascale * ix, ascale * iz);
+            amp *= gain;
+            ascale *= lacunarity;
         }
+        NoiseMetrics.octaves(summed);
         return size;
     }
 
@@ -52,17 +174,785 @@ public class FractalNoise {
      * @return the altitude of a point at (ix, iz)
      */
     public double fractalNoiseSmoothBottom(double ix, double iz) {
-        double amp = 128;
-        double ascale = 0.5;
+        return fractalNoiseSmoothBottom(ix, iz, 0);
+    }
+
+    /**
+     * Smooth bottomed landscape elevations for samples standing for an area,
+     * leaving out the octaves too fine to show at that size.
+     *
+     * @param ix east-west coordinate
+     * @param iz north-south coordinate
+     * @param footprint width of the area the sample stands for
+     * @return the altitude of a point at (ix, iz)
+     */
+    public double fractalNoiseSmoothBottom(double ix, double iz, double footprint) {
+        double amp = amplitude;
+        double ascale = frequency;
+        double size = 0;
+        int summed = 0;
+        for (int round = 0; round < octaves; round ++) {
+            final double weight = octaveWeight(round, ascale, footprint);
+            if (weight == 0) {
+                break;
+            }
+            summed++;
+            double part = noise.noise2(ascale * ix, ascale * iz);
+            double atten = Math.pow((part + 1) / 2, smoothBottomExponent);
+            size += weight * amp * part;
+            amp *= gain * atten;
+            ascale *= lacunarity;
+        }
+        NoiseMetrics.octaves(summed);
+        return size;
+    }
+
+    /**
+     * Find the landscape altitude at a point together with its slope.
+     * @param ix east-west coordinate
+     * @param iz north-south coordinate
+     * @param out receives the altitude, then its partial derivatives along x and z
+     * @return the altitude, exactly as {@link #fractalNoise(double, double)} gives it
+     */
+    public double fractalNoiseWithGradient(double ix, double iz, double[] out) {
+        return fractalNoiseWithGradient(ix, iz, 0, out);
+    }
+
+    /**
+     * Find the landscape altitude and slope for a sample standing for an
+     * area, leaving out the octaves too fine to show at that size.
+     * @param ix east-west coordinate
+     * @param iz north-south coordinate
+     * @param footprint width of the area the sample stands for
+     * @param out receives the altitude, then its partial derivatives along x and z
+     * @return the altitude, exactly as {@link #fractalNoise(double, double, double)} gives it
+     */
+    public double fractalNoiseWithGradient(double ix, double iz, double footprint, double[] out) {
+        double amp = amplitude;
+        double ascale = frequency;
+        double size = 0, sizeDx = 0, sizeDz = 0;
+        int summed = 0;
+        for (int round = 0; round < octaves; round ++) {
+            final double weight = octaveWeight(round, ascale, footprint);
+            if (weight == 0) {
+                break;
+            }
+            summed++;
+            final double part = noise.noise2WithGradient(ascale * ix, ascale * iz, out);
+            size += weight * amp * part;
+            sizeDx += weight * amp * ascale * out[1];
+            sizeDz += weight * amp * ascale * out[2];
+            amp *= gain;
+            ascale *= lacunarity;
+        }
+        NoiseMetrics.octaves(summed);
+        out[0] = size;
+        out[1] = sizeDx;
+        out[2] = sizeDz;
+        return size;
+    }
+
+    /**
+     * Find the smooth bottomed landscape altitude at a point together with its slope.
+     * @param ix east-west coordinate
+     * @param iz north-south coordinate
+     * @param out receives the altitude, then its partial derivatives along x and z
+     * @return the altitude, exactly as {@link #fractalNoiseSmoothBottom(double, double)} gives it
+     */
+    public double fractalNoiseSmoothBottomWithGradient(double ix, double iz, double[] out) {
+        return fractalNoiseSmoothBottomWithGradient(ix, iz, 0, out);
+    }
+
+    /**
+     * Find the smooth bottomed landscape altitude and slope for a sample
+     * standing for an area, leaving out the octaves too fine to show at that size.
+     * <p>
+     * Each octave's amplitude depends on the octaves before it, so the slope
+     * follows how the amplitude changes too, not just each octave's own slope.
+     *
+     * @param ix east-west coordinate
+     * @param iz north-south coordinate
+     * @param footprint width of the area the sample stands for
+     * @param out receives the altitude, then its partial derivatives along x and z
+     * @return the altitude, exactly as {@link #fractalNoiseSmoothBottom(double, double, double)} gives it
+     */
+    public double fractalNoiseSmoothBottomWithGradient(double ix, double iz, double footprint, double[] out) {
+        double amp = amplitude, ampDx = 0, ampDz = 0;
+        double ascale = frequency;
+        double size = 0, sizeDx = 0, sizeDz = 0;
+        int summed = 0;
+        for (int round = 0; round < octaves; round ++) {
+            final double weight = octaveWeight(round, ascale, footprint);
+            if (weight == 0) {
+                break;
+            }
+            summed++;
+            double part = noise.noise2WithGradient(ascale * ix, ascale * iz, out);
+            final double partDx = ascale * out[1],
+                    partDz = ascale * out[2],
+                    base = (part + 1) / 2;
+            double atten = Math.pow(base, smoothBottomExponent);
+            final double attenSlope = base > 0 ? 0.5 * smoothBottomExponent * atten / base : 0;
+            size += weight * amp * part;
+            sizeDx += weight * (ampDx * part + amp * partDx);
+            sizeDz += weight * (ampDz * part + amp * partDz);
+            ampDx = gain * (ampDx * atten + amp * attenSlope * partDx);
+            ampDz = gain * (ampDz * atten + amp * attenSlope * partDz);
+            amp *= gain * atten;
+            ascale *= lacunarity;
+        }
+        NoiseMetrics.octaves(summed);
+        out[0] = size;
+        out[1] = sizeDx;
+        out[2] = sizeDz;
+        return size;
+    }
+
+    /**
+     * Generate landscape elevations which repeat every {@code periodX} units
+     * east-west and {@code periodZ} north-south, so a tile covering one
+     * period wraps without a seam.
+     * <p>
+     * Every octave must fit a whole number of lattice cells into the period,
+     * so the period times the frequency must be a whole number and the
+     * lacunarity should be too; with the defaults any even period will do.
+     * Needs {@link PerlinNoise} underneath.
+     *
+     * @param ix east-west coordinate
+     * @param iz north-south coordinate
+     * @param periodX distance east-west before the landscape repeats
+     * @param periodZ distance north-south before the landscape repeats
+     * @return the altitude of a point at (ix, iz)
+     * @throws IllegalArgumentException if an octave doesn't fit the period
+     * @throws UnsupportedOperationException if the noise isn't Perlin noise
+     */
+    public double fractalNoisePeriodic(double ix, double iz, double periodX, double periodZ) {
+        final PerlinNoise perlin = periodicNoise();
+        double amp = amplitude;
+        double ascale = frequency;
+        double size = 0;
+        for (int round = 0; round < octaves; round ++) {
+            size += amp * perlin.noise2(ascale * ix, ascale * iz, cells(periodX, ascale), cells(periodZ, ascale));
+            amp *= gain;
+            ascale *= lacunarity;
+        }
+        NoiseMetrics.octaves(octaves);
+        return size;
+    }
+
+    /**
+     * Smooth bottomed landscape elevations which repeat, as
+     * {@link #fractalNoisePeriodic} describes.
+     *
+     * @param ix east-west coordinate
+     * @param iz north-south coordinate
+     * @param periodX distance east-west before the landscape repeats
+     * @param periodZ distance north-south before the landscape repeats
+     * @return the altitude of a point at (ix, iz)
+     * @throws IllegalArgumentException if an octave doesn't fit the period
+     * @throws UnsupportedOperationException if the noise isn't Perlin noise
+     */
+    public double fractalNoiseSmoothBottomPeriodic(double ix, double iz, double periodX, double periodZ) {
+        final PerlinNoise perlin = periodicNoise();
+        double amp = amplitude;
+        double ascale = frequency;
         double size = 0;
-        int max_rounds = 7;
-        for (int round = 0; round < max_rounds; round ++) {
-            double part = perlin.noise2(ascale * ix, ascale * iz);
-            double atten = Math.pow((part + 1) / 2, 0.25);
+        for (int round = 0; round < octaves; round ++) {
+            final double part = perlin.noise2(ascale * ix, ascale * iz, cells(periodX, ascale), cells(periodZ, ascale));
+            final double atten = Math.pow((part + 1) / 2, smoothBottomExponent);
             size += amp * part;
-            amp *= 0.5 * atten;
-            ascale *= 2;
+            amp *= gain * atten;
+            ascale *= lacunarity;
         }
+        NoiseMetrics.octaves(octaves);
         return size;
     }
+
+    /**
+     * Fill a regular grid of points in the plane with landscape elevations.
+     * Equivalent to calling {@link #fractalNoise} at every
+     * {@code (x0 + col * dx, z0 + row * dz)}, but each octave is evaluated
+     * for the whole grid at once.
+     *
+     * @param x0 east-west coordinate of the first column
+     * @param z0 north-south coordinate of the first row
+     * @param dx distance between columns
+     * @param dz distance between rows
+     * @param w number of columns
+     * @param h number of rows
+     * @param out receives the altitudes in row-major order, {@code out[row * w + col]}
+     */
+    public void fillGrid2(double x0, double z0, double dx, double dz, int w, int h, double[] out) {
+        PerlinNoise.checkGrid(out.length, w, h, 1);
+        final int count = w * h;
+        final double[] part = new double[count];
+        Arrays.fill(out, 0, count, 0.0);
+        double amp = amplitude;
+        double ascale = frequency;
+        for (int round = 0; round < octaves; round ++) {
+            NoiseMetrics.octaves(count);
+            noise.fillGrid2(ascale * x0, ascale * z0, ascale * dx, ascale * dz, w, h, part);
+            for (int i = 0; i < count; i++) {
+                out[i] += amp * part[i];
+            }
+            amp *= gain;
+            ascale *= lacunarity;
+        }
+    }
+
+    /**
+     * Fill a regular grid of points in the plane with landscape elevations,
+     * the same as {@link #fractalNoiseSmoothBottom} would give for each point.
+     *
+     * @param x0 east-west coordinate of the first column
+     * @param z0 north-south coordinate of the first row
+     * @param dx distance between columns
+     * @param dz distance between rows
+     * @param w number of columns
+     * @param h number of rows
+     * @param out receives the altitudes in row-major order, {@code out[row * w + col]}
+     */
+    public void fillGridSmoothBottom2(double x0, double z0, double dx, double dz, int w, int h, double[] out) {
+        PerlinNoise.checkGrid(out.length, w, h, 1);
+        final int count = w * h;
+        final double[] part = new double[count];
+        final double[] amp = new double[count];
+        Arrays.fill(out, 0, count, 0.0);
+        Arrays.fill(amp, amplitude);
+        double ascale = frequency;
+        for (int round = 0; round < octaves; round ++) {
+            NoiseMetrics.octaves(count);
+            noise.fillGrid2(ascale * x0, ascale * z0, ascale * dx, ascale * dz, w, h, part);
+            for (int i = 0; i < count; i++) {
+                final double atten = Math.pow((part[i] + 1) / 2, smoothBottomExponent);
+                out[i] += amp[i] * part[i];
+                amp[i] *= gain * atten;
+            }
+            ascale *= lacunarity;
+        }
+    }
+
+    /**
+     * Fill a regular grid of points in the plane with landscape elevations
+     * in single precision. Same landscape as
+     * {@link #fillGrid2(double, double, double, double, int, int, double[])},
+     * using half the memory.
+     *
+     * @param x0 east-west coordinate of the first column
+     * @param z0 north-south coordinate of the first row
+     * @param dx distance between columns
+     * @param dz distance between rows
+     * @param w number of columns
+     * @param h number of rows
+     * @param out receives the altitudes in row-major order, {@code out[row * w + col]}
+     */
+    public void fillGrid2(double x0, double z0, double dx, double dz, int w, int h, float[] out) {
+        fillGrid2(x0, z0, dx, dz, 0, 0, w, h, out, 0, w);
+    }
+
+    /**
+     * Fill a block of a larger grid with landscape elevations in single
+     * precision. The block's values are exactly those a single
+     * {@link #fillGrid2(double, double, double, double, int, int, float[])}
+     * call for the whole grid would give, so a grid can be built in blocks
+     * on any number of threads with identical results.
+     *
+     * @param x0 east-west coordinate of the first column of the larger grid
+     * @param z0 north-south coordinate of the first row of the larger grid
+     * @param dx distance between columns
+     * @param dz distance between rows
+     * @param col0 first column of the block to fill
+     * @param row0 first row of the block to fill
+     * @param w number of columns in the block
+     * @param h number of rows in the block
+     * @param out receives the altitudes, {@code out[offset + row * stride + col]}
+     * @param offset where in out the block's first value goes
+     * @param stride distance in out between the starts of consecutive rows
+     */
+    public void fillGrid2(double x0, double z0, double dx, double dz, int col0, int row0, int w, int h,
+                          float[] out, int offset, int stride) {
+        fillGrid2(x0, z0, dx, dz, col0, row0, w, h, out, offset, stride, 0);
+    }
+
+    /**
+     * Fill a block of a larger grid with landscape elevations in single
+     * precision, leaving out octaves too fine to show at a given footprint,
+     * such as the spacing of a coarse level of detail.
+     *
+     * @param x0 east-west coordinate of the first column of the larger grid
+     * @param z0 north-south coordinate of the first row of the larger grid
+     * @param dx distance between columns
+     * @param dz distance between rows
+     * @param col0 first column of the block to fill
+     * @param row0 first row of the block to fill
+     * @param w number of columns in the block
+     * @param h number of rows in the block
+     * @param out receives the altitudes, {@code out[offset + row * stride + col]}
+     * @param offset where in out the block's first value goes
+     * @param stride distance in out between the starts of consecutive rows
+     * @param footprint width of the area each sample stands for
+     */
+    public void fillGrid2(double x0, double z0, double dx, double dz, int col0, int row0, int w, int h,
+                          float[] out, int offset, int stride, double footprint) {
+        PerlinNoise.checkGrid(out.length, offset, stride, w, h);
+        final float[] part = new float[w * h];
+        for (int row = 0; row < h; row++) {
+            Arrays.fill(out, offset + row * stride, offset + row * stride + w, 0.0f);
+        }
+        double amp = amplitude;
+        double ascale = frequency;
+        for (int round = 0; round < octaves; round ++) {
+            final double weight = octaveWeight(round, ascale, footprint);
+            if (weight == 0) {
+                break;
+            }
+            NoiseMetrics.octaves((long) w * h);
+            final float octaveAmp = (float) (weight * amp);
+            noise.fillGrid2(ascale * x0, ascale * z0, ascale * dx, ascale * dz, col0, row0, w, h, part, 0, w);
+            for (int row = 0; row < h; row++) {
+                final int at = offset + row * stride;
+                for (int col = 0, i = row * w; col < w; col++, i++) {
+                    out[at + col] += octaveAmp * part[i];
+                }
+            }
+            amp *= gain;
+            ascale *= lacunarity;
+        }
+    }
+
+    /**
+     * Fill a block of a larger grid with landscape elevations straight into
+     * a buffer, such as a direct buffer to be handed to native code or
+     * uploaded to a GPU, without building the block in an array first.
+     * <p>
+     * The block is computed a band of rows at a time, so only a band's
+     * worth of scratch space is used however large the block. Samples are
+     * written in the buffer's byte order, at absolute positions, leaving its
+     * position alone. {@link SampleFormat#FLOAT32} samples are exactly those of
+     * {@link #fillGrid2(double, double, double, double, int, int, int, int, float[], int, int)},
+     * and {@link SampleFormat#UINT16} ones are those quantized by
+     * {@link HeightQuantizer#forLandscape} for this landscape;
+     * {@link SampleFormat#FLOAT64} ones agree with
+     * {@link #fillGrid2(double, double, double, double, int, int, double[])}
+     * to within rounding of the coordinates.
+     *
+     * @param x0 east-west coordinate of the first column of the larger grid
+     * @param z0 north-south coordinate of the first row of the larger grid
+     * @param dx distance between columns
+     * @param dz distance between rows
+     * @param col0 first column of the block to fill
+     * @param row0 first row of the block to fill
+     * @param w number of columns in the block
+     * @param h number of rows in the block
+     * @param out receives the samples; the sample for a row and column of the
+     *            block starts at byte {@code offset + row * stride + col * format.getBytes()}
+     * @param offset where in out the block's first sample goes, in bytes
+     * @param stride distance in out between the starts of consecutive rows, in bytes
+     * @param format how each sample is written
+     */
+    public void fillGrid2(double x0, double z0, double dx, double dz, int col0, int row0, int w, int h,
+                          ByteBuffer out, int offset, int stride, SampleFormat format) {
+        fillGrid2(x0, z0, dx, dz, col0, row0, w, h, out, offset, format.getBytes(), stride, format);
+    }
+
+    /**
+     * Fill a block of a larger grid with landscape elevations straight into
+     * a buffer whose samples are spread out, such as the height field of an
+     * interleaved vertex buffer, leaving the bytes between them alone.
+     * Otherwise as
+     * {@link #fillGrid2(double, double, double, double, int, int, int, int, ByteBuffer, int, int, SampleFormat)}.
+     *
+     * @param x0 east-west coordinate of the first column of the larger grid
+     * @param z0 north-south coordinate of the first row of the larger grid
+     * @param dx distance between columns
+     * @param dz distance between rows
+     * @param col0 first column of the block to fill
+     * @param row0 first row of the block to fill
+     * @param w number of columns in the block
+     * @param h number of rows in the block
+     * @param out receives the samples; the sample for a row and column of the
+     *            block starts at byte {@code offset + row * rowStride + col * sampleStride}
+     * @param offset where in out the block's first sample goes, in bytes
+     * @param sampleStride distance in out between the starts of consecutive samples in a row, in bytes
+     * @param rowStride distance in out between the starts of consecutive rows, in bytes
+     * @param format how each sample is written
+     */
+    public void fillGrid2(double x0, double z0, double dx, double dz, int col0, int row0, int w, int h,
+                          ByteBuffer out, int offset, int sampleStride, int rowStride, SampleFormat format) {
+        GridFills.intoBuffer(this, x0, z0, dx, dz, col0, row0, w, h, out, offset, sampleStride, rowStride, format);
+    }
+
+    /**
+     * Single precision version of
+     * {@link #fillGridSmoothBottom2(double, double, double, double, int, int, double[])}.
+     *
+     * @param x0 east-west coordinate of the first column
+     * @param z0 north-south coordinate of the first row
+     * @param dx distance between columns
+     * @param dz distance between rows
+     * @param w number of columns
+     * @param h number of rows
+     * @param out receives the altitudes in row-major order, {@code out[row * w + col]}
+     */
+    public void fillGridSmoothBottom2(double x0, double z0, double dx, double dz, int w, int h, float[] out) {
+        PerlinNoise.checkGrid(out.length, w, h, 1);
+        final int count = w * h;
+        final float[] part = new float[count];
+        final float[] amp = new float[count];
+        final float floatGain = (float) gain;
+        Arrays.fill(out, 0, count, 0.0f);
+        Arrays.fill(amp, (float) amplitude);
+        double ascale = frequency;
+        for (int round = 0; round < octaves; round ++) {
+            NoiseMetrics.octaves(count);
+            noise.fillGrid2(ascale * x0, ascale * z0, ascale * dx, ascale * dz, w, h, part);
+            for (int i = 0; i < count; i++) {
+                final float atten = (float) Math.pow((part[i] + 1) / 2, smoothBottomExponent);
+                out[i] += amp[i] * part[i];
+                amp[i] *= floatGain * atten;
+            }
+            ascale *= lacunarity;
+        }
+    }
+
+    /**
+     * Bake a tile of landscape elevations which wraps without a seam: the
+     * tile covers exactly one period, {@code w} columns across
+     * {@code periodX} and {@code h} rows across {@code periodZ}, starting at
+     * the origin. Values are those {@link #fractalNoisePeriodic} gives at
+     * {@code (col * periodX / w, row * periodZ / h)}, in single precision.
+     *
+     * @param periodX distance east-west before the landscape repeats
+     * @param periodZ distance north-south before the landscape repeats
+     * @param w number of columns
+     * @param h number of rows
+     * @param out receives the altitudes in row-major order, {@code out[row * w + col]}
+     * @throws IllegalArgumentException if an octave doesn't fit the period
+     * @throws UnsupportedOperationException if the noise isn't Perlin noise
+     */
+    public void fillTile2(double periodX, double periodZ, int w, int h, float[] out) {
+        PerlinNoise.checkGrid(out.length, w, h, 1);
+        final PerlinNoise perlin = periodicNoise();
+        final int count = w * h;
+        final double dx = periodX / w,
+                dz = periodZ / h;
+        final double[] part = new double[count];
+        final double[] sum = new double[count];
+        double amp = amplitude;
+        double ascale = frequency;
+        for (int round = 0; round < octaves; round ++) {
+            NoiseMetrics.octaves(count);
+            perlin.fillGrid2(0, 0, ascale * dx, ascale * dz, w, h, cells(periodX, ascale), cells(periodZ, ascale), part);
+            for (int i = 0; i < count; i++) {
+                sum[i] += amp * part[i];
+            }
+            amp *= gain;
+            ascale *= lacunarity;
+        }
+        for (int i = 0; i < count; i++) {
+            out[i] = (float) sum[i];
+        }
+    }
+
+    /**
+     * Find bounds which {@link #fractalNoise(double, double)} is sure to lie
+     * within everywhere in a rectangle, so that callers can rule out whole
+     * regions, such as a box the landscape can't reach, from a handful of
+     * lattice lookups instead of dense sampling.
+     * <p>
+     * Each octave is bounded by {@link NoiseEngine#noise2Bounds} over the
+     * rectangle at that octave's scale, times the octave's amplitude. Coarse
+     * octaves cover the rectangle with a few lattice cells and are bounded
+     * tightly from their gradients; fine ones span many cells and fall back
+     * to the noise's whole range, which their small amplitudes keep small.
+     * The bounds are infinite if some octave can't be bounded, as
+     * {@link PerlinNoise} can't below -4096 in that octave's coordinates.
+     *
+     * @param x0 least east-west coordinate of the rectangle
+     * @param z0 least north-south coordinate of the rectangle
+     * @param x1 greatest east-west coordinate, at least x0
+     * @param z1 greatest north-south coordinate, at least z0
+     * @param out receives the lower bound, then the upper bound
+     */
+    public void fractalNoiseBounds(double x0, double z0, double x1, double z1, double[] out) {
+        bounds(x0, z0, x1, z1, false, false, false, out);
+    }
+
+    /**
+     * Find bounds which {@link #fractalNoiseSmoothBottom(double, double)} is
+     * sure to lie within everywhere in a rectangle, as
+     * {@link #fractalNoiseBounds} does for the plain sum. Each octave's
+     * amplitude is itself only known to lie in a range here, narrowed by the
+     * bounds on the octaves before it.
+     *
+     * @param x0 least east-west coordinate of the rectangle
+     * @param z0 least north-south coordinate of the rectangle
+     * @param x1 greatest east-west coordinate, at least x0
+     * @param z1 greatest north-south coordinate, at least z0
+     * @param out receives the lower bound, then the upper bound
+     */
+    public void fractalNoiseSmoothBottomBounds(double x0, double z0, double x1, double z1, double[] out) {
+        bounds(x0, z0, x1, z1, true, false, false, out);
+    }
+
+    /**
+     * Find bounds which {@link #fractalNoiseSmoothBottom(double, double, double)}
+     * is sure to lie within everywhere in a rectangle, whatever the footprint.
+     * Leaving out or fading a fine octave can move the sum either way, so
+     * each octave after the first widens the bounds to take in zero.
+     *
+     * @param x0 least east-west coordinate of the rectangle
+     * @param z0 least north-south coordinate of the rectangle
+     * @param x1 greatest east-west coordinate, at least x0
+     * @param z1 greatest north-south coordinate, at least z0
+     * @param out receives the lower bound, then the upper bound
+     */
+    public void fractalNoiseSmoothBottomBoundsAnyFootprint(double x0, double z0, double x1, double z1,
+                                                           double[] out) {
+        bounds(x0, z0, x1, z1, true, true, false, out);
+    }
+
+    /**
+     * Find altitudes which neither {@link #fractalNoise(double, double)} nor
+     * {@link #fractalNoiseSmoothBottom(double, double)} can go beyond
+     * anywhere, such as for fixing the range of quantized heightmaps. They
+     * follow the amplitude, gain and octaves this landscape was built with.
+     *
+     * @param out receives the lower bound, then the upper bound; infinite
+     *            if the underlying noise can't be bounded
+     */
+    public void altitudeRange(double[] out) {
+        final double[] smooth = new double[2];
+        bounds(0, 0, 0, 0, false, false, true, out);
+        bounds(0, 0, 0, 0, true, false, true, smooth);
+        out[0] = Math.min(out[0], smooth[0]);
+        out[1] = Math.max(out[1], smooth[1]);
+    }
+
+    /**
+     * Sum the bounds of each octave over a rectangle, or anywhere at all.
+     */
+    private void bounds(double x0, double z0, double x1, double z1, boolean smoothBottom, boolean faded,
+                        boolean everywhere, double[] out) {
+        if (!everywhere) {
+            NoiseBounds.checkRectangle(x0, z0, x1, z1, out);
+        }
+        final double[] part = new double[2];
+        double ampLow = amplitude, ampHigh = amplitude;
+        double ascale = frequency;
+        double low = 0, high = 0;
+        for (int round = 0; round < octaves; round ++) {
+            if (everywhere) {
+                noise.noise2Range(part);
+            } else {
+                noise.noise2Bounds(Math.min(ascale * x0, ascale * x1), Math.min(ascale * z0, ascale * z1),
+                        Math.max(ascale * x0, ascale * x1), Math.max(ascale * z0, ascale * z1), part);
+            }
+            if (Double.isInfinite(part[0]) || Double.isInfinite(part[1])) {
+                out[0] = Double.NEGATIVE_INFINITY;
+                out[1] = Double.POSITIVE_INFINITY;
+                return;
+            }
+            final double partLow = lowerProduct(ampLow, ampHigh, part[0], part[1]),
+                    partHigh = upperProduct(ampLow, ampHigh, part[0], part[1]);
+            if (faded && round > 0) {
+                // weighted by anything from nothing to all of it
+                low += Math.min(0, partLow);
+                high += Math.max(0, partHigh);
+            } else {
+                low += partLow;
+                high += partHigh;
+            }
+            if (smoothBottom) {
+                // the attenuation rises with the octave's value
+                final double attenLow = Math.pow((Math.max(part[0], -1) + 1) / 2, smoothBottomExponent),
+                        attenHigh = Math.pow((Math.max(part[1], -1) + 1) / 2, smoothBottomExponent),
+                        nextLow = lowerProduct(ampLow, ampHigh, gain * attenLow, gain * attenHigh),
+                        nextHigh = upperProduct(ampLow, ampHigh, gain * attenLow, gain * attenHigh);
+                ampLow = Math.min(nextLow, nextHigh);
+                ampHigh = Math.max(nextLow, nextHigh);
+            } else {
+                ampLow *= gain;
+                ampHigh *= gain;
+            }
+            ascale *= lacunarity;
+        }
+        out[0] = low;
+        out[1] = high;
+    }
+
+    /**
+     * @return the least product of a number from aLow to aHigh and one from bLow to bHigh
+     */
+    private static double lowerProduct(double aLow, double aHigh, double bLow, double bHigh) {
+        return Math.min(Math.min(aLow * bLow, aLow * bHigh), Math.min(aHigh * bLow, aHigh * bHigh));
+    }
+
+    /**
+     * @return the greatest product of a number from aLow to aHigh and one from bLow to bHigh
+     */
+    private static double upperProduct(double aLow, double aHigh, double bLow, double bHigh) {
+        return Math.max(Math.max(aLow * bLow, aLow * bHigh), Math.max(aHigh * bLow, aHigh * bHigh));
+    }
+
+    /**
+     * @return the noise to sum for repeating landscapes, which must be Perlin noise
+     */
+    private PerlinNoise periodicNoise() {
+        if (!(noise instanceof PerlinNoise)) {
+            throw new UnsupportedOperationException("repeating landscapes need PerlinNoise, not " + noise.getClass().getSimpleName());
+        }
+        return (PerlinNoise) noise;
+    }
+
+    /**
+     * Find how many lattice cells of an octave fit in a period.
+     * @throws IllegalArgumentException unless it is a whole number
+     */
+    private static int cells(double period, double ascale) {
+        final double cells = period * ascale;
+        final long whole = Math.round(cells);
+        if (whole < 1 || whole > Integer.MAX_VALUE || Math.abs(cells - whole) > 1e-9 * whole) {
+            throw new IllegalArgumentException("period " + period + " doesn't hold a whole number of cells at frequency " + ascale);
+        }
+        return (int) whole;
+    }
+
+    /**
+     * How much of an octave to keep for samples of a given footprint: all
+     * of it while its lattice cells are at least a footprint wide, fading
+     * to none once they are only half as wide. The first octave is always
+     * kept whole, so however coarse the samples they still follow the
+     * broad shape of the land rather than flattening to nothing.
+     */
+    private static double octaveWeight(int round, double ascale, double footprint) {
+        final double cellsPerFootprint = footprint * ascale;
+        if (round == 0 || cellsPerFootprint <= 1) {
+            return 1;
+        }
+        return Math.max(0, 2 - cellsPerFootprint);
+    }
+
+    /**
+     * Collects the settings for a {@link FractalNoise}. Anything not set
+     * keeps the value the plain constructors use.
+     */
+    public static final class Builder {
+        private NoiseEngine noise;
+        private long seed;
+        private boolean seeded;
+        private int octaves = 7;
+        private double frequency = 0.5;
+        private double lacunarity = 2;
+        private double amplitude = 128;
+        private double gain = 0.5;
+        private double smoothBottomExponent = 0.25;
+
+        private Builder() {
+        }
+
+        /**
+         * @param seed the world seed; a random one is picked if neither this nor noise is given
+         * @return this builder
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            this.seeded = true;
+            this.noise = null;
+            return this;
+        }
+
+        /**
+         * @param noise existing noise to accumulate, instead of a seed
+         * @return this builder
+         */
+        public Builder noise(NoiseEngine noise) {
+            this.noise = noise;
+            this.seeded = false;
+            return this;
+        }
+
+        /**
+         * @param octaves the most octaves to sum, at least 1
+         * @return this builder
+         */
+        public Builder octaves(int octaves) {
+            if (octaves < 1) {
+                throw new IllegalArgumentException("need at least one octave");
+            }
+            this.octaves = octaves;
+            return this;
+        }
+
+        /**
+         * @param frequency how often the first octave's features repeat, per unit distance
+         * @return this builder
+         */
+        public Builder frequency(double frequency) {
+            if (!(frequency > 0) || Double.isInfinite(frequency)) {
+                throw new IllegalArgumentException("frequency must be positive and finite");
+            }
+            this.frequency = frequency;
+            return this;
+        }
+
+        /**
+         * @param lacunarity how much each octave's frequency exceeds the last's, more than 1
+         * @return this builder
+         */
+        public Builder lacunarity(double lacunarity) {
+            if (!(lacunarity > 1) || Double.isInfinite(lacunarity)) {
+                throw new IllegalArgumentException("lacunarity must be more than 1 and finite");
+            }
+            this.lacunarity = lacunarity;
+            return this;
+        }
+
+        /**
+         * @param amplitude altitude scale of the first octave, finite
+         * @return this builder
+         */
+        public Builder amplitude(double amplitude) {
+            if (!Double.isFinite(amplitude)) {
+                throw new IllegalArgumentException("amplitude must be finite");
+            }
+            this.amplitude = amplitude;
+            return this;
+        }
+
+        /**
+         * @param gain how each octave's amplitude compares to the last's, finite
+         * @return this builder
+         */
+        public Builder gain(double gain) {
+            if (!Double.isFinite(gain)) {
+                throw new IllegalArgumentException("gain must be finite");
+            }
+            this.gain = gain;
+            return this;
+        }
+
+        /**
+         * @param smoothBottomExponent how strongly the smooth bottom methods
+         *                             flatten low ground; 0 for not at all
+         * @return this builder
+         */
+        public Builder smoothBottomExponent(double smoothBottomExponent) {
+            if (!(smoothBottomExponent >= 0) || Double.isInfinite(smoothBottomExponent)) {
+                throw new IllegalArgumentException("smooth bottom exponent must be at least 0 and finite");
+            }
+            this.smoothBottomExponent = smoothBottomExponent;
+            return this;
+        }
+
+        /**
+         * @return a landscape with these settings
+         */
+        public FractalNoise build() {
+            if (noise == null && !seeded) {
+                noise = new PerlinNoise();
+            }
+            return new FractalNoise(this);
+        }
+    }
 }
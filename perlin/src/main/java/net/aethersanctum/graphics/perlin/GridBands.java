@@ -0,0 +1,37 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+/**
+ * Receives a grid a band of rows at a time, so that it can be copied
+ * somewhere other than an array without ever being held whole.
+ */
+interface GridBands {
+
+    /**
+     * Take some rows in single precision.
+     * @param row first row of the band, counted from the top of the block
+     * @param rows number of rows in the band
+     * @param values the band's values in row-major order
+     */
+    void singles(int row, int rows, float[] values);
+
+    /**
+     * Take some rows in double precision.
+     * @param row first row of the band, counted from the top of the block
+     * @param rows number of rows in the band
+     * @param values the band's values in row-major order
+     */
+    void doubles(int row, int rows, double[] values);
+}
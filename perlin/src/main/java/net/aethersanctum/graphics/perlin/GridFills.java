@@ -0,0 +1,129 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Computes blocks of grids a band of rows at a time and hands each band to
+ * a {@link GridBands}, for the fills which write somewhere other than an
+ * array, such as buffers and memory segments.
+ */
+final class GridFills {
+    /**
+     * Samples computed together, enough for the grid fills to share their
+     * lattice lookups but small enough to stay in cache.
+     */
+    private static final int BAND_SAMPLES = 4096;
+
+    private GridFills() {
+    }
+
+    /**
+     * Check a buffer and write a block of noise into it, as
+     * {@link NoiseEngine#fillGrid2(double, double, double, double, int, int, int, int, ByteBuffer, int, int, int, SampleFormat)}
+     * describes.
+     */
+    static void intoBuffer(NoiseEngine noise, double x0, double y0, double dx, double dy, int col0, int row0,
+                           int w, int h, ByteBuffer out, int offset, int sampleStride, int rowStride,
+                           SampleFormat format) {
+        checkBuffer(out, offset, sampleStride, rowStride, w, h, format);
+        final HeightQuantizer quantizer = format == SampleFormat.UINT16 ? HeightQuantizer.forNoise(noise) : null;
+        fill(noise, x0, y0, dx, dy, col0, row0, w, h, format,
+                new BufferBands(out, offset, sampleStride, rowStride, w, format, quantizer));
+    }
+
+    /**
+     * Check a buffer and write a block of landscape into it, as
+     * {@link FractalNoise#fillGrid2(double, double, double, double, int, int, int, int, ByteBuffer, int, int, int, SampleFormat)}
+     * describes.
+     */
+    static void intoBuffer(FractalNoise noise, double x0, double z0, double dx, double dz, int col0, int row0,
+                           int w, int h, ByteBuffer out, int offset, int sampleStride, int rowStride,
+                           SampleFormat format) {
+        checkBuffer(out, offset, sampleStride, rowStride, w, h, format);
+        final HeightQuantizer quantizer = format == SampleFormat.UINT16 ? HeightQuantizer.forLandscape(noise) : null;
+        fill(noise, x0, z0, dx, dz, col0, row0, w, h, format,
+                new BufferBands(out, offset, sampleStride, rowStride, w, format, quantizer));
+    }
+
+    /**
+     * Compute a block of noise a band of rows at a time, in single
+     * precision unless the format needs double.
+     */
+    static void fill(NoiseEngine noise, double x0, double y0, double dx, double dy, int col0, int row0,
+                     int w, int h, SampleFormat format, GridBands bands) {
+        fill(w, h, format,
+                (row, rows, band) -> noise.fillGrid2(x0, y0, dx, dy, col0, row0 + row, w, rows, band, 0, w),
+                (row, rows, band) -> noise.fillGrid2(x0 + col0 * dx, y0 + (row0 + row) * dy, dx, dy, w, rows, band),
+                bands);
+    }
+
+    /**
+     * Compute a block of landscape a band of rows at a time, in single
+     * precision unless the format needs double.
+     */
+    static void fill(FractalNoise noise, double x0, double z0, double dx, double dz, int col0, int row0,
+                     int w, int h, SampleFormat format, GridBands bands) {
+        fill(w, h, format,
+                (row, rows, band) -> noise.fillGrid2(x0, z0, dx, dz, col0, row0 + row, w, rows, band, 0, w),
+                (row, rows, band) -> noise.fillGrid2(x0 + col0 * dx, z0 + (row0 + row) * dz, dx, dz, w, rows, band),
+                bands);
+    }
+
+    private static void checkBuffer(ByteBuffer out, int offset, int sampleStride, int rowStride, int w, int h,
+                                    SampleFormat format) {
+        format.checkBlock(out.limit(), offset, sampleStride, rowStride, w, h);
+        if (out.isReadOnly()) {
+            throw new IllegalArgumentException("buffer is read-only");
+        }
+    }
+
+    private static void fill(int w, int h, SampleFormat format, SingleBands singles, DoubleBands doubles,
+                             GridBands bands) {
+        if (w == 0 || h == 0) {
+            return;
+        }
+        final int bandRows = Math.max(1, Math.min(h, BAND_SAMPLES / w));
+        if (format == SampleFormat.FLOAT64) {
+            final double[] band = new double[bandRows * w];
+            for (int row = 0; row < h; row += bandRows) {
+                final int rows = Math.min(bandRows, h - row);
+                doubles.fill(row, rows, band);
+                bands.doubles(row, rows, band);
+            }
+        } else {
+            final float[] band = new float[bandRows * w];
+            for (int row = 0; row < h; row += bandRows) {
+                final int rows = Math.min(bandRows, h - row);
+                singles.fill(row, rows, band);
+                bands.singles(row, rows, band);
+            }
+        }
+    }
+
+    /**
+     * Fills some rows of a block in single precision.
+     */
+    private interface SingleBands {
+        void fill(int row, int rows, float[] band);
+    }
+
+    /**
+     * Fills some rows of a block in double precision.
+     */
+    private interface DoubleBands {
+        void fill(int row, int rows, double[] band);
+    }
+}
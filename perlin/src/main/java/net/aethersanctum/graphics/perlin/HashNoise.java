@@ -0,0 +1,404 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import static net.aethersanctum.graphics.perlin.PerlinNoise.checkGrid;
+import static net.aethersanctum.graphics.perlin.PerlinNoise.sCurveSlope;
+import static net.aethersanctum.graphics.perlin.PerlinUtil.lerp;
+import static net.aethersanctum.graphics.perlin.PerlinUtil.sCurve;
+
+import java.util.Random;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Gradient noise like {@link PerlinNoise}, but with each lattice corner's
+ * gradient picked by hashing the corner's cell coordinates with the seed
+ * rather than by looking it up through a seeded permutation table.
+ * <p>
+ * That lifts two limits of the table lookups. The noise does not repeat
+ * every 256 cells, and it is correct for any coordinate whose cell fits in
+ * a long, not just those above -4096; precision is then only that of the
+ * double coordinates themselves. All 64 bits of the seed count, and there
+ * are no per-seed tables, so many worlds can run at once without
+ * competing for cache: only two small fixed gradient sets are shared.
+ * <p>
+ * The values have the same character and roughly the same range as
+ * {@link PerlinNoise}'s, but are not the same noise.
+ * Instances hold no mutable state, so one instance can safely be shared
+ * by any number of threads.
+ */
+@ThreadSafe
+public final class HashNoise implements NoiseEngine {
+    private static final long PRIME_X = 0x9E3779B97F4A7C15L;
+    private static final long PRIME_Y = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_Z = 0x165667B19E3779F9L;
+    private static final long MIX = 0xD6E8FEB86659FD93L;
+
+    /** Sixteen unit vectors spread evenly around the circle, flat. */
+    private static final double[] GRAD2 = new double[32];
+
+    /** Midpoints of a cube's edges scaled to unit length, four repeated to make sixteen, flat. */
+    private static final double[] GRAD3 = {
+            1, 1, 0,   -1, 1, 0,   1, -1, 0,   -1, -1, 0,
+            1, 0, 1,   -1, 0, 1,   1, 0, -1,   -1, 0, -1,
+            0, 1, 1,   0, -1, 1,   0, 1, -1,   0, -1, -1,
+            1, 1, 0,   -1, 1, 0,   0, -1, 1,   0, -1, -1
+    };
+
+    static {
+        for (int i = 0; i < 16; i++) {
+            final double angle = (i + 0.5) * Math.PI / 8;
+            GRAD2[2 * i] = Math.cos(angle);
+            GRAD2[2 * i + 1] = Math.sin(angle);
+        }
+        final double unit = Math.sqrt(0.5);
+        for (int i = 0; i < GRAD3.length; i++) {
+            GRAD3[i] *= unit;
+        }
+    }
+
+    private final long seed;
+    private final long seedHash;
+
+    /**
+     * Create noise for a world picked at random.
+     */
+    public HashNoise() {
+        this(new Random().nextLong());
+    }
+
+    /**
+     * Create noise for a particular world. Instances made from the same
+     * seed produce identical noise, in this JVM or any other.
+     * @param seed the world seed
+     */
+    public HashNoise(long seed) {
+        this.seed = seed;
+        this.seedHash = mix(seed);
+    }
+
+    /**
+     * @return the seed this noise was created from
+     */
+    @Override
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return a noise value for a point in 2d space
+     */
+    @Override
+    public double noise2(double xArg, double yArg) {
+        NoiseMetrics.sampled(2, 1);
+        final double fx = Math.floor(xArg),
+                fy = Math.floor(yArg);
+        final long hx0 = (long) fx * PRIME_X,
+                hx1 = hx0 + PRIME_X,
+                hy0 = seedHash ^ (long) fy * PRIME_Y,
+                hy1 = seedHash ^ ((long) fy * PRIME_Y + PRIME_Y);
+        final double rx0 = xArg - fx,
+                rx1 = rx0 - 1.0,
+                ry0 = yArg - fy,
+                ry1 = ry0 - 1.0;
+
+        final double sx = sCurve(rx0),
+                sy = sCurve(ry0),
+                u1 = dotProduct2d(hx0 ^ hy0, rx0, ry0),
+                v1 = dotProduct2d(hx1 ^ hy0, rx1, ry0),
+                a = lerp(sx, u1, v1),
+                u2 = dotProduct2d(hx0 ^ hy1, rx0, ry1),
+                v2 = dotProduct2d(hx1 ^ hy1, rx1, ry1),
+                b = lerp(sx, u2, v2);
+
+        return lerp(sy, a, b);
+    }
+
+    /**
+     * @return a noise value for a point in 3d space
+     */
+    @Override
+    public double noise3(double xArg, double yArg, double zArg) {
+        NoiseMetrics.sampled(3, 1);
+        final double fx = Math.floor(xArg),
+                fy = Math.floor(yArg),
+                fz = Math.floor(zArg);
+        final long hx0 = (long) fx * PRIME_X,
+                hx1 = hx0 + PRIME_X,
+                hy0 = (long) fy * PRIME_Y,
+                hy1 = hy0 + PRIME_Y,
+                hz0 = seedHash ^ (long) fz * PRIME_Z,
+                hz1 = seedHash ^ ((long) fz * PRIME_Z + PRIME_Z);
+        final double rx0 = xArg - fx,
+                rx1 = rx0 - 1.0,
+                ry0 = yArg - fy,
+                ry1 = ry0 - 1.0,
+                rz0 = zArg - fz,
+                rz1 = rz0 - 1.0;
+
+        final double u1 = dotProduct3d(hx0 ^ hy0 ^ hz0, rx0, ry0, rz0),
+                v1 = dotProduct3d(hx1 ^ hy0 ^ hz0, rx1, ry0, rz0),
+                u2 = dotProduct3d(hx0 ^ hy1 ^ hz0, rx0, ry1, rz0),
+                v2 = dotProduct3d(hx1 ^ hy1 ^ hz0, rx1, ry1, rz0),
+                u3 = dotProduct3d(hx0 ^ hy0 ^ hz1, rx0, ry0, rz1),
+                v3 = dotProduct3d(hx1 ^ hy0 ^ hz1, rx1, ry0, rz1),
+                u4 = dotProduct3d(hx0 ^ hy1 ^ hz1, rx0, ry1, rz1),
+                v4 = dotProduct3d(hx1 ^ hy1 ^ hz1, rx1, ry1, rz1),
+                t = sCurve(rx0),
+                sy = sCurve(ry0),
+                sz = sCurve(rz0),
+                a1 = lerp(t, u1, v1),
+                b1 = lerp(t, u2, v2),
+                a2 = lerp(t, u3, v3),
+                b2 = lerp(t, u4, v4),
+                c = lerp(sy, a1, b1),
+                d = lerp(sy, a2, b2);
+
+        return lerp(sz, c, d);
+    }
+
+    /**
+     * Find the 2d noise value at a point together with its slope, from the
+     * same corner hashes. The value is exactly what {@link #noise2} gives.
+     *
+     * @param xArg x coordinate
+     * @param yArg y coordinate
+     * @param out receives the value, then its partial derivatives along x and y
+     * @return the noise value
+     */
+    @Override
+    public double noise2WithGradient(double xArg, double yArg, double[] out) {
+        NoiseMetrics.sampled(2, 1);
+        final double fx = Math.floor(xArg),
+                fy = Math.floor(yArg);
+        final long hx0 = (long) fx * PRIME_X,
+                hx1 = hx0 + PRIME_X,
+                hy0 = seedHash ^ (long) fy * PRIME_Y,
+                hy1 = seedHash ^ ((long) fy * PRIME_Y + PRIME_Y);
+        final double rx0 = xArg - fx,
+                rx1 = rx0 - 1.0,
+                ry0 = yArg - fy,
+                ry1 = ry0 - 1.0;
+
+        final int g00 = gradient(hx0 ^ hy0) << 1,
+                g10 = gradient(hx1 ^ hy0) << 1,
+                g01 = gradient(hx0 ^ hy1) << 1,
+                g11 = gradient(hx1 ^ hy1) << 1;
+
+        final double[] q = GRAD2;
+        final double sx = sCurve(rx0),
+                sy = sCurve(ry0),
+                dsx = sCurveSlope(rx0),
+                dsy = sCurveSlope(ry0),
+                u1 = rx0 * q[g00] + ry0 * q[g00 + 1],
+                v1 = rx1 * q[g10] + ry0 * q[g10 + 1],
+                a = lerp(sx, u1, v1),
+                u2 = rx0 * q[g01] + ry1 * q[g01 + 1],
+                v2 = rx1 * q[g11] + ry1 * q[g11 + 1],
+                b = lerp(sx, u2, v2),
+                value = lerp(sy, a, b);
+
+        final double ax = lerp(sx, q[g00], q[g10]) + dsx * (v1 - u1),
+                ay = lerp(sx, q[g00 + 1], q[g10 + 1]),
+                bx = lerp(sx, q[g01], q[g11]) + dsx * (v2 - u2),
+                by = lerp(sx, q[g01 + 1], q[g11 + 1]);
+        out[0] = value;
+        out[1] = lerp(sy, ax, bx);
+        out[2] = lerp(sy, ay, by) + dsy * (b - a);
+        return value;
+    }
+
+    /**
+     * Find bounds which {@link #noise2} is sure to lie within over a
+     * rectangle. Regions of a few lattice cells are bounded cell by cell from
+     * the cells' corner gradients, so small regions get tight bounds; larger
+     * ones get the noise's whole range of plus or minus {@code sqrt(1/2)}.
+     *
+     * @param x0 least x of the rectangle
+     * @param y0 least y of the rectangle
+     * @param x1 greatest x of the rectangle, at least x0
+     * @param y1 greatest y of the rectangle, at least y0
+     * @param out receives the lower bound, then the upper bound
+     */
+    @Override
+    public void noise2Bounds(double x0, double y0, double x1, double y1, double[] out) {
+        NoiseBounds.checkRectangle(x0, y0, x1, y1, out);
+        final double fx0 = Math.floor(x0), fx1 = Math.floor(x1),
+                fy0 = Math.floor(y0), fy1 = Math.floor(y1);
+        if ((fx1 - fx0 + 1) * (fy1 - fy0 + 1) > NoiseBounds.MAX_CELLS) {
+            out[0] = -NoiseBounds.UNIT_GRADIENTS_2D;
+            out[1] = NoiseBounds.UNIT_GRADIENTS_2D;
+            return;
+        }
+        final double[] q = GRAD2;
+        final long cx0 = (long) fx0, cx1 = (long) fx1,
+                cy0 = (long) fy0, cy1 = (long) fy1;
+        out[0] = Double.POSITIVE_INFINITY;
+        out[1] = Double.NEGATIVE_INFINITY;
+        for (long cy = cy0; cy <= cy1; cy++) {
+            final long hy0 = seedHash ^ cy * PRIME_Y,
+                    hy1 = seedHash ^ (cy * PRIME_Y + PRIME_Y);
+            final double fromY = Math.max(y0 - (fy0 + (cy - cy0)), 0), toY = Math.min(y1 - (fy0 + (cy - cy0)), 1);
+            for (long cx = cx0; cx <= cx1; cx++) {
+                final long hx0 = cx * PRIME_X,
+                        hx1 = hx0 + PRIME_X;
+                final int g00 = gradient(hx0 ^ hy0) << 1,
+                        g10 = gradient(hx1 ^ hy0) << 1,
+                        g01 = gradient(hx0 ^ hy1) << 1,
+                        g11 = gradient(hx1 ^ hy1) << 1;
+                final double fromX = Math.max(x0 - (fx0 + (cx - cx0)), 0), toX = Math.min(x1 - (fx0 + (cx - cx0)), 1);
+                NoiseBounds.cell(q, g00, g10, g01, g11, fromX, toX, fromY, toY, out);
+            }
+        }
+        NoiseBounds.store(out, NoiseBounds.UNIT_GRADIENTS_2D);
+    }
+
+    @Override
+    public void noise2Range(double[] out) {
+        out[0] = -NoiseBounds.UNIT_GRADIENTS_2D - NoiseBounds.SLACK;
+        out[1] = NoiseBounds.UNIT_GRADIENTS_2D + NoiseBounds.SLACK;
+    }
+
+    /**
+     * Fill a regular grid of points in 2d space with noise values.
+     * <p>
+     * Gives the same values as calling {@link #noise2} at each point
+     * {@code (x0 + col * dx, y0 + row * dy)}, but hashes each column's
+     * cell once for the whole grid and each row's once per row.
+     *
+     * @param x0 x coordinate of the first column
+     * @param y0 y coordinate of the first row
+     * @param dx distance between columns
+     * @param dy distance between rows
+     * @param w number of columns
+     * @param h number of rows
+     * @param out receives the values in row-major order, {@code out[row * w + col]}
+     */
+    @Override
+    public void fillGrid2(double x0, double y0, double dx, double dy, int w, int h, double[] out) {
+        checkGrid(out.length, w, h, 1);
+        NoiseMetrics.sampled(2, (long) w * h);
+        final Columns columns = new Columns(x0, dx, 0, w);
+        for (int row = 0; row < h; row++) {
+            fillRow(columns, y0 + row * dy, out, row * w);
+        }
+    }
+
+    /**
+     * Fill part of a larger grid of points in 2d space with noise values,
+     * rounded to single precision.
+     *
+     * @param x0 x coordinate of the first column of the larger grid
+     * @param y0 y coordinate of the first row of the larger grid
+     * @param dx distance between columns
+     * @param dy distance between rows
+     * @param col0 first column of the block to fill
+     * @param row0 first row of the block to fill
+     * @param w number of columns in the block
+     * @param h number of rows in the block
+     * @param out receives the values, {@code out[offset + row * stride + col]}
+     * @param offset where in out the block's first value goes
+     * @param stride distance in out between the starts of consecutive rows
+     */
+    @Override
+    public void fillGrid2(double x0, double y0, double dx, double dy, int col0, int row0, int w, int h,
+                          float[] out, int offset, int stride) {
+        checkGrid(out.length, offset, stride, w, h);
+        NoiseMetrics.sampled(2, (long) w * h);
+        final Columns columns = new Columns(x0, dx, col0, w);
+        final double[] values = new double[w];
+        for (int row = 0; row < h; row++) {
+            fillRow(columns, y0 + (row0 + row) * dy, values, 0);
+            final int at = offset + row * stride;
+            for (int col = 0; col < w; col++) {
+                out[at + col] = (float) values[col];
+            }
+        }
+    }
+
+    private void fillRow(Columns columns, double y, double[] out, int at) {
+        final double fy = Math.floor(y);
+        final long hy0 = seedHash ^ (long) fy * PRIME_Y,
+                hy1 = seedHash ^ ((long) fy * PRIME_Y + PRIME_Y);
+        final double ry0 = y - fy,
+                ry1 = ry0 - 1.0,
+                sy = sCurve(ry0);
+        final long[] hxs = columns.hashes;
+        final double[] rxs = columns.fractions, sxs = columns.curves;
+        for (int col = 0; col < hxs.length; col++) {
+            final long hx0 = hxs[col],
+                    hx1 = hx0 + PRIME_X;
+            final double rx0 = rxs[col],
+                    rx1 = rx0 - 1.0,
+                    sx = sxs[col],
+                    a = lerp(sx, dotProduct2d(hx0 ^ hy0, rx0, ry0), dotProduct2d(hx1 ^ hy0, rx1, ry0)),
+                    b = lerp(sx, dotProduct2d(hx0 ^ hy1, rx0, ry1), dotProduct2d(hx1 ^ hy1, rx1, ry1));
+            out[at + col] = lerp(sy, a, b);
+        }
+    }
+
+    /**
+     * Pick one of sixteen gradients for a lattice corner.
+     * @param h the corner's cell coordinates and seed, combined
+     * @return index of the gradient
+     */
+    private static int gradient(long h) {
+        h ^= h >>> 32;
+        return (int) ((h * MIX) >>> 60);
+    }
+
+    /**
+     * Scramble all the bits of a value into the high ones.
+     */
+    private static long mix(long h) {
+        h *= MIX;
+        h ^= h >>> 32;
+        h *= MIX;
+        h ^= h >>> 29;
+        return h;
+    }
+
+    private static double dotProduct2d(long h, double rx, double ry) {
+        final int at = gradient(h) << 1;
+        return rx * GRAD2[at] + ry * GRAD2[at + 1];
+    }
+
+    private static double dotProduct3d(long h, double rx, double ry, double rz) {
+        final int at = gradient(h) * 3;
+        return rx * GRAD3[at] + ry * GRAD3[at + 1] + rz * GRAD3[at + 2];
+    }
+
+    /**
+     * The cell hash, position in the cell and s-curve of each column of a grid.
+     */
+    private static final class Columns {
+        final long[] hashes;
+        final double[] fractions;
+        final double[] curves;
+
+        Columns(double x0, double dx, int col0, int w) {
+            hashes = new long[w];
+            fractions = new double[w];
+            curves = new double[w];
+            for (int col = 0; col < w; col++) {
+                final double x = x0 + (col0 + col) * dx,
+                        fx = Math.floor(x);
+                hashes[col] = (long) fx * PRIME_X;
+                fractions[col] = x - fx;
+                curves[col] = sCurve(fractions[col]);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Maps altitudes to unsigned 16-bit samples and back, for heightmaps stored
+ * as {@link TileStore.Encoding#UINT16} or {@link SampleFormat#UINT16}.
+ * <p>
+ * Sample 0 stands for the lowest altitude and each step up adds a fixed
+ * amount. Altitudes outside the range are clamped to its ends, so the range
+ * should come from the landscape, as {@link #forLandscape} works it out,
+ * rather than be guessed.
+ */
+@Immutable
+public final class HeightQuantizer {
+    private static final int MAX_SAMPLE = 0xffff;
+
+    private final float min;
+    private final float step;
+
+    /**
+     * @param min altitude of sample 0
+     * @param step altitude between consecutive samples
+     */
+    public HeightQuantizer(float min, float step) {
+        if (!(step > 0) || Float.isInfinite(step) || Float.isNaN(min) || Float.isInfinite(min)) {
+            throw new IllegalArgumentException("altitude range must be finite and step positive");
+        }
+        this.min = min;
+        this.step = step;
+    }
+
+    /**
+     * Spread the samples evenly from one altitude to another.
+     * @param low altitude of sample 0
+     * @param high altitude of sample 65535, above low
+     * @return the quantizer for that range
+     */
+    public static HeightQuantizer forRange(double low, double high) {
+        if (!(low < high) || Double.isInfinite(low) || Double.isInfinite(high)) {
+            throw new IllegalArgumentException("altitude range from " + low + " to " + high + " must be finite and not empty");
+        }
+        return new HeightQuantizer((float) low, (float) ((high - low) / MAX_SAMPLE));
+    }
+
+    /**
+     * Spread the samples over every altitude a landscape can reach, by
+     * {@link FractalNoise#altitudeRange(double[])}, so nothing it generates is clipped.
+     * @param noise the landscape
+     * @return the quantizer for its range
+     * @throws IllegalArgumentException if the landscape's noise can't be bounded,
+     *         in which case a range must be given with {@link #forRange}
+     */
+    public static HeightQuantizer forLandscape(FractalNoise noise) {
+        final double[] range = new double[2];
+        noise.altitudeRange(range);
+        if (Double.isInfinite(range[0]) || Double.isInfinite(range[1])) {
+            throw new IllegalArgumentException("landscape's altitudes can't be bounded; give a range instead");
+        }
+        return forRange(range[0], range[1]);
+    }
+
+    /**
+     * Spread the samples over every value a noise engine can give, by
+     * {@link NoiseEngine#noise2Range(double[])}.
+     * @param noise the noise
+     * @return the quantizer for its range
+     * @throws IllegalArgumentException if the noise can't be bounded,
+     *         in which case a range must be given with {@link #forRange}
+     */
+    public static HeightQuantizer forNoise(NoiseEngine noise) {
+        final double[] range = new double[2];
+        noise.noise2Range(range);
+        if (Double.isInfinite(range[0]) || Double.isInfinite(range[1])) {
+            throw new IllegalArgumentException("noise can't be bounded; give a range instead");
+        }
+        return forRange(range[0], range[1]);
+    }
+
+    /**
+     * @return altitude of sample 0
+     */
+    public float getMin() {
+        return min;
+    }
+
+    /**
+     * @return altitude between consecutive samples
+     */
+    public float getStep() {
+        return step;
+    }
+
+    /**
+     * @return the sample nearest an altitude, from 0 to 65535
+     */
+    public int quantize(float height) {
+        final int quantized = Math.round((height - min) / step);
+        return Math.max(0, Math.min(MAX_SAMPLE, quantized));
+    }
+
+    /**
+     * @return the altitude a sample stands for
+     */
+    public float altitude(int sample) {
+        return min + sample * step;
+    }
+
+    @Override
+    public String toString() {
+        return "HeightQuantizer[min " + min + ", step " + step + "]";
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Streams a {@link FractalNoise} heightmap of any size out to a
+ * {@link HeightmapRowWriter}, such as a {@link PngHeightmapWriter} or
+ * {@link RawHeightmapWriter}.
+ * <p>
+ * The map is generated in strips of rows on a {@link HeightmapGenerator}.
+ * While the calling thread encodes and writes one strip, the next few are
+ * being generated, so generation and output overlap; but no more than
+ * {@code stripsAhead + 1} strips are ever held, however big the map.
+ * Every value is exactly what generating the whole map at once would give.
+ */
+@ThreadSafe
+public class HeightmapExporter {
+    /**
+     * Rows per strip unless told otherwise.
+     */
+    public static final int DEFAULT_STRIP_ROWS = 64;
+
+    /**
+     * Strips generated ahead of the one being written, unless told otherwise.
+     */
+    public static final int DEFAULT_STRIPS_AHEAD = 2;
+
+    private final HeightmapGenerator generator;
+    private final int stripRows;
+    private final int stripsAhead;
+
+    /**
+     * Create an exporter which generates on the common fork/join pool.
+     * @param noise the landscape to export
+     */
+    public HeightmapExporter(FractalNoise noise) {
+        this(noise, ForkJoinPool.commonPool(), DEFAULT_STRIP_ROWS, DEFAULT_STRIPS_AHEAD);
+    }
+
+    /**
+     * Create an exporter.
+     * @param noise the landscape to export
+     * @param executor runs the generation
+     * @param stripRows rows generated together
+     * @param stripsAhead how many strips may be generating while one is written, at least 1
+     */
+    public HeightmapExporter(FractalNoise noise, Executor executor, int stripRows, int stripsAhead) {
+        if (stripRows <= 0 || stripsAhead <= 0) {
+            throw new IllegalArgumentException("strips must have rows and at least one must be generated ahead");
+        }
+        this.generator = new HeightmapGenerator(noise, executor);
+        this.stripRows = stripRows;
+        this.stripsAhead = stripsAhead;
+    }
+
+    /**
+     * Generate a heightmap and write it out, a strip at a time. The writer
+     * is left open, for the caller to close.
+     *
+     * @param writer receives every row in order; must be made for a w by h map
+     * @param x0 east-west coordinate of the first column
+     * @param z0 north-south coordinate of the first row
+     * @param spacing distance between samples, both ways
+     * @param w number of columns
+     * @param h number of rows
+     * @throws IOException if generating or writing fails
+     */
+    public void export(HeightmapRowWriter writer, double x0, double z0, double spacing, int w, int h) throws IOException {
+        if (w <= 0 || h <= 0 || (long) w * stripRows > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("bad heightmap size " + w + "x" + h + " for strips of " + stripRows + " rows");
+        }
+        final int strips = (h + stripRows - 1) / stripRows;
+        final ArrayDeque<CompletableFuture<float[]>> pending = new ArrayDeque<>(stripsAhead);
+        int started = 0;
+        try {
+            while (started < strips && started < stripsAhead) {
+                pending.add(startStrip(x0, z0, spacing, w, h, started++));
+            }
+            for (int strip = 0; strip < strips; strip++) {
+                final float[] heights = await(pending.poll());
+                // start another strip before writing this one, so it generates meanwhile
+                if (started < strips) {
+                    pending.add(startStrip(x0, z0, spacing, w, h, started++));
+                }
+                writer.writeRows(heights, 0, heights.length / w);
+            }
+        } finally {
+            for (CompletableFuture<float[]> strip : pending) {
+                strip.cancel(false);
+            }
+        }
+    }
+
+    private CompletableFuture<float[]> startStrip(double x0, double z0, double spacing, int w, int h, int strip) {
+        final int row0 = strip * stripRows;
+        return generator.generateStripAsync(x0, z0, spacing, spacing, w, row0, Math.min(stripRows, h - row0));
+    }
+
+    private static float[] await(CompletableFuture<float[]> strip) throws IOException {
+        try {
+            return strip.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while generating heightmap", e);
+        } catch (ExecutionException e) {
+            throw new IOException("failed to generate heightmap", e.getCause());
+        }
+    }
+}
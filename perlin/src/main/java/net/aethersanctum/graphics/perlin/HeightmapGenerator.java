@@ -0,0 +1,257 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Builds large heightmaps from {@link FractalNoise} on many threads.
+ * <p>
+ * A requested region is cut into square tiles and each tile is computed as
+ * a separate task, by default on the common {@link ForkJoinPool}. Tiles are
+ * sized so that there are several per thread, letting idle workers steal
+ * the remaining ones, but not so small that per-tile overhead shows.
+ * <p>
+ * Every point is computed from its position in the whole region, never
+ * from its position in a tile, so the result is the same bit for bit
+ * whatever the tile size or number of threads.
+ * <p>
+ * The futures returned by the asynchronous methods may be cancelled;
+ * tiles which haven't started by then are skipped.
+ */
+@ThreadSafe
+public class HeightmapGenerator {
+    /**
+     * Smallest tile edge used when picking tile sizes.
+     */
+    public static final int MIN_TILE_SIZE = 32;
+
+    /**
+     * Largest tile edge used when picking tile sizes.
+     */
+    public static final int MAX_TILE_SIZE = 256;
+
+    /**
+     * How many tiles to aim for per thread, so that work can be stolen
+     * from threads that got the slow tiles.
+     */
+    private static final int TILES_PER_THREAD = 4;
+
+    private final FractalNoise noise;
+    private final Executor executor;
+    private final int parallelism;
+
+    /**
+     * Create a generator which runs on the common fork/join pool.
+     * @param noise the landscape to sample
+     */
+    public HeightmapGenerator(FractalNoise noise) {
+        this(noise, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a generator which runs on a particular executor.
+     * @param noise the landscape to sample
+     * @param executor runs the tile tasks
+     */
+    public HeightmapGenerator(FractalNoise noise, Executor executor) {
+        this.noise = noise;
+        this.executor = executor;
+        this.parallelism = executor instanceof ForkJoinPool
+                ? ((ForkJoinPool) executor).getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Build a heightmap, waiting for it to finish.
+     * Gives the same values as
+     * {@link FractalNoise#fillGrid2(double, double, double, double, int, int, float[])}.
+     *
+     * @param x0 east-west coordinate of the first column
+     * @param z0 north-south coordinate of the first row
+     * @param dx distance between columns
+     * @param dz distance between rows
+     * @param w number of columns
+     * @param h number of rows
+     * @return the altitudes in row-major order, {@code [row * w + col]}
+     */
+    public float[] generate(double x0, double z0, double dx, double dz, int w, int h) {
+        return generateAsync(x0, z0, dx, dz, w, h).join();
+    }
+
+    /**
+     * Start building a heightmap into one shared array.
+     *
+     * @param x0 east-west coordinate of the first column
+     * @param z0 north-south coordinate of the first row
+     * @param dx distance between columns
+     * @param dz distance between rows
+     * @param w number of columns
+     * @param h number of rows
+     * @return completes with the altitudes in row-major order, {@code [row * w + col]}
+     */
+    public CompletableFuture<float[]> generateAsync(double x0, double z0, double dx, double dz, int w, int h) {
+        return generateStripAsync(x0, z0, dx, dz, w, 0, h);
+    }
+
+    /**
+     * Start building a strip of rows from a larger heightmap, for callers
+     * which stream a heightmap too big to hold. The values are exactly those
+     * the same rows have when the whole heightmap is built at once.
+     *
+     * @param x0 east-west coordinate of the first column of the whole heightmap
+     * @param z0 north-south coordinate of the first row of the whole heightmap
+     * @param dx distance between columns
+     * @param dz distance between rows
+     * @param w number of columns
+     * @param row0 first row of the strip
+     * @param rows number of rows in the strip
+     * @return completes with the strip's altitudes in row-major order, {@code [row * w + col]}
+     */
+    public CompletableFuture<float[]> generateStripAsync(double x0, double z0, double dx, double dz,
+                                                         int w, int row0, int rows) {
+        PerlinNoise.checkGrid(Integer.MAX_VALUE, w, rows, 1);
+        final float[] out = new float[w * rows];
+        final int tileSize = tileSize(w, rows);
+        final int across = (w + tileSize - 1) / tileSize,
+                down = (rows + tileSize - 1) / tileSize;
+        return run(across * down, out, tile -> {
+            final int col0 = (tile % across) * tileSize,
+                    tileRow0 = (tile / across) * tileSize;
+            noise.fillGrid2(x0, z0, dx, dz, col0, row0 + tileRow0,
+                    Math.min(tileSize, w - col0), Math.min(tileSize, rows - tileRow0), out, tileRow0 * w + col0, w);
+        });
+    }
+
+    /**
+     * Start building a heightmap as separate square tiles, each in its own
+     * array, for callers which store or stream tiles individually.
+     *
+     * @param x0 east-west coordinate of the first column of the first tile
+     * @param z0 north-south coordinate of the first row of the first tile
+     * @param dx distance between columns
+     * @param dz distance between rows
+     * @param tileSize number of rows and of columns in each tile
+     * @param across number of tiles east-west
+     * @param down number of tiles north-south
+     * @return completes with the tiles, {@code [tileRow * across + tileCol]}, each in
+     * row-major order
+     */
+    public CompletableFuture<float[][]> generateTilesAsync(double x0, double z0, double dx, double dz,
+                                                           int tileSize, int across, int down) {
+        return generateTilesAsync(x0, z0, dx, dz, tileSize, 0, 0, across, down);
+    }
+
+    /**
+     * Start building some of the tiles of a larger tiled heightmap, each in
+     * its own array. Tiles come out exactly as they would from building the
+     * whole heightmap at once, so a large map can be built a band at a time.
+     *
+     * @param x0 east-west coordinate of the first column of the whole map
+     * @param z0 north-south coordinate of the first row of the whole map
+     * @param dx distance between columns
+     * @param dz distance between rows
+     * @param tileSize number of rows and of columns in each tile
+     * @param tx0 east-west index of the first tile to build
+     * @param tz0 north-south index of the first tile to build
+     * @param across number of tiles to build east-west
+     * @param down number of tiles to build north-south
+     * @return completes with the tiles, {@code [(tileRow - tz0) * across + (tileCol - tx0)]},
+     * each in row-major order
+     */
+    public CompletableFuture<float[][]> generateTilesAsync(double x0, double z0, double dx, double dz, int tileSize,
+                                                           int tx0, int tz0, int across, int down) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("tile size must be positive");
+        }
+        PerlinNoise.checkGrid(Integer.MAX_VALUE, across, down, 1);
+        PerlinNoise.checkGrid(Integer.MAX_VALUE, tileSize, tileSize, 1);
+        final float[][] tiles = new float[across * down][];
+        return run(tiles.length, tiles, tile -> {
+            final float[] out = new float[tileSize * tileSize];
+            noise.fillGrid2(x0, z0, dx, dz,
+                    Math.multiplyExact(tx0 + tile % across, tileSize), Math.multiplyExact(tz0 + tile / across, tileSize),
+                    tileSize, tileSize, out, 0, tileSize);
+            tiles[tile] = out;
+        });
+    }
+
+    /**
+     * Pick a tile edge for a region: as big as possible, up to
+     * {@link #MAX_TILE_SIZE}, while still giving each thread several tiles.
+     */
+    int tileSize(int w, int h) {
+        final long wanted = (long) parallelism * TILES_PER_THREAD;
+        int size = MAX_TILE_SIZE;
+        while (size > MIN_TILE_SIZE && tilesFor(w, h, size) < wanted) {
+            size >>= 1;
+        }
+        return size;
+    }
+
+    private static long tilesFor(int w, int h, int size) {
+        return (long) ((w + size - 1) / size) * ((h + size - 1) / size);
+    }
+
+    /**
+     * Hand every tile to the executor, completing the result once the
+     * last one is done. Tiles check for cancellation before they start.
+     */
+    private <T> CompletableFuture<T> run(int tiles, T result, TileTask task) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        if (tiles == 0) {
+            future.complete(result);
+            return future;
+        }
+        final AtomicInteger remaining = new AtomicInteger(tiles);
+        for (int i = 0; i < tiles && !future.isDone(); i++) {
+            final int tile = i;
+            try {
+                executor.execute(() -> {
+                    if (future.isDone()) {
+                        return;
+                    }
+                    try {
+                        if (NoiseMetrics.ENABLED) {
+                            final long start = System.nanoTime();
+                            task.fill(tile);
+                            NoiseMetrics.heightmapTile(System.nanoTime() - start);
+                        } else {
+                            task.fill(tile);
+                        }
+                    } catch (RuntimeException | Error e) {
+                        future.completeExceptionally(e);
+                        return;
+                    }
+                    if (remaining.decrementAndGet() == 0) {
+                        future.complete(result);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(e);
+            }
+        }
+        return future;
+    }
+
+    private interface TileTask {
+        void fill(int tile);
+    }
+}
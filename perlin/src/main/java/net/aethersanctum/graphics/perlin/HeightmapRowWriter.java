@@ -0,0 +1,41 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes a heightmap a few rows at a time, so that a map far bigger than
+ * the heap can be streamed out as it is generated.
+ */
+public interface HeightmapRowWriter extends Closeable {
+
+    /**
+     * Write the next rows of the heightmap.
+     *
+     * @param heights altitudes in row-major order, each row as wide as the heightmap
+     * @param offset where in heights the first row starts
+     * @param rows how many rows to write
+     * @throws IOException if they can't be written, or there are more rows than the heightmap has
+     */
+    void writeRows(float[] heights, int offset, int rows) throws IOException;
+
+    /**
+     * Finish the file and close the stream underneath.
+     * @throws IOException if it can't be finished, including when rows are missing
+     */
+    @Override
+    void close() throws IOException;
+}
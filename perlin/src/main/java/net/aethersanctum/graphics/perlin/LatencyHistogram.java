@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A rough distribution of how long something took, cheap enough to record
+ * from many threads at once.
+ * <p>
+ * Durations fall into power-of-two buckets of nanoseconds, so percentiles
+ * come out to within a factor of two, which is plenty to tell a slow tile
+ * from a fast one.
+ */
+@ThreadSafe
+public final class LatencyHistogram {
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder totalNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos how long one piece of work took
+     */
+    public void record(long nanos) {
+        counts[bucket(nanos)].increment();
+        totalNanos.add(nanos);
+    }
+
+    /**
+     * @return how many durations have been recorded
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : counts) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return all the recorded durations added up
+     */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * @return how many durations fell in each bucket; bucket {@code b} holds
+     *         those from {@code 2^(b-1)} up to {@code 2^b} nanoseconds
+     */
+    public long[] getCounts() {
+        final long[] result = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            result[i] = counts[i].sum();
+        }
+        return result;
+    }
+
+    /**
+     * @param fraction how much of the work should be no slower, from 0 to 1
+     * @return the top of the bucket holding that percentile, in nanoseconds; 0 if nothing is recorded
+     */
+    public long percentile(double fraction) {
+        final long[] snapshot = getCounts();
+        long count = 0;
+        for (long bucket : snapshot) {
+            count += bucket;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        final long wanted = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= wanted) {
+                return i == BUCKETS - 1 ? Long.MAX_VALUE : 1L << i;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Forget everything recorded so far.
+     */
+    public void reset() {
+        for (LongAdder bucket : counts) {
+            bucket.reset();
+        }
+        totalNanos.reset();
+    }
+
+    private static int bucket(long nanos) {
+        return nanos <= 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(nanos);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import static net.aethersanctum.graphics.perlin.PerlinUtil.lerp;
+import static net.aethersanctum.graphics.perlin.PerlinUtil.sCurve;
+
+/**
+ * Helpers for finding conservative bounds on lattice gradient noise over
+ * a rectangle, as {@link NoiseEngine#noise2Bounds} does.
+ * <p>
+ * Inside one lattice cell, 2d gradient noise blends the four corners'
+ * contributions {@code g . (p - corner)}, first along x by the s-curve of
+ * the position across the cell and then along y. Each contribution is
+ * linear in p, so its extremes over a rectangle are at the rectangle's
+ * corners and can be had exactly. The s-curve rises across the cell, so
+ * over the rectangle it lies between its values at the rectangle's edges,
+ * and a blend of two ranges by a weight in a range has its extremes where
+ * the weight does. Bounding each blend that way gives bounds which shrink
+ * with the rectangle, and never exceed the corners' contributions.
+ */
+final class NoiseBounds {
+    /**
+     * Largest magnitude of 2d lattice noise with unit gradients, which is
+     * reached at the middle of a cell whose gradients all point at it.
+     */
+    static final double UNIT_GRADIENTS_2D = Math.sqrt(0.5);
+
+    /**
+     * Regions spanning more cells than this are bounded by the noise's
+     * whole range rather than cell by cell.
+     */
+    static final int MAX_CELLS = 16;
+
+    /**
+     * How much bounds are widened by, to cover rounding in the noise itself.
+     */
+    static final double SLACK = 1e-9;
+
+    private NoiseBounds() {
+    }
+
+    /**
+     * Widen bounds to cover the noise over part of one lattice cell.
+     *
+     * @param q flat array of 2d gradients
+     * @param g00 index in q of the gradient at the cell's lower corner
+     * @param g10 index of the gradient at the corner one along x
+     * @param g01 index of the gradient at the corner one along y
+     * @param g11 index of the gradient at the opposite corner
+     * @param fromX least position across the cell along x, from 0 to 1
+     * @param toX greatest position across the cell along x
+     * @param fromY least position across the cell along y
+     * @param toY greatest position across the cell along y
+     * @param out the bounds so far, lower then upper, to widen
+     */
+    static void cell(double[] q, int g00, int g10, int g01, int g11,
+                     double fromX, double toX, double fromY, double toY, double[] out) {
+        final double sx0 = sCurve(fromX), sx1 = sCurve(toX),
+                sy0 = sCurve(fromY), sy1 = sCurve(toY),
+                aLow = blendMin(sx0, sx1,
+                        cornerMin(q[g00], q[g00 + 1], 0, 0, fromX, toX, fromY, toY),
+                        cornerMin(q[g10], q[g10 + 1], 1, 0, fromX, toX, fromY, toY)),
+                aHigh = blendMax(sx0, sx1,
+                        cornerMax(q[g00], q[g00 + 1], 0, 0, fromX, toX, fromY, toY),
+                        cornerMax(q[g10], q[g10 + 1], 1, 0, fromX, toX, fromY, toY)),
+                bLow = blendMin(sx0, sx1,
+                        cornerMin(q[g01], q[g01 + 1], 0, 1, fromX, toX, fromY, toY),
+                        cornerMin(q[g11], q[g11 + 1], 1, 1, fromX, toX, fromY, toY)),
+                bHigh = blendMax(sx0, sx1,
+                        cornerMax(q[g01], q[g01 + 1], 0, 1, fromX, toX, fromY, toY),
+                        cornerMax(q[g11], q[g11 + 1], 1, 1, fromX, toX, fromY, toY));
+        out[0] = Math.min(out[0], blendMin(sy0, sy1, aLow, bLow));
+        out[1] = Math.max(out[1], blendMax(sy0, sy1, aHigh, bHigh));
+    }
+
+    /**
+     * @return the least value of {@code lerp(s, a, b)} for s from s0 to s1,
+     * given a and b at their least
+     */
+    private static double blendMin(double s0, double s1, double aLow, double bLow) {
+        return Math.min(lerp(s0, aLow, bLow), lerp(s1, aLow, bLow));
+    }
+
+    /**
+     * @return the greatest value of {@code lerp(s, a, b)} for s from s0 to s1,
+     * given a and b at their greatest
+     */
+    private static double blendMax(double s0, double s1, double aHigh, double bHigh) {
+        return Math.max(lerp(s0, aHigh, bHigh), lerp(s1, aHigh, bHigh));
+    }
+
+    /**
+     * @return the least value of {@code gx * (rx - ox) + gy * (ry - oy)} for
+     * rx from ax to bx and ry from ay to by
+     */
+    private static double cornerMin(double gx, double gy, double ox, double oy, double ax, double bx, double ay, double by) {
+        return gx * ((gx >= 0 ? ax : bx) - ox) + gy * ((gy >= 0 ? ay : by) - oy);
+    }
+
+    /**
+     * @return the greatest value of {@code gx * (rx - ox) + gy * (ry - oy)} for
+     * rx from ax to bx and ry from ay to by
+     */
+    private static double cornerMax(double gx, double gy, double ox, double oy, double ax, double bx, double ay, double by) {
+        return gx * ((gx >= 0 ? bx : ax) - ox) + gy * ((gy >= 0 ? by : ay) - oy);
+    }
+
+    /**
+     * Finish bounds, widening them by {@link #SLACK} and limited to the noise's whole range.
+     */
+    static void store(double[] out, double range) {
+        out[0] = Math.max(out[0] - SLACK, -range);
+        out[1] = Math.min(out[1] + SLACK, range);
+    }
+
+    static void checkRectangle(double x0, double y0, double x1, double y1, double[] out) {
+        if (!(x0 <= x1 && y0 <= y1)) {
+            throw new IllegalArgumentException("rectangle from (" + x0 + ", " + y0 + ") to (" + x1 + ", " + y1 + ") is empty");
+        }
+        if (out.length < 2) {
+            throw new IllegalArgumentException("bounds need an array of at least 2");
+        }
+    }
+}
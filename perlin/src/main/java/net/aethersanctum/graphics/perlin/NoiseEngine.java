@@ -0,0 +1,132 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A seeded coherent noise function, such as {@link PerlinNoise} or
+ * {@link SimplexNoise}, which {@link FractalNoise} can sum into a landscape.
+ * <p>
+ * Implementations hold no mutable state and can be shared by any number
+ * of threads.
+ */
+public interface NoiseEngine {
+
+    /**
+     * @return the seed this noise was created from
+     */
+    long getSeed();
+
+    /**
+     * @return a noise value for a point in 2d space
+     */
+    double noise2(double x, double y);
+
+    /**
+     * @return a noise value for a point in 3d space
+     */
+    double noise3(double x, double y, double z);
+
+    /**
+     * Find a noise value in 2d space together with its slope.
+     * @param out receives the value, then its derivatives along x and y
+     * @return the noise value, as {@link #noise2} gives it
+     */
+    double noise2WithGradient(double x, double y, double[] out);
+
+    /**
+     * Find bounds which {@link #noise2} is sure to lie within everywhere in
+     * a rectangle, for callers which want to rule out whole regions without
+     * sampling them. The bounds need not be tight. Engines which can't
+     * bound their noise give negative and positive infinity, as this does.
+     *
+     * @param x0 least x of the rectangle
+     * @param y0 least y of the rectangle
+     * @param x1 greatest x of the rectangle, at least x0
+     * @param y1 greatest y of the rectangle, at least y0
+     * @param out receives the lower bound, then the upper bound
+     */
+    default void noise2Bounds(double x0, double y0, double x1, double y1, double[] out) {
+        out[0] = Double.NEGATIVE_INFINITY;
+        out[1] = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Find bounds which {@link #noise2} is sure to lie within anywhere at
+     * all, such as for fixing the range of quantized samples. Engines which
+     * can't bound their noise give negative and positive infinity, as this does.
+     *
+     * @param out receives the lower bound, then the upper bound
+     */
+    default void noise2Range(double[] out) {
+        out[0] = Double.NEGATIVE_INFINITY;
+        out[1] = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Fill a regular grid of points in 2d space with the noise values
+     * {@link #noise2} gives at {@code (x0 + col * dx, y0 + row * dy)}.
+     *
+     * @param out receives the values in row-major order, {@code out[row * w + col]}
+     */
+    void fillGrid2(double x0, double y0, double dx, double dy, int w, int h, double[] out);
+
+    /**
+     * Fill a block of a larger grid in 2d space with noise values in single
+     * precision. The value for a column and row of the larger grid is the
+     * same whichever block it is filled as part of.
+     *
+     * @param col0 first column of the block to fill
+     * @param row0 first row of the block to fill
+     * @param out receives the values, {@code out[offset + row * stride + col]}
+     * @param offset where in out the block's first value goes
+     * @param stride distance in out between the starts of consecutive rows
+     */
+    void fillGrid2(double x0, double y0, double dx, double dy, int col0, int row0, int w, int h,
+                   float[] out, int offset, int stride);
+
+    /**
+     * Fill a regular grid of points in 2d space with noise values in single precision.
+     *
+     * @param out receives the values in row-major order, {@code out[row * w + col]}
+     */
+    default void fillGrid2(double x0, double y0, double dx, double dy, int w, int h, float[] out) {
+        fillGrid2(x0, y0, dx, dy, 0, 0, w, h, out, 0, w);
+    }
+
+    /**
+     * Fill a block of a larger grid in 2d space with noise values straight
+     * into a buffer, such as a direct buffer to be handed to native code or
+     * uploaded to a GPU, a band of rows at a time. Samples are written in the
+     * buffer's byte order, at absolute positions, leaving its position and
+     * the bytes between samples alone. {@link SampleFormat#FLOAT32} samples
+     * are those of the single precision fill and {@link SampleFormat#FLOAT64}
+     * ones those of the double precision fill; {@link SampleFormat#UINT16}
+     * ones are quantized by {@link HeightQuantizer#forNoise}.
+     *
+     * @param col0 first column of the block to fill
+     * @param row0 first row of the block to fill
+     * @param out receives the samples; the sample for a row and column of the
+     *            block starts at byte {@code offset + row * rowStride + col * sampleStride}
+     * @param offset where in out the block's first sample goes, in bytes
+     * @param sampleStride distance in out between the starts of consecutive samples in a row, in bytes
+     * @param rowStride distance in out between the starts of consecutive rows, in bytes
+     * @param format how each sample is written
+     */
+    default void fillGrid2(double x0, double y0, double dx, double dy, int col0, int row0, int w, int h,
+                           ByteBuffer out, int offset, int sampleStride, int rowStride, SampleFormat format) {
+        GridFills.intoBuffer(this, x0, y0, dx, dy, col0, row0, w, h, out, offset, sampleStride, rowStride, format);
+    }
+}
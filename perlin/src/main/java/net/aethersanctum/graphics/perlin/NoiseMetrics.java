@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts how much noise is being made: samples per dimension, octaves
+ * summed by {@link FractalNoise}, and how long {@link HeightmapGenerator}
+ * tiles take.
+ * <p>
+ * Off unless the JVM is started with {@code -Daether.perlin.metrics=true},
+ * in which case the counts are also published through JMX as a
+ * {@link NoiseMetricsMXBean}. The switch is read once into a constant, so
+ * when it is off the JIT drops the counting calls from compiled code;
+ * {@code MetricsBenchmark} compares that against a copy of the octave sum
+ * with no counting in it.
+ */
+@ThreadSafe
+public final class NoiseMetrics {
+    /** System property which turns counting on. */
+    public static final String PROPERTY = "aether.perlin.metrics";
+    /** Where the counts appear in JMX. */
+    public static final String OBJECT_NAME = "net.aethersanctum.graphics.perlin:type=NoiseMetrics";
+    /** Whether anything is being counted. */
+    public static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+
+    private static final LongAdder[] samples = {new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder()};
+    private static final LongAdder octaves = new LongAdder();
+    private static final LatencyHistogram heightmapTiles = new LatencyHistogram();
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                // already registered by another copy of this class; counting still works
+            }
+        }
+    }
+
+    private NoiseMetrics() {
+    }
+
+    /**
+     * @param dimensions 1 to 4
+     * @return noise values computed in that many dimensions since the last reset
+     */
+    public static long getSamples(int dimensions) {
+        if (dimensions < 1 || dimensions > 4) {
+            throw new IllegalArgumentException("noise has 1 to 4 dimensions, not " + dimensions);
+        }
+        return samples[dimensions].sum();
+    }
+
+    /**
+     * @return octaves summed into landscape values, counting each point's octaves separately
+     */
+    public static long getOctaveEvaluations() {
+        return octaves.sum();
+    }
+
+    /**
+     * @return how long heightmap tiles have taken to generate
+     */
+    public static LatencyHistogram getHeightmapTileLatency() {
+        return heightmapTiles;
+    }
+
+    /**
+     * Start counting again from zero.
+     */
+    public static void reset() {
+        for (LongAdder adder : samples) {
+            adder.reset();
+        }
+        octaves.reset();
+        heightmapTiles.reset();
+    }
+
+    static void sampled(int dimensions, long count) {
+        if (ENABLED) {
+            samples[dimensions].add(count);
+        }
+    }
+
+    static void octaves(long count) {
+        if (ENABLED) {
+            octaves.add(count);
+        }
+    }
+
+    static void heightmapTile(long nanos) {
+        if (ENABLED) {
+            heightmapTiles.record(nanos);
+        }
+    }
+
+    private static final class Bean implements NoiseMetricsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return ENABLED;
+        }
+
+        @Override
+        public long getSamples1d() {
+            return getSamples(1);
+        }
+
+        @Override
+        public long getSamples2d() {
+            return getSamples(2);
+        }
+
+        @Override
+        public long getSamples3d() {
+            return getSamples(3);
+        }
+
+        @Override
+        public long getSamples4d() {
+            return getSamples(4);
+        }
+
+        @Override
+        public long getOctaveEvaluations() {
+            return NoiseMetrics.getOctaveEvaluations();
+        }
+
+        @Override
+        public long getHeightmapTiles() {
+            return heightmapTiles.getCount();
+        }
+
+        @Override
+        public long getHeightmapTileMedianNanos() {
+            return heightmapTiles.percentile(0.5);
+        }
+
+        @Override
+        public long getHeightmapTile99thPercentileNanos() {
+            return heightmapTiles.percentile(0.99);
+        }
+
+        @Override
+        public long[] getHeightmapTileLatencyCounts() {
+            return heightmapTiles.getCounts();
+        }
+
+        @Override
+        public void reset() {
+            NoiseMetrics.reset();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+/**
+ * What {@link NoiseMetrics} shows through JMX, under
+ * {@value NoiseMetrics#OBJECT_NAME}.
+ */
+public interface NoiseMetricsMXBean {
+
+    boolean isEnabled();
+
+    long getSamples1d();
+
+    long getSamples2d();
+
+    long getSamples3d();
+
+    long getSamples4d();
+
+    long getOctaveEvaluations();
+
+    long getHeightmapTiles();
+
+    long getHeightmapTileMedianNanos();
+
+    long getHeightmapTile99thPercentileNanos();
+
+    long[] getHeightmapTileLatencyCounts();
+
+    void reset();
+}
@@ -0,0 +1,412 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A node in a graph of noise operations over the plane, such as a noise
+ * source, a sum of two modules or a warped copy of another module.
+ * <p>
+ * Modules are built from a source with the combining methods, for example
+ * a ridged landscape warped by a second noise:
+ * <pre>
+ * NoiseModule ridges = NoiseModule.source(perlin).abs().multiply(-1).add(1).fractal(6, 2, 0.5);
+ * NoiseModule warped = ridges.warp(NoiseModule.source(other), NoiseModule.source(other).shiftDomain(5.2, 1.3), 0.5);
+ * </pre>
+ * {@link #value} walks the graph for one point, which is simple but makes
+ * several virtual calls per node. For many points, {@link #compile} the
+ * graph into a {@link CompiledNoise}, which evaluates it as a flat list of
+ * operations over blocks of points.
+ * <p>
+ * Modules are immutable and can be shared between graphs and threads.
+ */
+@Immutable
+public abstract class NoiseModule {
+
+    NoiseModule() {
+    }
+
+    /**
+     * @param noise gives the value at each point, from {@link NoiseEngine#noise2}
+     * @return a module giving noise values
+     */
+    public static NoiseModule source(NoiseEngine noise) {
+        if (noise == null) {
+            throw new IllegalArgumentException("noise source must not be null");
+        }
+        return new Source(noise);
+    }
+
+    /**
+     * @return a module with the same value everywhere
+     */
+    public static NoiseModule constant(double value) {
+        return new Constant(value);
+    }
+
+    /**
+     * @return a module giving this module's value plus the other's
+     */
+    public NoiseModule add(NoiseModule other) {
+        return new Binary(NoiseOp.ADD, this, other);
+    }
+
+    /**
+     * @return a module giving this module's value plus a constant
+     */
+    public NoiseModule add(double bias) {
+        return new Affine(this, 1, bias);
+    }
+
+    /**
+     * @return a module giving this module's value times the other's
+     */
+    public NoiseModule multiply(NoiseModule other) {
+        return new Binary(NoiseOp.MUL, this, other);
+    }
+
+    /**
+     * @return a module giving this module's value times a constant
+     */
+    public NoiseModule multiply(double scale) {
+        return new Affine(this, scale, 0);
+    }
+
+    /**
+     * @return a module giving the magnitude of this module's value, as
+     * used for turbulence and, inverted, for ridges
+     */
+    public NoiseModule abs() {
+        return new Abs(this);
+    }
+
+    /**
+     * @return a module giving this module's value limited to a range
+     */
+    public NoiseModule clamp(double min, double max) {
+        if (!(min <= max)) {
+            throw new IllegalArgumentException("clamp range " + min + " to " + max + " is empty");
+        }
+        return new Clamp(this, min, max);
+    }
+
+    /**
+     * Stretch this module across the plane.
+     * @return a module whose value at (x, z) is this module's at {@code (x * scaleX, z * scaleZ)}
+     */
+    public NoiseModule scaleDomain(double scaleX, double scaleZ) {
+        return new Domain(this, scaleX, scaleZ, 0, 0);
+    }
+
+    /**
+     * Move this module across the plane, as is useful to take unrelated
+     * samples from the same source.
+     * @return a module whose value at (x, z) is this module's at {@code (x + shiftX, z + shiftZ)}
+     */
+    public NoiseModule shiftDomain(double shiftX, double shiftZ) {
+        return new Domain(this, 1, 1, shiftX, shiftZ);
+    }
+
+    /**
+     * Distort this module by displacing each point by two other modules.
+     * @param warpX gives the displacement along x
+     * @param warpZ gives the displacement along z
+     * @param strength multiplies both displacements
+     * @return a module whose value at (x, z) is this module's at
+     * {@code (x + strength * warpX(x, z), z + strength * warpZ(x, z))}
+     */
+    public NoiseModule warp(NoiseModule warpX, NoiseModule warpZ, double strength) {
+        return new Warp(this, warpX, warpZ, strength);
+    }
+
+    /**
+     * Sum several octaves of this module, each at a finer scale and lower
+     * amplitude than the last, as {@link FractalNoise} does for plain noise.
+     * @param octaves how many copies to sum
+     * @param lacunarity how much finer each octave is than the last
+     * @param gain how much each octave's amplitude is multiplied by
+     * @return a module giving the sum over octaves {@code i} of
+     * {@code gain^i * this(x * lacunarity^i, z * lacunarity^i)}
+     */
+    public NoiseModule fractal(int octaves, double lacunarity, double gain) {
+        if (octaves < 1) {
+            throw new IllegalArgumentException("there must be at least one octave");
+        }
+        return new Fractal(this, octaves, lacunarity, gain);
+    }
+
+    /**
+     * Flatten this graph for fast evaluation over many points.
+     */
+    public CompiledNoise compile() {
+        return new CompiledNoise(this);
+    }
+
+    /**
+     * Find this module's value for one point by walking the graph.
+     */
+    public abstract double value(double x, double z);
+
+    /**
+     * Emit the operations computing this module at the points in two
+     * registers, into a register the caller then owns.
+     */
+    abstract int emit(CompiledNoise.Compiler compiler, int x, int z);
+
+    private static final class Source extends NoiseModule {
+        private final NoiseEngine noise;
+
+        Source(NoiseEngine noise) {
+            this.noise = noise;
+        }
+
+        @Override
+        public double value(double x, double z) {
+            return noise.noise2(x, z);
+        }
+
+        @Override
+        int emit(CompiledNoise.Compiler compiler, int x, int z) {
+            final int out = compiler.allocate();
+            compiler.add(NoiseOp.noise(out, x, z, noise));
+            return out;
+        }
+    }
+
+    private static final class Constant extends NoiseModule {
+        private final double value;
+
+        Constant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double value(double x, double z) {
+            return value;
+        }
+
+        @Override
+        int emit(CompiledNoise.Compiler compiler, int x, int z) {
+            final int out = compiler.allocate();
+            compiler.add(new NoiseOp(NoiseOp.CONST, out, 0, 0, value, 0));
+            return out;
+        }
+    }
+
+    private static final class Binary extends NoiseModule {
+        private final int code;
+        private final NoiseModule a;
+        private final NoiseModule b;
+
+        Binary(int code, NoiseModule a, NoiseModule b) {
+            if (a == null || b == null) {
+                throw new IllegalArgumentException("modules must not be null");
+            }
+            this.code = code;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public double value(double x, double z) {
+            return code == NoiseOp.ADD ? a.value(x, z) + b.value(x, z) : a.value(x, z) * b.value(x, z);
+        }
+
+        @Override
+        int emit(CompiledNoise.Compiler compiler, int x, int z) {
+            final int ra = a.emit(compiler, x, z), rb = b.emit(compiler, x, z);
+            compiler.add(new NoiseOp(code, ra, ra, rb, 0, 0));
+            compiler.release(rb);
+            return ra;
+        }
+    }
+
+    private static final class Affine extends NoiseModule {
+        private final NoiseModule source;
+        private final double scale;
+        private final double bias;
+
+        Affine(NoiseModule source, double scale, double bias) {
+            this.source = source;
+            this.scale = scale;
+            this.bias = bias;
+        }
+
+        @Override
+        public double value(double x, double z) {
+            return source.value(x, z) * scale + bias;
+        }
+
+        @Override
+        int emit(CompiledNoise.Compiler compiler, int x, int z) {
+            final int out = source.emit(compiler, x, z);
+            compiler.add(new NoiseOp(NoiseOp.AFFINE, out, out, 0, scale, bias));
+            return out;
+        }
+    }
+
+    private static final class Abs extends NoiseModule {
+        private final NoiseModule source;
+
+        Abs(NoiseModule source) {
+            this.source = source;
+        }
+
+        @Override
+        public double value(double x, double z) {
+            return Math.abs(source.value(x, z));
+        }
+
+        @Override
+        int emit(CompiledNoise.Compiler compiler, int x, int z) {
+            final int out = source.emit(compiler, x, z);
+            compiler.add(new NoiseOp(NoiseOp.ABS, out, out, 0, 0, 0));
+            return out;
+        }
+    }
+
+    private static final class Clamp extends NoiseModule {
+        private final NoiseModule source;
+        private final double min;
+        private final double max;
+
+        Clamp(NoiseModule source, double min, double max) {
+            this.source = source;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public double value(double x, double z) {
+            return NoiseOp.clamp(source.value(x, z), min, max);
+        }
+
+        @Override
+        int emit(CompiledNoise.Compiler compiler, int x, int z) {
+            final int out = source.emit(compiler, x, z);
+            compiler.add(new NoiseOp(NoiseOp.CLAMP, out, out, 0, min, max));
+            return out;
+        }
+    }
+
+    private static final class Domain extends NoiseModule {
+        private final NoiseModule source;
+        private final double scaleX, scaleZ;
+        private final double shiftX, shiftZ;
+
+        Domain(NoiseModule source, double scaleX, double scaleZ, double shiftX, double shiftZ) {
+            this.source = source;
+            this.scaleX = scaleX;
+            this.scaleZ = scaleZ;
+            this.shiftX = shiftX;
+            this.shiftZ = shiftZ;
+        }
+
+        @Override
+        public double value(double x, double z) {
+            return source.value(x * scaleX + shiftX, z * scaleZ + shiftZ);
+        }
+
+        @Override
+        int emit(CompiledNoise.Compiler compiler, int x, int z) {
+            final int sx = compiler.allocate(), sz = compiler.allocate();
+            compiler.add(new NoiseOp(NoiseOp.AFFINE, sx, x, 0, scaleX, shiftX));
+            compiler.add(new NoiseOp(NoiseOp.AFFINE, sz, z, 0, scaleZ, shiftZ));
+            final int out = source.emit(compiler, sx, sz);
+            compiler.release(sx);
+            compiler.release(sz);
+            return out;
+        }
+    }
+
+    private static final class Warp extends NoiseModule {
+        private final NoiseModule source;
+        private final NoiseModule warpX;
+        private final NoiseModule warpZ;
+        private final double strength;
+
+        Warp(NoiseModule source, NoiseModule warpX, NoiseModule warpZ, double strength) {
+            if (warpX == null || warpZ == null) {
+                throw new IllegalArgumentException("warp modules must not be null");
+            }
+            this.source = source;
+            this.warpX = warpX;
+            this.warpZ = warpZ;
+            this.strength = strength;
+        }
+
+        @Override
+        public double value(double x, double z) {
+            return source.value(x + warpX.value(x, z) * strength, z + warpZ.value(x, z) * strength);
+        }
+
+        @Override
+        int emit(CompiledNoise.Compiler compiler, int x, int z) {
+            final int wx = warpX.emit(compiler, x, z), wz = warpZ.emit(compiler, x, z);
+            compiler.add(new NoiseOp(NoiseOp.MUL_ADD, wx, x, wx, strength, 0));
+            compiler.add(new NoiseOp(NoiseOp.MUL_ADD, wz, z, wz, strength, 0));
+            final int out = source.emit(compiler, wx, wz);
+            compiler.release(wx);
+            compiler.release(wz);
+            return out;
+        }
+    }
+
+    private static final class Fractal extends NoiseModule {
+        private final NoiseModule source;
+        private final int octaves;
+        private final double lacunarity;
+        private final double gain;
+
+        Fractal(NoiseModule source, int octaves, double lacunarity, double gain) {
+            this.source = source;
+            this.octaves = octaves;
+            this.lacunarity = lacunarity;
+            this.gain = gain;
+        }
+
+        @Override
+        public double value(double x, double z) {
+            double sum = source.value(x, z);
+            double amp = 1, ascale = 1;
+            for (int round = 1; round < octaves; round++) {
+                amp *= gain;
+                ascale *= lacunarity;
+                sum += source.value(x * ascale, z * ascale) * amp;
+            }
+            return sum;
+        }
+
+        @Override
+        int emit(CompiledNoise.Compiler compiler, int x, int z) {
+            // unrolled, so every octave is a straight run of operations
+            final int sum = source.emit(compiler, x, z);
+            final int sx = compiler.allocate(), sz = compiler.allocate();
+            double amp = 1, ascale = 1;
+            for (int round = 1; round < octaves; round++) {
+                amp *= gain;
+                ascale *= lacunarity;
+                compiler.add(new NoiseOp(NoiseOp.AFFINE, sx, x, 0, ascale, 0));
+                compiler.add(new NoiseOp(NoiseOp.AFFINE, sz, z, 0, ascale, 0));
+                final int octave = source.emit(compiler, sx, sz);
+                compiler.add(new NoiseOp(NoiseOp.MUL_ADD, sum, sum, octave, amp, 0));
+                compiler.release(octave);
+            }
+            compiler.release(sx);
+            compiler.release(sz);
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+/**
+ * One operation of a {@link CompiledNoise} program, applied to every point
+ * of a block: it reads registers a and b and writes register dst.
+ */
+final class NoiseOp {
+    /** dst = noise(a, b) */
+    static final int NOISE = 0;
+    /** dst = k */
+    static final int CONST = 1;
+    /** dst = a * k + c */
+    static final int AFFINE = 2;
+    /** dst = a + b */
+    static final int ADD = 3;
+    /** dst = a * b */
+    static final int MUL = 4;
+    /** dst = a + b * k */
+    static final int MUL_ADD = 5;
+    /** dst = |a| */
+    static final int ABS = 6;
+    /** dst = a limited to k..c */
+    static final int CLAMP = 7;
+
+    final int code;
+    final int dst;
+    final int a;
+    final int b;
+    final double k;
+    final double c;
+    final NoiseEngine noise;
+    /** the same source when it is Perlin noise, which has a bulk method */
+    final PerlinNoise perlin;
+
+    NoiseOp(int code, int dst, int a, int b, double k, double c) {
+        this(code, dst, a, b, k, c, null);
+    }
+
+    private NoiseOp(int code, int dst, int a, int b, double k, double c, NoiseEngine noise) {
+        this.code = code;
+        this.dst = dst;
+        this.a = a;
+        this.b = b;
+        this.k = k;
+        this.c = c;
+        this.noise = noise;
+        this.perlin = noise instanceof PerlinNoise ? (PerlinNoise) noise : null;
+    }
+
+    static NoiseOp noise(int dst, int x, int z, NoiseEngine noise) {
+        return new NoiseOp(NOISE, dst, x, z, 0, 0, noise);
+    }
+
+    static double clamp(double v, double min, double max) {
+        return v < min ? min : v > max ? max : v;
+    }
+
+    /**
+     * Apply this operation to the first count points of each register.
+     */
+    void run(double[][] registers, int count) {
+        final double[] out = registers[dst], as = registers[a], bs = registers[b];
+        switch (code) {
+            case NOISE:
+                if (perlin != null) {
+                    perlin.noise2(as, bs, out, count);
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        out[i] = noise.noise2(as[i], bs[i]);
+                    }
+                }
+                break;
+            case CONST:
+                for (int i = 0; i < count; i++) {
+                    out[i] = k;
+                }
+                break;
+            case AFFINE:
+                for (int i = 0; i < count; i++) {
+                    out[i] = as[i] * k + c;
+                }
+                break;
+            case ADD:
+                for (int i = 0; i < count; i++) {
+                    out[i] = as[i] + bs[i];
+                }
+                break;
+            case MUL:
+                for (int i = 0; i < count; i++) {
+                    out[i] = as[i] * bs[i];
+                }
+                break;
+            case MUL_ADD:
+                for (int i = 0; i < count; i++) {
+                    out[i] = as[i] + bs[i] * k;
+                }
+                break;
+            case ABS:
+                for (int i = 0; i < count; i++) {
+                    out[i] = Math.abs(as[i]);
+                }
+                break;
+            case CLAMP:
+                for (int i = 0; i < count; i++) {
+                    out[i] = clamp(as[i], k, c);
+                }
+                break;
+            default:
+                throw new IllegalStateException("unknown operation " + code);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final String[] names = {"noise", "const", "affine", "add", "mul", "mul_add", "abs", "clamp"};
+        return names[code] + " r" + dst + " <- r" + a + ", r" + b + ", " + k + ", " + c;
+    }
+}
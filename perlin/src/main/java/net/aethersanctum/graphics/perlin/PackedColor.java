@@ -0,0 +1,49 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+/**
+ * Colours packed into an int as ARGB, worked on without making a {@link java.awt.Color}.
+ */
+public final class PackedColor {
+    private PackedColor() {
+    }
+
+    /**
+     * @return an opaque colour; each channel is clamped to 0 to 255
+     */
+    public static int argb(int red, int green, int blue) {
+        return 0xff000000 | channel(red) << 16 | channel(green) << 8 | channel(blue);
+    }
+
+    /**
+     * Scale a colour's brightness, keeping its alpha.
+     *
+     * @param argb the colour
+     * @param illumination how much light falls on it; 1 leaves it unchanged
+     * @return the lit colour, each channel clamped at 255
+     */
+    public static int shade(int argb, double illumination) {
+        // 8 bits of fraction is as fine as the channels themselves
+        final int level = illumination > 0 ? (int) Math.min(illumination * 256, 0x10000) : 0;
+        final int red = (argb >>> 16 & 0xff) * level >> 8,
+                green = (argb >>> 8 & 0xff) * level >> 8,
+                blue = (argb & 0xff) * level >> 8;
+        return argb & 0xff000000 | Math.min(255, red) << 16 | Math.min(255, green) << 8 | Math.min(255, blue);
+    }
+
+    private static int channel(int level) {
+        return Math.max(0, Math.min(255, level));
+    }
+}
@@ -13,13 +13,15 @@
  */
 package net.aethersanctum.graphics.perlin;
 
-import static java.lang.Math.sqrt;
+import static net.aethersanctum.graphics.perlin.PerlinTables.RANGE_MASK;
+import static net.aethersanctum.graphics.perlin.PerlinTables.RANGE_OFFSET;
+import static net.aethersanctum.graphics.perlin.PerlinTables.RANGE_SIZE;
 import static net.aethersanctum.graphics.perlin.PerlinUtil.lerp;
 import static net.aethersanctum.graphics.perlin.PerlinUtil.sCurve;
 
 import java.util.Random;
 
-import net.jcip.annotations.NotThreadSafe;
+import net.jcip.annotations.ThreadSafe;
 
 /**
  * Perlin's Coherent noise functions over 1, 2 or 3 dimensions.
@@ -29,99 +31,109 @@ import net.jcip.annotations.NotThreadSafe;
  * http://cims.nyu.edu/~perlin/doc/oscar.html#noise
  * <p>
  * This Java translation avoids object allocations during calls to
- * noise functions, by reusing some Range structures. This is why
- * it is not thread-safe to use one instance in multiple threads.
- * If you need to do that, create an instance for each thread.
+ * noise functions by keeping all per-call lattice state in local
+ * variables. Instances hold no mutable state, so one instance can
+ * safely be shared by any number of threads.
+ * <p>
+ * Each instance belongs to a world picked by a seed, and instances with
+ * equal seeds share the same read-only tables.
  * <p>
  * Usage: create an instance then call noise1, noise2 or noise3.
  */
-@NotThreadSafe
-public final class PerlinNoise {
-    private static final int RANGE_SIZE = 0x100;
-    private static final int RANGE_MASK = 0xff;
-    private static final int RANGE_OFFSET = 0x1000;
-
-    private static final int SLOT_COUNT = RANGE_SIZE + RANGE_SIZE + 2;
-
-    private static final int[] indices = new int[SLOT_COUNT];
-    private static final double[][] seeds3d = new double[SLOT_COUNT][3];
-    private static final double[][] seeds2d = new double[SLOT_COUNT][2];
-    private static final double[] seeds1d = new double[SLOT_COUNT];
-
-    private static final Random random = new Random();
-
-    static {
-        int i;
-        int j;
-        int k;
-
-        for (i = 0; i < RANGE_SIZE; i++) {
-            indices[i] = i;
+@ThreadSafe
+public final class PerlinNoise implements NoiseEngine {
+    /**
+     * How far results of the bulk methods may differ from the scalar ones.
+     */
+    public static final double BULK_TOLERANCE = 1e-12;
 
-            seeds1d[i] = randomSignedDouble();
+    private final long seed;
+    private final PerlinTables tables;
+    private final int[] indices;
+    private final double[] seeds1d;
+    private final double[] seeds2d;
+    private final double[] seeds3d;
+    private final FloatPerlinNoise singles;
 
-            for (j = 0; j < 2; j++) {
-                seeds2d[i][j] = randomSignedDouble();
-            }
-            normalize2(seeds2d[i]);
-
-            for (j = 0; j < 3; j++) {
-                seeds3d[i][j] = randomSignedDouble();
-            }
-            normalize3(seeds3d[i]);
-        }
+    /**
+     * Create noise for a world picked at random.
+     */
+    public PerlinNoise() {
+        this(new Random().nextLong());
+    }
 
-        while (--i != 0) {
-            k = indices[i];
-            j = randomPositiveInt() % RANGE_SIZE;
-            indices[i] = indices[j];
-            indices[j] = k;
-        }
+    /**
+     * Create noise for a particular world. Instances made from the same
+     * seed produce identical noise, in this JVM or any other.
+     * @param seed the world seed
+     */
+    public PerlinNoise(long seed) {
+        final PerlinTables tables = PerlinTables.forSeed(seed);
+        this.seed = seed;
+        this.tables = tables;
+        this.indices = tables.indices;
+        this.seeds1d = tables.seeds1d;
+        this.seeds2d = tables.seeds2d;
+        this.seeds3d = tables.seeds3d;
+        this.singles = new FloatPerlinNoise(tables);
+    }
 
-        for (i = 0; i < RANGE_SIZE + 2; i++) {
-            indices[RANGE_SIZE + i] = indices[i];
-            seeds1d[RANGE_SIZE + i] = seeds1d[i];
-            for (j = 0; j < 2; j++) {
-                seeds2d[RANGE_SIZE + i][j] = seeds2d[i][j];
-            }
-            for (j = 0; j < 3; j++) {
-                seeds3d[RANGE_SIZE + i][j] = seeds3d[i][j];
-            }
-        }
+    /**
+     * @return the seed this noise was created from
+     */
+    @Override
+    public long getSeed() {
+        return seed;
     }
 
     /**
      * @return a noise value for a point in 1d space
      */
     public double noise1(double xArg) {
-        info1dX.setup(xArg);
-        final double sx = sCurve(info1dX.r0),
-                u = info1dX.r0 * seeds1d[indices[info1dX.b0]],
-                v = info1dX.r1 * seeds1d[indices[info1dX.b1]];
+        NoiseMetrics.sampled(1, 1);
+        final double tx = xArg + RANGE_OFFSET;
+        final int bx0 = cell(tx),
+                bx1 = (bx0 + 1) & RANGE_MASK;
+        final double rx0 = fraction(tx),
+                rx1 = rx0 - 1.0;
+
+        final double sx = sCurve(rx0),
+                u = rx0 * seeds1d[indices[bx0]],
+                v = rx1 * seeds1d[indices[bx1]];
         return lerp(sx, u, v);
     }
 
     /**
      * @return a noise value for a point in 2d space
      */
-    public double noise2(double xARg, double yArg) {
-        info2dX.setup(xARg);
-        info2dY.setup(yArg);
-
-        final int i = indices[info2dX.b0],
-                j = indices[info2dX.b1],
-                b00 = indices[i + info2dY.b0],
-                b10 = indices[j + info2dY.b0],
-                b01 = indices[i + info2dY.b1],
-                b11 = indices[j + info2dY.b1];
-
-        final double sx = sCurve(info2dX.r0),
-                sy = sCurve(info2dY.r0),
-                u1 = dotProduct2d(seeds2d[b00], info2dX.r0, info2dY.r0),
-                v1 = dotProduct2d(seeds2d[b10], info2dX.r1, info2dY.r0),
+    @Override
+    public double noise2(double xArg, double yArg) {
+        NoiseMetrics.sampled(2, 1);
+        final double tx = xArg + RANGE_OFFSET,
+                ty = yArg + RANGE_OFFSET;
+        final int bx0 = cell(tx),
+                bx1 = (bx0 + 1) & RANGE_MASK,
+                by0 = cell(ty),
+                by1 = (by0 + 1) & RANGE_MASK;
+        final double rx0 = fraction(tx),
+                rx1 = rx0 - 1.0,
+                ry0 = fraction(ty),
+                ry1 = ry0 - 1.0;
+
+        final int i = indices[bx0],
+                j = indices[bx1],
+                b00 = indices[i + by0],
+                b10 = indices[j + by0],
+                b01 = indices[i + by1],
+                b11 = indices[j + by1];
+
+        final double sx = sCurve(rx0),
+                sy = sCurve(ry0),
+                u1 = dotProduct2d(seeds2d, b00, rx0, ry0),
+                v1 = dotProduct2d(seeds2d, b10, rx1, ry0),
                 a = lerp(sx, u1, v1),
-                u2 = dotProduct2d(seeds2d[b01], info2dX.r0, info2dY.r1),
-                v2 = dotProduct2d(seeds2d[b11], info2dX.r1, info2dY.r1),
+                u2 = dotProduct2d(seeds2d, b01, rx0, ry1),
+                v2 = dotProduct2d(seeds2d, b11, rx1, ry1),
                 b = lerp(sx, u2, v2);
 
         return lerp(sy, a, b);
@@ -130,29 +142,43 @@ public final class PerlinNoise {
     /**
      * @return a noise value for a point in 3d space
      */
+    @Override
     public double noise3(double xArg, double yArg, double zArg) {
-        info3dX.setup(xArg);
-        info3dY.setup(yArg);
-        info3dZ.setup(zArg);
-
-        final int i = indices[info3dX.b0],
-                j = indices[info3dX.b1],
-                b00 = indices[i + info3dY.b0],
-                b10 = indices[j + info3dY.b0],
-                b01 = indices[i + info3dY.b1],
-                b11 = indices[j + info3dY.b1];
-
-        final double u1 = dotProduct3d(seeds3d[b00 + info3dZ.b0], info3dX.r0, info3dY.r0, info3dZ.r0),
-                v1 = dotProduct3d(seeds3d[b10 + info3dZ.b0], info3dX.r1, info3dY.r0, info3dZ.r0),
-                u2 = dotProduct3d(seeds3d[b01 + info3dZ.b0], info3dX.r0, info3dY.r1, info3dZ.r0),
-                v2 = dotProduct3d(seeds3d[b11 + info3dZ.b0], info3dX.r1, info3dY.r1, info3dZ.r0),
-                u3 = dotProduct3d(seeds3d[b00 + info3dZ.b1], info3dX.r0, info3dY.r0, info3dZ.r1),
-                v3 = dotProduct3d(seeds3d[b10 + info3dZ.b1], info3dX.r1, info3dY.r0, info3dZ.r1),
-                u4 = dotProduct3d(seeds3d[b01 + info3dZ.b1], info3dX.r0, info3dY.r1, info3dZ.r1),
-                v4 = dotProduct3d(seeds3d[b11 + info3dZ.b1], info3dX.r1, info3dY.r1, info3dZ.r1),
-                t = sCurve(info3dX.r0),
-                sy = sCurve(info3dY.r0),
-                sz = sCurve(info3dZ.r0),
+        NoiseMetrics.sampled(3, 1);
+        final double tx = xArg + RANGE_OFFSET,
+                ty = yArg + RANGE_OFFSET,
+                tz = zArg + RANGE_OFFSET;
+        final int bx0 = cell(tx),
+                bx1 = (bx0 + 1) & RANGE_MASK,
+                by0 = cell(ty),
+                by1 = (by0 + 1) & RANGE_MASK,
+                bz0 = cell(tz),
+                bz1 = (bz0 + 1) & RANGE_MASK;
+        final double rx0 = fraction(tx),
+                rx1 = rx0 - 1.0,
+                ry0 = fraction(ty),
+                ry1 = ry0 - 1.0,
+                rz0 = fraction(tz),
+                rz1 = rz0 - 1.0;
+
+        final int i = indices[bx0],
+                j = indices[bx1],
+                b00 = indices[i + by0],
+                b10 = indices[j + by0],
+                b01 = indices[i + by1],
+                b11 = indices[j + by1];
+
+        final double u1 = dotProduct3d(seeds3d, b00 + bz0, rx0, ry0, rz0),
+                v1 = dotProduct3d(seeds3d, b10 + bz0, rx1, ry0, rz0),
+                u2 = dotProduct3d(seeds3d, b01 + bz0, rx0, ry1, rz0),
+                v2 = dotProduct3d(seeds3d, b11 + bz0, rx1, ry1, rz0),
+                u3 = dotProduct3d(seeds3d, b00 + bz1, rx0, ry0, rz1),
+                v3 = dotProduct3d(seeds3d, b10 + bz1, rx1, ry0, rz1),
+                u4 = dotProduct3d(seeds3d, b01 + bz1, rx0, ry1, rz1),
+                v4 = dotProduct3d(seeds3d, b11 + bz1, rx1, ry1, rz1),
+                t = sCurve(rx0),
+                sy = sCurve(ry0),
+                sz = sCurve(rz0),
                 a1 = lerp(t, u1, v1),
                 b1 = lerp(t, u2, v2),
                 a2 = lerp(t, u3, v3),
@@ -163,77 +189,666 @@ public final class PerlinNoise {
         return lerp(sz, c, d);
     }
 
-    private static class Range {
-        int b0;
-        int b1;
-        double r0;
-        double r1;
+    /**
+     * Find 2d noise which repeats every {@code periodX} lattice cells along x
+     * and {@code periodY} along y, so that a texture covering one period
+     * wraps without a seam. A period of 256, the size of the lattice, or any
+     * multiple of it gives exactly what {@link #noise2(double, double)} does.
+     *
+     * @param xArg x coordinate
+     * @param yArg y coordinate
+     * @param periodX lattice cells before the noise repeats along x, at least 1
+     * @param periodY lattice cells before the noise repeats along y, at least 1
+     * @return the noise value
+     */
+    public double noise2(double xArg, double yArg, int periodX, int periodY) {
+        NoiseMetrics.sampled(2, 1);
+        checkPeriod(periodX);
+        checkPeriod(periodY);
+        final double tx = xArg + RANGE_OFFSET,
+                ty = yArg + RANGE_OFFSET;
+        final int bx0 = cell(tx, periodX),
+                bx1 = cellAbove(tx, periodX),
+                by0 = cell(ty, periodY),
+                by1 = cellAbove(ty, periodY);
+        final double rx0 = fraction(tx),
+                rx1 = rx0 - 1.0,
+                ry0 = fraction(ty),
+                ry1 = ry0 - 1.0;
+
+        final int i = indices[bx0],
+                j = indices[bx1],
+                b00 = indices[i + by0],
+                b10 = indices[j + by0],
+                b01 = indices[i + by1],
+                b11 = indices[j + by1];
+
+        final double sx = sCurve(rx0),
+                sy = sCurve(ry0),
+                a = lerp(sx, dotProduct2d(seeds2d, b00, rx0, ry0), dotProduct2d(seeds2d, b10, rx1, ry0)),
+                b = lerp(sx, dotProduct2d(seeds2d, b01, rx0, ry1), dotProduct2d(seeds2d, b11, rx1, ry1));
+
+        return lerp(sy, a, b);
+    }
+
+    /**
+     * Find 3d noise which repeats with a period along each axis. See
+     * {@link #noise2(double, double, int, int)}.
+     *
+     * @param xArg x coordinate
+     * @param yArg y coordinate
+     * @param zArg z coordinate
+     * @param periodX lattice cells before the noise repeats along x, at least 1
+     * @param periodY lattice cells before the noise repeats along y, at least 1
+     * @param periodZ lattice cells before the noise repeats along z, at least 1
+     * @return the noise value
+     */
+    public double noise3(double xArg, double yArg, double zArg, int periodX, int periodY, int periodZ) {
+        NoiseMetrics.sampled(3, 1);
+        checkPeriod(periodX);
+        checkPeriod(periodY);
+        checkPeriod(periodZ);
+        final double tx = xArg + RANGE_OFFSET,
+                ty = yArg + RANGE_OFFSET,
+                tz = zArg + RANGE_OFFSET;
+        final int bx0 = cell(tx, periodX),
+                bx1 = cellAbove(tx, periodX),
+                by0 = cell(ty, periodY),
+                by1 = cellAbove(ty, periodY),
+                bz0 = cell(tz, periodZ),
+                bz1 = cellAbove(tz, periodZ);
+        final double rx0 = fraction(tx),
+                rx1 = rx0 - 1.0,
+                ry0 = fraction(ty),
+                ry1 = ry0 - 1.0,
+                rz0 = fraction(tz),
+                rz1 = rz0 - 1.0;
+
+        final int i = indices[bx0],
+                j = indices[bx1],
+                b00 = indices[i + by0],
+                b10 = indices[j + by0],
+                b01 = indices[i + by1],
+                b11 = indices[j + by1];
+
+        final double sx = sCurve(rx0),
+                sy = sCurve(ry0),
+                sz = sCurve(rz0),
+                a1 = lerp(sx, dotProduct3d(seeds3d, b00 + bz0, rx0, ry0, rz0), dotProduct3d(seeds3d, b10 + bz0, rx1, ry0, rz0)),
+                b1 = lerp(sx, dotProduct3d(seeds3d, b01 + bz0, rx0, ry1, rz0), dotProduct3d(seeds3d, b11 + bz0, rx1, ry1, rz0)),
+                a2 = lerp(sx, dotProduct3d(seeds3d, b00 + bz1, rx0, ry0, rz1), dotProduct3d(seeds3d, b10 + bz1, rx1, ry0, rz1)),
+                b2 = lerp(sx, dotProduct3d(seeds3d, b01 + bz1, rx0, ry1, rz1), dotProduct3d(seeds3d, b11 + bz1, rx1, ry1, rz1));
+
+        return lerp(sz, lerp(sy, a1, b1), lerp(sy, a2, b2));
+    }
+
+    /**
+     * Find the 2d noise value at a point together with its slope, from the
+     * same lattice lookups. The value is exactly what {@link #noise2} gives.
+     *
+     * @param xArg x coordinate
+     * @param yArg y coordinate
+     * @param out receives the value, then its partial derivatives along x and y
+     * @return the noise value
+     */
+    @Override
+    public double noise2WithGradient(double xArg, double yArg, double[] out) {
+        NoiseMetrics.sampled(2, 1);
+        final double tx = xArg + RANGE_OFFSET,
+                ty = yArg + RANGE_OFFSET;
+        final int bx0 = cell(tx),
+                bx1 = (bx0 + 1) & RANGE_MASK,
+                by0 = cell(ty),
+                by1 = (by0 + 1) & RANGE_MASK;
+        final double rx0 = fraction(tx),
+                rx1 = rx0 - 1.0,
+                ry0 = fraction(ty),
+                ry1 = ry0 - 1.0;
+
+        final int i = indices[bx0],
+                j = indices[bx1],
+                g00 = indices[i + by0] << 1,
+                g10 = indices[j + by0] << 1,
+                g01 = indices[i + by1] << 1,
+                g11 = indices[j + by1] << 1;
+
+        final double[] q = seeds2d;
+        final double sx = sCurve(rx0),
+                sy = sCurve(ry0),
+                dsx = sCurveSlope(rx0),
+                dsy = sCurveSlope(ry0),
+                u1 = rx0 * q[g00] + ry0 * q[g00 + 1],
+                v1 = rx1 * q[g10] + ry0 * q[g10 + 1],
+                a = lerp(sx, u1, v1),
+                u2 = rx0 * q[g01] + ry1 * q[g01 + 1],
+                v2 = rx1 * q[g11] + ry1 * q[g11 + 1],
+                b = lerp(sx, u2, v2),
+                value = lerp(sy, a, b);
+
+        final double ax = lerp(sx, q[g00], q[g10]) + dsx * (v1 - u1),
+                ay = lerp(sx, q[g00 + 1], q[g10 + 1]),
+                bx = lerp(sx, q[g01], q[g11]) + dsx * (v2 - u2),
+                by = lerp(sx, q[g01 + 1], q[g11 + 1]);
+        out[0] = value;
+        out[1] = lerp(sy, ax, bx);
+        out[2] = lerp(sy, ay, by) + dsy * (b - a);
+        return value;
+    }
 
-        private void setup(double howFar) {
-            double t = howFar + RANGE_OFFSET;
-            b0 = ((int) t) & RANGE_MASK;
-            b1 = (b0 + 1) & RANGE_MASK;
-            r0 = t - (int) t;
-            r1 = r0 - 1.0;
+    /**
+     * Find the 3d noise value at a point together with its slope, from the
+     * same lattice lookups. The value is exactly what {@link #noise3} gives.
+     *
+     * @param xArg x coordinate
+     * @param yArg y coordinate
+     * @param zArg z coordinate
+     * @param out receives the value, then its partial derivatives along x, y and z
+     * @return the noise value
+     */
+    public double noise3WithGradient(double xArg, double yArg, double zArg, double[] out) {
+        NoiseMetrics.sampled(3, 1);
+        final double tx = xArg + RANGE_OFFSET,
+                ty = yArg + RANGE_OFFSET,
+                tz = zArg + RANGE_OFFSET;
+        final int bx0 = cell(tx),
+                bx1 = (bx0 + 1) & RANGE_MASK,
+                by0 = cell(ty),
+                by1 = (by0 + 1) & RANGE_MASK,
+                bz0 = cell(tz),
+                bz1 = (bz0 + 1) & RANGE_MASK;
+        final double rx0 = fraction(tx),
+                rx1 = rx0 - 1.0,
+                ry0 = fraction(ty),
+                ry1 = ry0 - 1.0,
+                rz0 = fraction(tz),
+                rz1 = rz0 - 1.0;
+
+        final int i = indices[bx0],
+                j = indices[bx1],
+                b00 = indices[i + by0],
+                b10 = indices[j + by0],
+                b01 = indices[i + by1],
+                b11 = indices[j + by1],
+                g1 = (b00 + bz0) * 3,
+                h1 = (b10 + bz0) * 3,
+                g2 = (b01 + bz0) * 3,
+                h2 = (b11 + bz0) * 3,
+                g3 = (b00 + bz1) * 3,
+                h3 = (b10 + bz1) * 3,
+                g4 = (b01 + bz1) * 3,
+                h4 = (b11 + bz1) * 3;
+
+        final double[] q = seeds3d;
+        final double u1 = rx0 * q[g1] + ry0 * q[g1 + 1] + rz0 * q[g1 + 2],
+                v1 = rx1 * q[h1] + ry0 * q[h1 + 1] + rz0 * q[h1 + 2],
+                u2 = rx0 * q[g2] + ry1 * q[g2 + 1] + rz0 * q[g2 + 2],
+                v2 = rx1 * q[h2] + ry1 * q[h2 + 1] + rz0 * q[h2 + 2],
+                u3 = rx0 * q[g3] + ry0 * q[g3 + 1] + rz1 * q[g3 + 2],
+                v3 = rx1 * q[h3] + ry0 * q[h3 + 1] + rz1 * q[h3 + 2],
+                u4 = rx0 * q[g4] + ry1 * q[g4 + 1] + rz1 * q[g4 + 2],
+                v4 = rx1 * q[h4] + ry1 * q[h4 + 1] + rz1 * q[h4 + 2],
+                t = sCurve(rx0),
+                sy = sCurve(ry0),
+                sz = sCurve(rz0),
+                dt = sCurveSlope(rx0),
+                dsy = sCurveSlope(ry0),
+                dsz = sCurveSlope(rz0),
+                a1 = lerp(t, u1, v1),
+                b1 = lerp(t, u2, v2),
+                a2 = lerp(t, u3, v3),
+                b2 = lerp(t, u4, v4),
+                c = lerp(sy, a1, b1),
+                d = lerp(sy, a2, b2),
+                value = lerp(sz, c, d);
+
+        // derivatives of each interpolation, working back out from the corners
+        final double a1x = lerp(t, q[g1], q[h1]) + dt * (v1 - u1),
+                b1x = lerp(t, q[g2], q[h2]) + dt * (v2 - u2),
+                a2x = lerp(t, q[g3], q[h3]) + dt * (v3 - u3),
+                b2x = lerp(t, q[g4], q[h4]) + dt * (v4 - u4),
+                a1y = lerp(t, q[g1 + 1], q[h1 + 1]),
+                b1y = lerp(t, q[g2 + 1], q[h2 + 1]),
+                a2y = lerp(t, q[g3 + 1], q[h3 + 1]),
+                b2y = lerp(t, q[g4 + 1], q[h4 + 1]),
+                a1z = lerp(t, q[g1 + 2], q[h1 + 2]),
+                b1z = lerp(t, q[g2 + 2], q[h2 + 2]),
+                a2z = lerp(t, q[g3 + 2], q[h3 + 2]),
+                b2z = lerp(t, q[g4 + 2], q[h4 + 2]),
+                cx = lerp(sy, a1x, b1x),
+                dx = lerp(sy, a2x, b2x),
+                cy = lerp(sy, a1y, b1y) + dsy * (b1 - a1),
+                dy = lerp(sy, a2y, b2y) + dsy * (b2 - a2),
+                cz = lerp(sy, a1z, b1z),
+                dz = lerp(sy, a2z, b2z);
+        out[0] = value;
+        out[1] = lerp(sz, cx, dx);
+        out[2] = lerp(sz, cy, dy);
+        out[3] = lerp(sz, cz, dz) + dsz * (d - c);
+        return value;
+    }
+
+    /**
+     * Find bounds which {@link #noise2} is sure to lie within over a
+     * rectangle. Regions of a few lattice cells are bounded cell by cell from
+     * the cells' corner gradients, so small regions get tight bounds; larger
+     * ones get the noise's whole range of plus or minus {@code sqrt(1/2)}.
+     * Below -4096, where lattice lookups go wrong, nothing is promised and the
+     * bounds are infinite.
+     *
+     * @param x0 least x of the rectangle
+     * @param y0 least y of the rectangle
+     * @param x1 greatest x of the rectangle, at least x0
+     * @param y1 greatest y of the rectangle, at least y0
+     * @param out receives the lower bound, then the upper bound
+     */
+    @Override
+    public void noise2Bounds(double x0, double y0, double x1, double y1, double[] out) {
+        NoiseBounds.checkRectangle(x0, y0, x1, y1, out);
+        final double tx0 = x0 + RANGE_OFFSET,
+                ty0 = y0 + RANGE_OFFSET,
+                tx1 = x1 + RANGE_OFFSET,
+                ty1 = y1 + RANGE_OFFSET;
+        if (!(tx0 >= 0 && ty0 >= 0 && tx1 < Integer.MAX_VALUE && ty1 < Integer.MAX_VALUE)) {
+            NoiseEngine.super.noise2Bounds(x0, y0, x1, y1, out);
+            return;
+        }
+        final int cx0 = (int) tx0, cx1 = (int) tx1,
+                cy0 = (int) ty0, cy1 = (int) ty1;
+        if ((long) (cx1 - cx0 + 1) * (cy1 - cy0 + 1) > NoiseBounds.MAX_CELLS) {
+            out[0] = -NoiseBounds.UNIT_GRADIENTS_2D;
+            out[1] = NoiseBounds.UNIT_GRADIENTS_2D;
+            return;
+        }
+        final double[] q = seeds2d;
+        out[0] = Double.POSITIVE_INFINITY;
+        out[1] = Double.NEGATIVE_INFINITY;
+        for (int cy = cy0; cy <= cy1; cy++) {
+            final int by0 = cy & RANGE_MASK,
+                    by1 = (by0 + 1) & RANGE_MASK;
+            final double fromY = Math.max(ty0 - cy, 0), toY = Math.min(ty1 - cy, 1);
+            for (int cx = cx0; cx <= cx1; cx++) {
+                final int bx0 = cx & RANGE_MASK,
+                        bx1 = (bx0 + 1) & RANGE_MASK,
+                        i = indices[bx0],
+                        j = indices[bx1],
+                        g00 = indices[i + by0] << 1,
+                        g10 = indices[j + by0] << 1,
+                        g01 = indices[i + by1] << 1,
+                        g11 = indices[j + by1] << 1;
+                final double fromX = Math.max(tx0 - cx, 0), toX = Math.min(tx1 - cx, 1);
+                NoiseBounds.cell(q, g00, g10, g01, g11, fromX, toX, fromY, toY, out);
+            }
         }
+        NoiseBounds.store(out, NoiseBounds.UNIT_GRADIENTS_2D);
     }
 
-    private final Range info1dX = new Range();
-    private final Range info2dX = new Range();
-    private final Range info2dY = new Range();
-    private final Range info3dX = new Range();
-    private final Range info3dY = new Range();
-    private final Range info3dZ = new Range();
+    @Override
+    public void noise2Range(double[] out) {
+        out[0] = -NoiseBounds.UNIT_GRADIENTS_2D - NoiseBounds.SLACK;
+        out[1] = NoiseBounds.UNIT_GRADIENTS_2D + NoiseBounds.SLACK;
+    }
 
     /**
-     * Normalize a two dimensional vector expressed as an array of doubles.
-     * @param v the vector to be normalized. Will be modified in place.
+     * Evaluate 2d noise for many points at once.
+     * <p>
+     * Where the JVM supports it (Java 17 or later, started with
+     * {@code --add-modules jdk.incubator.vector}) this runs several points per
+     * instruction using SIMD, otherwise it falls back to calling {@link #noise2}
+     * for each point. Either way the results agree with {@link #noise2} to
+     * within {@value #BULK_TOLERANCE}; in practice they are identical, since
+     * the vector kernel does the same arithmetic in the same order.
+     *
+     * @param xs x coordinates of the points
+     * @param ys y coordinates of the points
+     * @param out receives the noise value for each point
+     * @param count how many points to evaluate, from the start of each array
      */
-    private static void normalize2(double[] v) {
-        final double s = sqrt(v[0] * v[0] + v[1] * v[1]);
-        v[0] = v[0] / s;
-        v[1] = v[1] / s;
+    public void noise2(double[] xs, double[] ys, double[] out, int count) {
+        checkBulk(count, xs, ys, out);
+        BulkNoiseKernels.BEST.noise2(this, xs, ys, out, count);
     }
 
     /**
-     * Normalize a three dimensional vector expressed as an array of doubles.
-     * @param v the vector to be normalized. Will be modified in place.
+     * @return the simple name of the kernel the bulk methods run on in this
+     * JVM, {@code VectorBulkNoise} when SIMD was picked up and
+     * {@code ScalarBulkNoise} otherwise
      */
-    private static void normalize3(double[] v) {
-        final double s = sqrt(v[0] * v[0] + v[1] * v[1] + v[2] * v[2]);
-        v[0] = v[0] / s;
-        v[1] = v[1] / s;
-        v[2] = v[2] / s;
+    public static String getBulkKernel() {
+        return BulkNoiseKernels.BEST.getClass().getSimpleName();
     }
 
     /**
-     * calculate dot product of 2d vectors
-     * @param q the first vector expressed as a 2-item array
-     * @param rx the second vector's x component
-     * @param ry the second vector's y component
-     * @return the resulting dot product
+     * Evaluate 3d noise for many points at once. See
+     * {@link #noise2(double[], double[], double[], int)} for how and when this
+     * is vectorized.
+     *
+     * @param xs x coordinates of the points
+     * @param ys y coordinates of the points
+     * @param zs z coordinates of the points
+     * @param out receives the noise value for each point
+     * @param count how many points to evaluate, from the start of each array
      */
-    private double dotProduct2d(double[] q, double rx, double ry) {
-        return rx * q[0] + ry * q[1];
+    public void noise3(double[] xs, double[] ys, double[] zs, double[] out, int count) {
+        checkBulk(count, xs, ys, zs, out);
+        BulkNoiseKernels.BEST.noise3(this, xs, ys, zs, out, count);
     }
 
+    /**
+     * Fill a regular grid of points in 2d space with noise values.
+     * <p>
+     * Gives the same values as calling {@link #noise2} at each point
+     * {@code (x0 + col * dx, y0 + row * dy)}, but the lattice lookups for each
+     * column are done once for the whole grid and those for each row once
+     * per row.
+     *
+     * @param x0 x coordinate of the first column
+     * @param y0 y coordinate of the first row
+     * @param dx distance between columns
+     * @param dy distance between rows
+     * @param w number of columns
+     * @param h number of rows
+     * @param out receives the values in row-major order, {@code out[row * w + col]}
+     */
+    @Override
+    public void fillGrid2(double x0, double y0, double dx, double dy, int w, int h, double[] out) {
+        fillGrid2(x0, y0, dx, dy, w, h, RANGE_SIZE, RANGE_SIZE, out);
+    }
+
+    /**
+     * Fill a regular grid of points in 2d space with noise which repeats
+     * every {@code periodX} lattice cells along x and {@code periodY} along y,
+     * the same as calling {@link #noise2(double, double, int, int)} at each
+     * point {@code (x0 + col * dx, y0 + row * dy)}.
+     * <p>
+     * To bake a tile which wraps seamlessly, cover one period exactly: for a
+     * {@code w} by {@code h} tile, {@code dx = periodX / (double) w} and
+     * {@code dy = periodY / (double) h}.
+     *
+     * @param x0 x coordinate of the first column
+     * @param y0 y coordinate of the first row
+     * @param dx distance between columns
+     * @param dy distance between rows
+     * @param w number of columns
+     * @param h number of rows
+     * @param periodX lattice cells before the noise repeats along x, at least 1
+     * @param periodY lattice cells before the noise repeats along y, at least 1
+     * @param out receives the values in row-major order, {@code out[row * w + col]}
+     */
+    public void fillGrid2(double x0, double y0, double dx, double dy, int w, int h,
+                          int periodX, int periodY, double[] out) {
+        checkGrid(out.length, w, h, 1);
+        checkPeriod(periodX);
+        checkPeriod(periodY);
+        NoiseMetrics.sampled(2, (long) w * h);
+        final int[] colI = new int[w],
+                colJ = new int[w];
+        final double[] colR = new double[w],
+                colS = new double[w];
+        for (int col = 0; col < w; col++) {
+            final double tx = x0 + col * dx + RANGE_OFFSET;
+            colI[col] = indices[cell(tx, periodX)];
+            colJ[col] = indices[cellAbove(tx, periodX)];
+            colR[col] = fraction(tx);
+            colS[col] = sCurve(colR[col]);
+        }
+        int at = 0;
+        for (int row = 0; row < h; row++) {
+            final double ty = y0 + row * dy + RANGE_OFFSET;
+            final int by0 = cell(ty, periodY),
+                    by1 = cellAbove(ty, periodY);
+            final double ry0 = fraction(ty),
+                    ry1 = ry0 - 1.0,
+                    sy = sCurve(ry0);
+            for (int col = 0; col < w; col++) {
+                final int i = colI[col],
+                        j = colJ[col],
+                        b00 = indices[i + by0],
+                        b10 = indices[j + by0],
+                        b01 = indices[i + by1],
+                        b11 = indices[j + by1];
+                final double rx0 = colR[col],
+                        rx1 = rx0 - 1.0,
+                        sx = colS[col],
+                        a = lerp(sx, dotProduct2d(seeds2d, b00, rx0, ry0), dotProduct2d(seeds2d, b10, rx1, ry0)),
+                        b = lerp(sx, dotProduct2d(seeds2d, b01, rx0, ry1), dotProduct2d(seeds2d, b11, rx1, ry1));
+                out[at++] = lerp(sy, a, b);
+            }
+        }
+    }
+
+    /**
+     * Fill part of a larger grid of points in 2d space with single precision
+     * noise values, as {@link FloatPerlinNoise} with the same seed does. These
+     * differ from {@link #noise2} by no more than
+     * {@link FloatPerlinNoise#DOUBLE_TOLERANCE}.
+     *
+     * @param x0 x coordinate of the first column of the larger grid
+     * @param y0 y coordinate of the first row of the larger grid
+     * @param dx distance between columns
+     * @param dy distance between rows
+     * @param col0 first column of the block to fill
+     * @param row0 first row of the block to fill
+     * @param w number of columns in the block
+     * @param h number of rows in the block
+     * @param out receives the values, {@code out[offset + row * stride + col]}
+     * @param offset where in out the block's first value goes
+     * @param stride distance in out between the starts of consecutive rows
+     */
+    @Override
+    public void fillGrid2(double x0, double y0, double dx, double dy, int col0, int row0, int w, int h,
+                          float[] out, int offset, int stride) {
+        singles.fillGrid2(x0, y0, dx, dy, col0, row0, w, h, out, offset, stride);
+    }
+
+    /**
+     * Fill a regular grid of points in 3d space with noise values.
+     * <p>
+     * Gives the same values as calling {@link #noise3} at each point
+     * {@code (x0 + col * dx, y0 + row * dy, z0 + slice * dz)}, with the lattice
+     * lookups along each axis done once per column, row and slice.
+     *
+     * @param x0 x coordinate of the first column
+     * @param y0 y coordinate of the first row
+     * @param z0 z coordinate of the first slice
+     * @param dx distance between columns
+     * @param dy distance between rows
+     * @param dz distance between slices
+     * @param w number of columns
+     * @param h number of rows
+     * @param d number of slices
+     * @param out receives the values, {@code out[(slice * h + row) * w + col]}
+     */
+    public void fillGrid3(double x0, double y0, double z0, double dx, double dy, double dz,
+                          int w, int h, int d, double[] out) {
+        checkGrid(out.length, w, h, d);
+        NoiseMetrics.sampled(3, (long) w * h * d);
+        final int[] colI = new int[w],
+                colJ = new int[w],
+                rowB0 = new int[h],
+                rowB1 = new int[h];
+        final double[] colR = new double[w],
+                colS = new double[w],
+                rowR = new double[h],
+                rowS = new double[h];
+        for (int col = 0; col < w; col++) {
+            final double tx = x0 + col * dx + RANGE_OFFSET;
+            final int bx0 = cell(tx);
+            colI[col] = indices[bx0];
+            colJ[col] = indices[(bx0 + 1) & RANGE_MASK];
+            colR[col] = fraction(tx);
+            colS[col] = sCurve(colR[col]);
+        }
+        for (int row = 0; row < h; row++) {
+            final double ty = y0 + row * dy + RANGE_OFFSET;
+            rowB0[row] = cell(ty);
+            rowB1[row] = (rowB0[row] + 1) & RANGE_MASK;
+            rowR[row] = fraction(ty);
+            rowS[row] = sCurve(rowR[row]);
+        }
+        int at = 0;
+        for (int slice = 0; slice < d; slice++) {
+            final double tz = z0 + slice * dz + RANGE_OFFSET;
+            final int bz0 = cell(tz),
+                    bz1 = (bz0 + 1) & RANGE_MASK;
+            final double rz0 = fraction(tz),
+                    rz1 = rz0 - 1.0,
+                    sz = sCurve(rz0);
+            for (int row = 0; row < h; row++) {
+                final int by0 = rowB0[row],
+                        by1 = rowB1[row];
+                final double ry0 = rowR[row],
+                        ry1 = ry0 - 1.0,
+                        sy = rowS[row];
+                for (int col = 0; col < w; col++) {
+                    final int i = colI[col],
+                            j = colJ[col],
+                            b00 = indices[i + by0],
+                            b10 = indices[j + by0],
+                            b01 = indices[i + by1],
+                            b11 = indices[j + by1];
+                    final double rx0 = colR[col],
+                            rx1 = rx0 - 1.0,
+                            t = colS[col],
+                            a1 = lerp(t, dotProduct3d(seeds3d, b00 + bz0, rx0, ry0, rz0), dotProduct3d(seeds3d, b10 + bz0, rx1, ry0, rz0)),
+                            b1 = lerp(t, dotProduct3d(seeds3d, b01 + bz0, rx0, ry1, rz0), dotProduct3d(seeds3d, b11 + bz0, rx1, ry1, rz0)),
+                            a2 = lerp(t, dotProduct3d(seeds3d, b00 + bz1, rx0, ry0, rz1), dotProduct3d(seeds3d, b10 + bz1, rx1, ry0, rz1)),
+                            b2 = lerp(t, dotProduct3d(seeds3d, b01 + bz1, rx0, ry1, rz1), dotProduct3d(seeds3d, b11 + bz1, rx1, ry1, rz1));
+                    out[at++] = lerp(sz, lerp(sy, a1, b1), lerp(sy, a2, b2));
+                }
+            }
+        }
+    }
+
+    /**
+     * Make sure every array taking part in a bulk call has room for all the points.
+     */
+    static void checkBulk(int count, double[]... arrays) {
+        if (count < 0) {
+            throw new IllegalArgumentException("point count must not be negative");
+        }
+        for (double[] array : arrays) {
+            if (array.length < count) {
+                throw new IllegalArgumentException("array of " + array.length + " is too small for " + count + " points");
+            }
+        }
+    }
+
+    /**
+     * Make sure a bulk output array is big enough for the grid it will receive.
+     */
+    static void checkGrid(int length, int w, int h, int d) {
+        if (w < 0 || h < 0 || d < 0) {
+            throw new IllegalArgumentException("grid dimensions must not be negative");
+        }
+        if ((long) w * h * d > length) {
+            throw new IllegalArgumentException("output array is too small for a " + w + "x" + h + "x" + d + " grid");
+        }
+    }
+
+    /**
+     * Make sure a bulk output array has room for a block of rows placed at
+     * an offset and stride.
+     */
+    static void checkGrid(int length, int offset, int stride, int w, int h) {
+        if (w < 0 || h < 0) {
+            throw new IllegalArgumentException("grid dimensions must not be negative");
+        }
+        if (offset < 0 || stride < w) {
+            throw new IllegalArgumentException("offset must not be negative and stride must be at least " + w);
+        }
+        if (w > 0 && h > 0 && offset + (long) (h - 1) * stride + w > length) {
+            throw new IllegalArgumentException("output array is too small for a " + w + "x" + h + " block with stride " + stride);
+        }
+    }
+
+    /**
+     * @return the permutation and gradient tables behind this noise
+     */
+    PerlinTables tables() {
+        return tables;
+    }
+
+    /**
+     * Find the lattice cell a coordinate falls in.
+     * @param t the coordinate, already shifted by RANGE_OFFSET
+     * @return index of the cell's lower corner, wrapped to the lattice size
+     */
+    static int cell(double t) {
+        return ((int) t) & RANGE_MASK;
+    }
+
+    /**
+     * Find the lattice cell a coordinate falls in, for noise which repeats.
+     * @param t the coordinate, already shifted by RANGE_OFFSET
+     * @param period how many cells along before the noise repeats
+     * @return index of the cell's lower corner, wrapped to the period and the lattice size
+     */
+    static int cell(double t, int period) {
+        return Math.floorMod((int) t - RANGE_OFFSET, period) & RANGE_MASK;
+    }
+
+    /**
+     * Find the lattice cell after the one a coordinate falls in, for noise
+     * which repeats.
+     * @param t the coordinate, already shifted by RANGE_OFFSET
+     * @param period how many cells along before the noise repeats
+     * @return index of the cell's upper corner, wrapped to the period and the lattice size
+     */
+    static int cellAbove(double t, int period) {
+        return Math.floorMod((int) t - RANGE_OFFSET + 1, period) & RANGE_MASK;
+    }
+
+    /**
+     * Make sure a period for repeating noise covers at least one cell.
+     */
+    static void checkPeriod(int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("period must be at least one cell, not " + period);
+        }
+    }
+
+    /**
+     * Find how far into its lattice cell a coordinate lies.
+     * @param t the coordinate, already shifted by RANGE_OFFSET
+     * @return distance from the cell's lower corner, from 0.0 to 1.0
+     */
+    static double fraction(double t) {
+        return t - (int) t;
+    }
+
+    /**
+     * Slope of {@link PerlinUtil#sCurve(double)}.
+     * @param t value between 0.0 and 1.0
+     * @return derivative of the s-curve at t
+     */
+    static double sCurveSlope(double t) {
+        return 6.0 * t * (1.0 - t);
+    }
 
     /**
      * calculate dot product of 2d vectors
-     * @param q the first vector expressed as a 2-item array
+     * @param q flat array of 2d vectors
+     * @param slot which vector in q to use
      * @param rx the second vector's x component
      * @param ry the second vector's y component
      * @return the resulting dot product
      */
-    private double dotProduct3d(double[] q, double rx, double ry, double rz) {
-        return (rx * q[0] + ry * q[1] + rz * q[2]);
-    }
-
-    private static double randomSignedDouble() {
-        return random.nextDouble() * 2.0 - 1.0;
+    private static double dotProduct2d(double[] q, int slot, double rx, double ry) {
+        final int at = slot << 1;
+        return rx * q[at] + ry * q[at + 1];
     }
 
-    private static int randomPositiveInt() {
-        return random.nextInt(Integer.MAX_VALUE);
+    /**
+     * calculate dot product of 3d vectors
+     * @param q flat array of 3d vectors
+     * @param slot which vector in q to use
+     * @param rx the second vector's x component
+     * @param ry the second vector's y component
+     * @param rz the second vector's z component
+     * @return the resulting dot product
+     */
+    private static double dotProduct3d(double[] q, int slot, double rx, double ry, double rz) {
+        final int at = slot * 3;
+        return (rx * q[at] + ry * q[at + 1] + rz * q[at + 2]);
     }
 }
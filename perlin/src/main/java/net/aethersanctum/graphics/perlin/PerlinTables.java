@@ -0,0 +1,169 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import static java.lang.Math.sqrt;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import net.jcip.annotations.Immutable;
+
+/**
+ * Permutation and gradient tables for one seeded noise world.
+ * <p>
+ * Gradients are stored flat: the 2d gradient for slot {@code b} lives at
+ * {@code seeds2d[2 * b]} and {@code seeds2d[2 * b + 1]}, and the 3d one at
+ * {@code seeds3d[3 * b]} onwards. This saves a pointer chase and a bounds
+ * check per lattice corner compared to an array of arrays.
+ * <p>
+ * Building the tables costs a few thousand random numbers, so the tables
+ * for recently used seeds are kept in a small cache and shared between
+ * instances. Nothing here may be modified after construction.
+ * <p>
+ * Single precision copies of the gradients are kept alongside, so that
+ * {@link FloatPerlinNoise} builds exactly the same world as {@link PerlinNoise}.
+ * {@link SimplexNoise} shares the permutation, with each slot also mapped
+ * to one of its twelve fixed 3d gradients.
+ */
+@Immutable
+final class PerlinTables {
+    static final int RANGE_SIZE = 0x100;
+    static final int RANGE_MASK = 0xff;
+    static final int RANGE_OFFSET = 0x1000;
+
+    static final int SLOT_COUNT = RANGE_SIZE + RANGE_SIZE + 2;
+
+    private static final int CACHED_SEEDS = 64;
+
+    private static final Map<Long, PerlinTables> cache = new LinkedHashMap<Long, PerlinTables>(CACHED_SEEDS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, PerlinTables> eldest) {
+            return size() > CACHED_SEEDS;
+        }
+    };
+
+    final long seed;
+    final int[] indices = new int[SLOT_COUNT];
+    final double[] seeds1d = new double[SLOT_COUNT];
+    final double[] seeds2d = new double[SLOT_COUNT * 2];
+    final double[] seeds3d = new double[SLOT_COUNT * 3];
+    final float[] floatSeeds1d = new float[SLOT_COUNT];
+    final float[] floatSeeds2d = new float[SLOT_COUNT * 2];
+    final float[] floatSeeds3d = new float[SLOT_COUNT * 3];
+    final int[] simplexGradients = new int[SLOT_COUNT];
+
+    /**
+     * Fetch the tables for a seed, building them if they aren't cached.
+     * @param seed the world seed
+     * @return tables which are identical for every call with the same seed
+     */
+    static PerlinTables forSeed(long seed) {
+        synchronized (cache) {
+            final PerlinTables cached = cache.get(seed);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        final PerlinTables tables = new PerlinTables(seed);
+        synchronized (cache) {
+            final PerlinTables raced = cache.get(seed);
+            if (raced != null) {
+                return raced;
+            }
+            cache.put(seed, tables);
+        }
+        return tables;
+    }
+
+    private PerlinTables(long seed) {
+        this.seed = seed;
+        final Random random = new Random(seed);
+        int i;
+        int j;
+        int k;
+
+        for (i = 0; i < RANGE_SIZE; i++) {
+            indices[i] = i;
+
+            seeds1d[i] = randomSignedDouble(random);
+
+            for (j = 0; j < 2; j++) {
+                seeds2d[2 * i + j] = randomSignedDouble(random);
+            }
+            normalize2(seeds2d, 2 * i);
+
+            for (j = 0; j < 3; j++) {
+                seeds3d[3 * i + j] = randomSignedDouble(random);
+            }
+            normalize3(seeds3d, 3 * i);
+        }
+
+        while (--i != 0) {
+            k = indices[i];
+            j = random.nextInt(Integer.MAX_VALUE) % RANGE_SIZE;
+            indices[i] = indices[j];
+            indices[j] = k;
+        }
+
+        for (i = 0; i < RANGE_SIZE + 2; i++) {
+            indices[RANGE_SIZE + i] = indices[i];
+            seeds1d[RANGE_SIZE + i] = seeds1d[i];
+            System.arraycopy(seeds2d, 2 * i, seeds2d, 2 * (RANGE_SIZE + i), 2);
+            System.arraycopy(seeds3d, 3 * i, seeds3d, 3 * (RANGE_SIZE + i), 3);
+        }
+
+        for (i = 0; i < SLOT_COUNT; i++) {
+            simplexGradients[i] = indices[i] % SimplexNoise.GRADIENTS_3D;
+        }
+
+        copyToFloat(seeds1d, floatSeeds1d);
+        copyToFloat(seeds2d, floatSeeds2d);
+        copyToFloat(seeds3d, floatSeeds3d);
+    }
+
+    private static void copyToFloat(double[] from, float[] to) {
+        for (int i = 0; i < from.length; i++) {
+            to[i] = (float) from[i];
+        }
+    }
+
+    /**
+     * Normalize a two dimensional vector stored inside a flat array.
+     * @param v the array holding the vector. Will be modified in place.
+     * @param at index of the vector's x component
+     */
+    private static void normalize2(double[] v, int at) {
+        final double s = sqrt(v[at] * v[at] + v[at + 1] * v[at + 1]);
+        v[at] = v[at] / s;
+        v[at + 1] = v[at + 1] / s;
+    }
+
+    /**
+     * Normalize a three dimensional vector stored inside a flat array.
+     * @param v the array holding the vector. Will be modified in place.
+     * @param at index of the vector's x component
+     */
+    private static void normalize3(double[] v, int at) {
+        final double s = sqrt(v[at] * v[at] + v[at + 1] * v[at + 1] + v[at + 2] * v[at + 2]);
+        v[at] = v[at] / s;
+        v[at + 1] = v[at + 1] / s;
+        v[at + 2] = v[at + 2] / s;
+    }
+
+    private static double randomSignedDouble(Random random) {
+        return random.nextDouble() * 2.0 - 1.0;
+    }
+}
@@ -40,4 +40,26 @@ public final class PerlinUtil {
     public static double sCurve(double t) {
         return t * t * (3.0 - 2.0 * t);
     }
+
+    /**
+     * Single precision version of {@link #lerp(double, double, double)}.
+     *
+     * @param distance - fraction of distance between the points expressed as values from 0.0 to 1.0.
+     * @param firstPoint - location of first point
+     * @param secondPoint - location of second point
+     * @return the resulting interpolated point
+     */
+    public static float lerp(float distance, float firstPoint, float secondPoint) {
+        return firstPoint + distance * (secondPoint - firstPoint);
+    }
+
+    /**
+     * Single precision version of {@link #sCurve(double)}.
+     *
+     * @param t value between 0.0 and 1.0 to smooth out
+     * @return smoothed value, also between 0.0 and 1.0
+     */
+    public static float sCurve(float t) {
+        return t * t * (3.0f - 2.0f * t);
+    }
 }
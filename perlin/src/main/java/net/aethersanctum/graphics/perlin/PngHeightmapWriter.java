@@ -0,0 +1,283 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Streams a heightmap out as a 16-bit greyscale PNG, encoding each row as
+ * it arrives rather than building an image in memory first.
+ * <p>
+ * Altitudes are quantized by a {@link HeightQuantizer}, usually the one
+ * {@link HeightQuantizer#forLandscape} gives for the landscape. Its range is
+ * recorded in two tEXt chunks ahead of the image data, {@value #MIN_KEYWORD}
+ * holding the altitude of sample 0 and {@value #STEP_KEYWORD} the altitude
+ * between consecutive samples, so the file can be turned back into
+ * altitudes without knowing how it was made. Each row gets whichever PNG filter leaves it
+ * smallest, judged by the usual sum of absolute differences, before going
+ * through a {@link Deflater} into IDAT chunks of at most {@value #CHUNK_BYTES} bytes.
+ */
+@NotThreadSafe
+public class PngHeightmapWriter implements HeightmapRowWriter {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final int CHUNK_BYTES = 1 << 16;
+    private static final int BYTES_PER_SAMPLE = 2;
+
+    /** tEXt keyword for the altitude of sample 0. */
+    public static final String MIN_KEYWORD = "Altitude minimum";
+
+    /** tEXt keyword for the altitude between consecutive samples. */
+    public static final String STEP_KEYWORD = "Altitude step";
+
+    private final OutputStream out;
+    private final int width;
+    private final int height;
+    private final HeightQuantizer quantizer;
+    private final Deflater deflater;
+    private final ChunkStream chunks = new ChunkStream();
+    private final DeflaterOutputStream compressed;
+    private final int rowBytes;
+    private byte[] previous;
+    private byte[] current;
+    private final byte[][] filtered = new byte[5][];
+    private int rowsWritten;
+
+    /**
+     * Start a PNG with the default compression.
+     * @param out where the PNG goes; closed along with this writer
+     * @param width samples per row
+     * @param height number of rows
+     * @param quantizer maps altitudes to samples
+     * @throws IOException if the header can't be written
+     */
+    public PngHeightmapWriter(OutputStream out, int width, int height, HeightQuantizer quantizer) throws IOException {
+        this(out, width, height, quantizer, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Start a PNG.
+     * @param out where the PNG goes; closed along with this writer
+     * @param width samples per row
+     * @param height number of rows
+     * @param quantizer maps altitudes to samples
+     * @param level {@link Deflater} compression level, trading size for speed
+     * @throws IOException if the header can't be written
+     */
+    public PngHeightmapWriter(OutputStream out, int width, int height, HeightQuantizer quantizer, int level)
+            throws IOException {
+        if (width <= 0 || height <= 0 || (long) width * BYTES_PER_SAMPLE + 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("bad image size " + width + "x" + height);
+        }
+        this.out = out;
+        this.width = width;
+        this.height = height;
+        this.quantizer = quantizer;
+        this.rowBytes = width * BYTES_PER_SAMPLE;
+        this.previous = new byte[rowBytes];
+        this.current = new byte[rowBytes];
+        for (int filter = 0; filter < filtered.length; filter++) {
+            filtered[filter] = new byte[rowBytes + 1];
+            filtered[filter][0] = (byte) filter;
+        }
+        this.deflater = new Deflater(level);
+        this.compressed = new DeflaterOutputStream(chunks, deflater, CHUNK_BYTES);
+
+        out.write(SIGNATURE);
+        final byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 16;     // bits per sample
+        header[9] = 0;      // greyscale
+        header[10] = 0;     // deflate
+        header[11] = 0;     // adaptive filtering
+        header[12] = 0;     // not interlaced
+        writeChunk("IHDR", header, header.length);
+        writeText(MIN_KEYWORD, Float.toString(quantizer.getMin()));
+        writeText(STEP_KEYWORD, Float.toString(quantizer.getStep()));
+    }
+
+    /**
+     * @return how altitudes map to the samples in the image
+     */
+    public HeightQuantizer getQuantizer() {
+        return quantizer;
+    }
+
+    @Override
+    public void writeRows(float[] heights, int offset, int rows) throws IOException {
+        if (rows < 0 || rowsWritten + rows > height) {
+            throw new IOException("heightmap has " + height + " rows; can't write " + rows + " after " + rowsWritten);
+        }
+        if (offset < 0 || offset + (long) rows * width > heights.length) {
+            throw new IllegalArgumentException("heights array is too small for " + rows + " rows");
+        }
+        for (int row = 0; row < rows; row++) {
+            final int at = offset + row * width;
+            for (int col = 0; col < width; col++) {
+                final int sample = quantizer.quantize(heights[at + col]);
+                current[2 * col] = (byte) (sample >>> 8);
+                current[2 * col + 1] = (byte) sample;
+            }
+            compressed.write(filtered[filter()]);
+            final byte[] swap = previous;
+            previous = current;
+            current = swap;
+            rowsWritten++;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            compressed.finish();
+            chunks.flush();
+            if (rowsWritten != height) {
+                throw new IOException("only " + rowsWritten + " of " + height + " rows were written");
+            }
+            writeChunk("IEND", new byte[0], 0);
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    /**
+     * Filter the current row every way, against the previous one.
+     * @return which filter gave the smallest sum of absolute differences
+     */
+    private int filter() {
+        final byte[] none = filtered[0],
+                sub = filtered[1],
+                up = filtered[2],
+                average = filtered[3],
+                paeth = filtered[4];
+        long sumNone = 0, sumSub = 0, sumUp = 0, sumAverage = 0, sumPaeth = 0;
+        for (int i = 0; i < rowBytes; i++) {
+            final int x = current[i] & 0xff,
+                    a = i >= BYTES_PER_SAMPLE ? current[i - BYTES_PER_SAMPLE] & 0xff : 0,
+                    b = previous[i] & 0xff,
+                    c = i >= BYTES_PER_SAMPLE ? previous[i - BYTES_PER_SAMPLE] & 0xff : 0;
+            none[i + 1] = (byte) x;
+            sub[i + 1] = (byte) (x - a);
+            up[i + 1] = (byte) (x - b);
+            average[i + 1] = (byte) (x - ((a + b) >>> 1));
+            paeth[i + 1] = (byte) (x - paethPredictor(a, b, c));
+            sumNone += Math.abs(none[i + 1]);
+            sumSub += Math.abs(sub[i + 1]);
+            sumUp += Math.abs(up[i + 1]);
+            sumAverage += Math.abs(average[i + 1]);
+            sumPaeth += Math.abs(paeth[i + 1]);
+        }
+        int best = 0;
+        long bestSum = sumNone;
+        if (sumSub < bestSum) {
+            best = 1;
+            bestSum = sumSub;
+        }
+        if (rowsWritten > 0) {
+            // with no row above, up, average and paeth only repeat none and sub
+            if (sumUp < bestSum) {
+                best = 2;
+                bestSum = sumUp;
+            }
+            if (sumAverage < bestSum) {
+                best = 3;
+                bestSum = sumAverage;
+            }
+            if (sumPaeth < bestSum) {
+                best = 4;
+            }
+        }
+        return best;
+    }
+
+    private static int paethPredictor(int a, int b, int c) {
+        final int p = a + b - c,
+                pa = Math.abs(p - a),
+                pb = Math.abs(p - b),
+                pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) {
+            return a;
+        }
+        return pb <= pc ? b : c;
+    }
+
+    private void writeText(String keyword, String text) throws IOException {
+        final byte[] data = (keyword + '\0' + text).getBytes(StandardCharsets.ISO_8859_1);
+        writeChunk("tEXt", data, data.length);
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        final byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        final byte[] word = new byte[4];
+        putInt(word, 0, length);
+        out.write(word);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        final CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        putInt(word, 0, (int) crc.getValue());
+        out.write(word);
+    }
+
+    private static void putInt(byte[] into, int at, int value) {
+        into[at] = (byte) (value >>> 24);
+        into[at + 1] = (byte) (value >>> 16);
+        into[at + 2] = (byte) (value >>> 8);
+        into[at + 3] = (byte) value;
+    }
+
+    /**
+     * Gathers compressed bytes into IDAT chunks.
+     */
+    private final class ChunkStream extends OutputStream {
+        private final byte[] chunk = new byte[CHUNK_BYTES];
+        private int used;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                final int n = Math.min(len, CHUNK_BYTES - used);
+                System.arraycopy(b, off, chunk, used, n);
+                used += n;
+                off += n;
+                len -= n;
+                if (used == CHUNK_BYTES) {
+                    flush();
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (used > 0) {
+                writeChunk("IDAT", chunk, used);
+                used = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import net.aethersanctum.graphics.perlin.TileStore.Encoding;
+
+/**
+ * Streams a heightmap out as bare little-endian samples, row after row,
+ * with no header: the layout most terrain tools import as "raw".
+ * <p>
+ * Samples are encoded the same way {@link TileStore} tiles are, 16-bit
+ * ones by a {@link HeightQuantizer}. Since the file itself can't say what
+ * its samples mean, {@link #sidecar()} describes them for saving alongside.
+ */
+@NotThreadSafe
+public class RawHeightmapWriter implements HeightmapRowWriter {
+    private final OutputStream out;
+    private final int width;
+    private final int height;
+    private final Encoding encoding;
+    private final HeightQuantizer quantizer;
+    private final ByteBuffer row;
+    private int rowsWritten;
+
+    /**
+     * @param out where the samples go; closed along with this writer
+     * @param width samples per row
+     * @param height number of rows
+     * @param encoding how to store each sample
+     * @param quantizer maps altitudes to samples; only needed for {@link Encoding#UINT16}
+     */
+    public RawHeightmapWriter(OutputStream out, int width, int height, Encoding encoding, HeightQuantizer quantizer) {
+        if (width <= 0 || height <= 0 || (long) width * encoding.getBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("bad heightmap size " + width + "x" + height);
+        }
+        if (encoding == Encoding.UINT16 && quantizer == null) {
+            throw new IllegalArgumentException("16-bit samples need an altitude range");
+        }
+        this.out = out;
+        this.width = width;
+        this.height = height;
+        this.encoding = encoding;
+        this.quantizer = encoding == Encoding.UINT16 ? quantizer : null;
+        this.row = ByteBuffer.allocate(width * encoding.getBytes()).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public void writeRows(float[] heights, int offset, int rows) throws IOException {
+        if (rows < 0 || rowsWritten + rows > height) {
+            throw new IOException("heightmap has " + height + " rows; can't write " + rows + " after " + rowsWritten);
+        }
+        if (offset < 0 || offset + (long) rows * width > heights.length) {
+            throw new IllegalArgumentException("heights array is too small for " + rows + " rows");
+        }
+        for (int r = 0; r < rows; r++) {
+            row.clear();
+            final int at = offset + r * width;
+            if (encoding == Encoding.UINT16) {
+                for (int col = 0; col < width; col++) {
+                    row.putShort((short) quantizer.quantize(heights[at + col]));
+                }
+            } else {
+                row.asFloatBuffer().put(heights, at, width);
+            }
+            out.write(row.array(), 0, row.capacity());
+            rowsWritten++;
+        }
+    }
+
+    /**
+     * Describe the file's samples, in {@link java.util.Properties} format, for
+     * saving next to it: {@code width}, {@code height}, {@code encoding} and
+     * {@code byteOrder}, and for 16-bit samples {@code altitudeMin}, the
+     * altitude of sample 0, and {@code altitudeStep}, the altitude between
+     * consecutive samples.
+     */
+    public String sidecar() {
+        final StringBuilder text = new StringBuilder()
+                .append("width=").append(width).append('\n')
+                .append("height=").append(height).append('\n')
+                .append("encoding=").append(encoding).append('\n')
+                .append("byteOrder=little-endian\n");
+        if (quantizer != null) {
+            text.append("altitudeMin=").append(quantizer.getMin()).append('\n')
+                    .append("altitudeStep=").append(quantizer.getStep()).append('\n');
+        }
+        return text.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rowsWritten != height) {
+                throw new IOException("only " + rowsWritten + " of " + height + " rows were written");
+            }
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+/**
+ * How each sample is written when grids are filled into buffers rather
+ * than arrays, such as by
+ * {@link FractalNoise#fillGrid2(double, double, double, double, int, int, int, int, java.nio.ByteBuffer, int, int, int, SampleFormat)}.
+ */
+public enum SampleFormat {
+    /**
+     * 32-bit floating point samples, exactly as the single precision grid fills give them.
+     */
+    FLOAT32(4),
+    /**
+     * 64-bit floating point samples, as the double precision grid fills give them.
+     */
+    FLOAT64(8),
+    /**
+     * Unsigned 16-bit samples, spread over every altitude the landscape
+     * can reach by {@link HeightQuantizer#forLandscape}, so that decoding
+     * them needs that quantizer's minimum and step.
+     */
+    UINT16(2);
+
+    private final int bytes;
+
+    SampleFormat(int bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return how many bytes each sample takes
+     */
+    public int getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Check that a block of samples fits in a buffer without any two
+     * samples overlapping.
+     * @param limit bytes available in the buffer
+     * @param offset where the first sample starts, in bytes
+     * @param sampleStride distance between the starts of consecutive samples in a row, in bytes
+     * @param rowStride distance between the starts of consecutive rows, in bytes
+     */
+    void checkBlock(long limit, long offset, long sampleStride, long rowStride, int w, int h) {
+        if (w < 0 || h < 0) {
+            throw new IllegalArgumentException("grid dimensions must not be negative");
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset must not be negative");
+        }
+        if (sampleStride < bytes) {
+            throw new IllegalArgumentException("sample stride must be at least " + bytes + " bytes");
+        }
+        final long rowBytes = w == 0 ? 0 : (w - 1) * sampleStride + bytes;
+        if (rowStride < rowBytes) {
+            throw new IllegalArgumentException("row stride must be at least " + rowBytes + " bytes");
+        }
+        if (w > 0 && h > 0 && offset + (h - 1) * rowStride + rowBytes > limit) {
+            throw new IllegalArgumentException("buffer of " + limit + " bytes is too small for a " + w + "x" + h
+                    + " block of " + this + " with sample stride " + sampleStride + " and row stride " + rowStride);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+/**
+ * Bulk noise done one point at a time. Works everywhere.
+ */
+final class ScalarBulkNoise implements BulkNoise {
+
+    @Override
+    public void noise2(PerlinNoise perlin, double[] xs, double[] ys, double[] out, int count) {
+        for (int i = 0; i < count; i++) {
+            out[i] = perlin.noise2(xs[i], ys[i]);
+        }
+    }
+
+    @Override
+    public void noise3(PerlinNoise perlin, double[] xs, double[] ys, double[] zs, double[] out, int count) {
+        for (int i = 0; i < count; i++) {
+            out[i] = perlin.noise3(xs[i], ys[i], zs[i]);
+        }
+    }
+}
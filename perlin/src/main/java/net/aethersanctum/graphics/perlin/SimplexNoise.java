@@ -0,0 +1,511 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import static net.aethersanctum.graphics.perlin.PerlinNoise.checkBulk;
+import static net.aethersanctum.graphics.perlin.PerlinNoise.checkGrid;
+import static net.aethersanctum.graphics.perlin.PerlinTables.RANGE_MASK;
+
+import java.util.Random;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Simplex noise over 2, 3 or 4 dimensions.
+ * <p>
+ * Where {@link PerlinNoise} blends the gradients at all 2<sup>n</sup>
+ * corners of a lattice cube, simplex noise splits space into simplices
+ * (triangles, tetrahedra and so on) and sums a radially fading kernel
+ * from just their n + 1 corners, so each extra dimension adds one corner
+ * rather than doubling the work. That makes 4d noise, such as a looping
+ * animated volume, affordable.
+ * <p>
+ * Follows Stefan Gustavson's "Simplex noise demystified", with its fixed
+ * gradient sets. The corner permutation comes from the same seeded tables
+ * as {@link PerlinNoise}, so a seed picks a world here as it does there,
+ * although the two give different noise. Values lie roughly between -1
+ * and 1.
+ * <p>
+ * Instances hold no mutable state, so one instance can safely be shared
+ * by any number of threads.
+ */
+@ThreadSafe
+public final class SimplexNoise implements NoiseEngine {
+    /** How many gradients the 2d and 3d noise pick between. */
+    static final int GRADIENTS_3D = 12;
+
+    /**
+     * A bound on the magnitude of 2d simplex noise: three corners, each
+     * contributing at most {@code 70 * (1/2 - r^2)^4 * sqrt(2) * r}, which
+     * peaks where {@code r^2 = 1/18}. Sampled values stay within about 1.
+     */
+    private static final double BOUND_2D = 70.0 * 3 * Math.sqrt(2) * Math.pow(4.0 / 9, 4) * Math.sqrt(1.0 / 18);
+
+    private static final double F2 = 0.5 * (Math.sqrt(3.0) - 1.0);
+    private static final double G2 = (3.0 - Math.sqrt(3.0)) / 6.0;
+    private static final double F3 = 1.0 / 3.0;
+    private static final double G3 = 1.0 / 6.0;
+    private static final double F4 = (Math.sqrt(5.0) - 1.0) / 4.0;
+    private static final double G4 = (5.0 - Math.sqrt(5.0)) / 20.0;
+
+    /** Midpoints of a cube's edges, flat like the gradients in {@link PerlinTables}. */
+    private static final double[] GRAD3 = {
+            1, 1, 0,   -1, 1, 0,   1, -1, 0,   -1, -1, 0,
+            1, 0, 1,   -1, 0, 1,   1, 0, -1,   -1, 0, -1,
+            0, 1, 1,   0, -1, 1,   0, 1, -1,   0, -1, -1
+    };
+
+    /** Midpoints of a tesseract's 32 edges. */
+    private static final double[] GRAD4 = new double[32 * 4];
+
+    static {
+        int at = 0;
+        for (int zero = 0; zero < 4; zero++) {
+            for (int signs = 0; signs < 8; signs++) {
+                for (int axis = 0, bit = 2; axis < 4; axis++) {
+                    GRAD4[at++] = axis == zero ? 0 : ((signs >> bit--) & 1) == 0 ? 1 : -1;
+                }
+            }
+        }
+    }
+
+    private final long seed;
+    private final int[] indices;
+    private final int[] gradients;
+
+    /**
+     * Create noise for a world picked at random.
+     */
+    public SimplexNoise() {
+        this(new Random().nextLong());
+    }
+
+    /**
+     * Create noise for a particular world. Instances made from the same
+     * seed produce identical noise, in this JVM or any other.
+     * @param seed the world seed
+     */
+    public SimplexNoise(long seed) {
+        final PerlinTables tables = PerlinTables.forSeed(seed);
+        this.seed = seed;
+        this.indices = tables.indices;
+        this.gradients = tables.simplexGradients;
+    }
+
+    @Override
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return a noise value for a point in 2d space
+     */
+    @Override
+    public double noise2(double xArg, double yArg) {
+        NoiseMetrics.sampled(2, 1);
+        // skew into the lattice of squares, each split into two triangles
+        final double s = (xArg + yArg) * F2;
+        final int i = floor(xArg + s),
+                j = floor(yArg + s);
+        final double t = (i + j) * G2,
+                x0 = xArg - (i - t),
+                y0 = yArg - (j - t);
+        final int i1 = x0 > y0 ? 1 : 0,
+                j1 = 1 - i1;
+        final double x1 = x0 - i1 + G2,
+                y1 = y0 - j1 + G2,
+                x2 = x0 - 1.0 + 2.0 * G2,
+                y2 = y0 - 1.0 + 2.0 * G2;
+
+        final int ii = i & RANGE_MASK,
+                jj = j & RANGE_MASK;
+        final int g0 = gradients[ii + indices[jj]],
+                g1 = gradients[ii + i1 + indices[jj + j1]],
+                g2 = gradients[ii + 1 + indices[jj + 1]];
+
+        return 70.0 * (corner2(g0, x0, y0) + corner2(g1, x1, y1) + corner2(g2, x2, y2));
+    }
+
+    /**
+     * Find the 2d noise value at a point together with its slope, from the
+     * same corners. The value is exactly what {@link #noise2} gives.
+     *
+     * @param xArg x coordinate
+     * @param yArg y coordinate
+     * @param out receives the value, then its partial derivatives along x and y
+     * @return the noise value
+     */
+    @Override
+    public double noise2WithGradient(double xArg, double yArg, double[] out) {
+        NoiseMetrics.sampled(2, 1);
+        final double s = (xArg + yArg) * F2;
+        final int i = floor(xArg + s),
+                j = floor(yArg + s);
+        final double t = (i + j) * G2,
+                x0 = xArg - (i - t),
+                y0 = yArg - (j - t);
+        final int i1 = x0 > y0 ? 1 : 0,
+                j1 = 1 - i1;
+        final double x1 = x0 - i1 + G2,
+                y1 = y0 - j1 + G2,
+                x2 = x0 - 1.0 + 2.0 * G2,
+                y2 = y0 - 1.0 + 2.0 * G2;
+
+        final int ii = i & RANGE_MASK,
+                jj = j & RANGE_MASK;
+        final int g0 = gradients[ii + indices[jj]] * 3,
+                g1 = gradients[ii + i1 + indices[jj + j1]] * 3,
+                g2 = gradients[ii + 1 + indices[jj + 1]] * 3;
+
+        // every corner offset moves one for one with the point, so each
+        // kernel t^4 (g.d) has slope t^4 g - 8 t^3 (g.d) d
+        double n = 0, nx = 0, ny = 0;
+        final double t0 = 0.5 - x0 * x0 - y0 * y0;
+        if (t0 >= 0) {
+            final double dot = GRAD3[g0] * x0 + GRAD3[g0 + 1] * y0,
+                    sq = t0 * t0,
+                    fourth = sq * sq,
+                    slope = -8.0 * sq * t0 * dot;
+            n += fourth * dot;
+            nx += fourth * GRAD3[g0] + slope * x0;
+            ny += fourth * GRAD3[g0 + 1] + slope * y0;
+        }
+        final double t1 = 0.5 - x1 * x1 - y1 * y1;
+        if (t1 >= 0) {
+            final double dot = GRAD3[g1] * x1 + GRAD3[g1 + 1] * y1,
+                    sq = t1 * t1,
+                    fourth = sq * sq,
+                    slope = -8.0 * sq * t1 * dot;
+            n += fourth * dot;
+            nx += fourth * GRAD3[g1] + slope * x1;
+            ny += fourth * GRAD3[g1 + 1] + slope * y1;
+        }
+        final double t2 = 0.5 - x2 * x2 - y2 * y2;
+        if (t2 >= 0) {
+            final double dot = GRAD3[g2] * x2 + GRAD3[g2 + 1] * y2,
+                    sq = t2 * t2,
+                    fourth = sq * sq,
+                    slope = -8.0 * sq * t2 * dot;
+            n += fourth * dot;
+            nx += fourth * GRAD3[g2] + slope * x2;
+            ny += fourth * GRAD3[g2 + 1] + slope * y2;
+        }
+        out[0] = 70.0 * n;
+        out[1] = 70.0 * nx;
+        out[2] = 70.0 * ny;
+        return out[0];
+    }
+
+    /**
+     * @return a noise value for a point in 3d space
+     */
+    @Override
+    public double noise3(double xArg, double yArg, double zArg) {
+        NoiseMetrics.sampled(3, 1);
+        final double s = (xArg + yArg + zArg) * F3;
+        final int i = floor(xArg + s),
+                j = floor(yArg + s),
+                k = floor(zArg + s);
+        final double t = (i + j + k) * G3,
+                x0 = xArg - (i - t),
+                y0 = yArg - (j - t),
+                z0 = zArg - (k - t);
+
+        // which of the six tetrahedra in the cube holds the point: the
+        // simplex steps along the largest offset first, then the next
+        final int xy = x0 >= y0 ? 1 : 0,
+                xz = x0 >= z0 ? 1 : 0,
+                yz = y0 >= z0 ? 1 : 0,
+                rankx = xy + xz,
+                ranky = 1 - xy + yz,
+                rankz = 2 - xz - yz;
+        final int i1 = rankx >= 2 ? 1 : 0, j1 = ranky >= 2 ? 1 : 0, k1 = rankz >= 2 ? 1 : 0,
+                i2 = rankx >= 1 ? 1 : 0, j2 = ranky >= 1 ? 1 : 0, k2 = rankz >= 1 ? 1 : 0;
+        final double x1 = x0 - i1 + G3,
+                y1 = y0 - j1 + G3,
+                z1 = z0 - k1 + G3,
+                x2 = x0 - i2 + 2.0 * G3,
+                y2 = y0 - j2 + 2.0 * G3,
+                z2 = z0 - k2 + 2.0 * G3,
+                x3 = x0 - 1.0 + 3.0 * G3,
+                y3 = y0 - 1.0 + 3.0 * G3,
+                z3 = z0 - 1.0 + 3.0 * G3;
+
+        final int ii = i & RANGE_MASK,
+                jj = j & RANGE_MASK,
+                kk = k & RANGE_MASK;
+        final int g0 = gradients[ii + indices[jj + indices[kk]]],
+                g1 = gradients[ii + i1 + indices[jj + j1 + indices[kk + k1]]],
+                g2 = gradients[ii + i2 + indices[jj + j2 + indices[kk + k2]]],
+                g3 = gradients[ii + 1 + indices[jj + 1 + indices[kk + 1]]];
+
+        return 32.0 * (corner3(g0, x0, y0, z0) + corner3(g1, x1, y1, z1)
+                + corner3(g2, x2, y2, z2) + corner3(g3, x3, y3, z3));
+    }
+
+    /**
+     * @return a noise value for a point in 4d space
+     */
+    public double noise4(double xArg, double yArg, double zArg, double wArg) {
+        NoiseMetrics.sampled(4, 1);
+        final double s = (xArg + yArg + zArg + wArg) * F4;
+        final int i = floor(xArg + s),
+                j = floor(yArg + s),
+                k = floor(zArg + s),
+                l = floor(wArg + s);
+        final double t = (i + j + k + l) * G4,
+                x0 = xArg - (i - t),
+                y0 = yArg - (j - t),
+                z0 = zArg - (k - t),
+                w0 = wArg - (l - t);
+
+        // rank the offsets; the simplex steps along the largest first
+        final int xy = x0 > y0 ? 1 : 0,
+                xz = x0 > z0 ? 1 : 0,
+                xw = x0 > w0 ? 1 : 0,
+                yz = y0 > z0 ? 1 : 0,
+                yw = y0 > w0 ? 1 : 0,
+                zw = z0 > w0 ? 1 : 0,
+                rankx = xy + xz + xw,
+                ranky = 1 - xy + yz + yw,
+                rankz = 2 - xz - yz + zw,
+                rankw = 3 - xw - yw - zw;
+        final int i1 = rankx >= 3 ? 1 : 0, j1 = ranky >= 3 ? 1 : 0, k1 = rankz >= 3 ? 1 : 0, l1 = rankw >= 3 ? 1 : 0,
+                i2 = rankx >= 2 ? 1 : 0, j2 = ranky >= 2 ? 1 : 0, k2 = rankz >= 2 ? 1 : 0, l2 = rankw >= 2 ? 1 : 0,
+                i3 = rankx >= 1 ? 1 : 0, j3 = ranky >= 1 ? 1 : 0, k3 = rankz >= 1 ? 1 : 0, l3 = rankw >= 1 ? 1 : 0;
+
+        final double x1 = x0 - i1 + G4, y1 = y0 - j1 + G4, z1 = z0 - k1 + G4, w1 = w0 - l1 + G4,
+                x2 = x0 - i2 + 2.0 * G4, y2 = y0 - j2 + 2.0 * G4, z2 = z0 - k2 + 2.0 * G4, w2 = w0 - l2 + 2.0 * G4,
+                x3 = x0 - i3 + 3.0 * G4, y3 = y0 - j3 + 3.0 * G4, z3 = z0 - k3 + 3.0 * G4, w3 = w0 - l3 + 3.0 * G4,
+                x4 = x0 - 1.0 + 4.0 * G4, y4 = y0 - 1.0 + 4.0 * G4, z4 = z0 - 1.0 + 4.0 * G4, w4 = w0 - 1.0 + 4.0 * G4;
+
+        final int ii = i & RANGE_MASK,
+                jj = j & RANGE_MASK,
+                kk = k & RANGE_MASK,
+                ll = l & RANGE_MASK;
+        final int g0 = indices[ii + indices[jj + indices[kk + indices[ll]]]] & 31,
+                g1 = indices[ii + i1 + indices[jj + j1 + indices[kk + k1 + indices[ll + l1]]]] & 31,
+                g2 = indices[ii + i2 + indices[jj + j2 + indices[kk + k2 + indices[ll + l2]]]] & 31,
+                g3 = indices[ii + i3 + indices[jj + j3 + indices[kk + k3 + indices[ll + l3]]]] & 31,
+                g4 = indices[ii + 1 + indices[jj + 1 + indices[kk + 1 + indices[ll + 1]]]] & 31;
+
+        return 27.0 * (corner4(g0, x0, y0, z0, w0) + corner4(g1, x1, y1, z1, w1) + corner4(g2, x2, y2, z2, w2)
+                + corner4(g3, x3, y3, z3, w3) + corner4(g4, x4, y4, z4, w4));
+    }
+
+    /**
+     * Evaluate 2d noise for many points at once.
+     *
+     * @param xs x coordinates of the points
+     * @param ys y coordinates of the points
+     * @param out receives the noise value for each point
+     * @param count how many points to evaluate, from the start of each array
+     */
+    public void noise2(double[] xs, double[] ys, double[] out, int count) {
+        checkBulk(count, xs, ys, out);
+        for (int i = 0; i < count; i++) {
+            out[i] = noise2(xs[i], ys[i]);
+        }
+    }
+
+    /**
+     * Evaluate 3d noise for many points at once.
+     *
+     * @param xs x coordinates of the points
+     * @param ys y coordinates of the points
+     * @param zs z coordinates of the points
+     * @param out receives the noise value for each point
+     * @param count how many points to evaluate, from the start of each array
+     */
+    public void noise3(double[] xs, double[] ys, double[] zs, double[] out, int count) {
+        checkBulk(count, xs, ys, zs, out);
+        for (int i = 0; i < count; i++) {
+            out[i] = noise3(xs[i], ys[i], zs[i]);
+        }
+    }
+
+    /**
+     * Evaluate 4d noise for many points at once.
+     *
+     * @param xs x coordinates of the points
+     * @param ys y coordinates of the points
+     * @param zs z coordinates of the points
+     * @param ws w coordinates of the points
+     * @param out receives the noise value for each point
+     * @param count how many points to evaluate, from the start of each array
+     */
+    public void noise4(double[] xs, double[] ys, double[] zs, double[] ws, double[] out, int count) {
+        checkBulk(count, xs, ys, zs, ws, out);
+        for (int i = 0; i < count; i++) {
+            out[i] = noise4(xs[i], ys[i], zs[i], ws[i]);
+        }
+    }
+
+    /**
+     * Give bounds which {@link #noise2} lies within everywhere, whatever the
+     * rectangle. They are loose, since simplex noise isn't blended from the
+     * corners of lattice cells as {@link PerlinNoise} is.
+     *
+     * @param x0 least x of the rectangle
+     * @param y0 least y of the rectangle
+     * @param x1 greatest x of the rectangle, at least x0
+     * @param y1 greatest y of the rectangle, at least y0
+     * @param out receives the lower bound, then the upper bound
+     */
+    @Override
+    public void noise2Bounds(double x0, double y0, double x1, double y1, double[] out) {
+        NoiseBounds.checkRectangle(x0, y0, x1, y1, out);
+        out[0] = -BOUND_2D;
+        out[1] = BOUND_2D;
+    }
+
+    @Override
+    public void noise2Range(double[] out) {
+        out[0] = -BOUND_2D;
+        out[1] = BOUND_2D;
+    }
+
+    /**
+     * Fill a regular grid of points in 2d space with noise values, the same
+     * as calling {@link #noise2} at each point {@code (x0 + col * dx, y0 + row * dy)}.
+     * Neighbouring points rarely share a simplex, so unlike
+     * {@link PerlinNoise#fillGrid2} there are no lookups to share between them.
+     *
+     * @param x0 x coordinate of the first column
+     * @param y0 y coordinate of the first row
+     * @param dx distance between columns
+     * @param dy distance between rows
+     * @param w number of columns
+     * @param h number of rows
+     * @param out receives the values in row-major order, {@code out[row * w + col]}
+     */
+    @Override
+    public void fillGrid2(double x0, double y0, double dx, double dy, int w, int h, double[] out) {
+        checkGrid(out.length, w, h, 1);
+        for (int row = 0, at = 0; row < h; row++) {
+            final double y = y0 + row * dy;
+            for (int col = 0; col < w; col++) {
+                out[at++] = noise2(x0 + col * dx, y);
+            }
+        }
+    }
+
+    /**
+     * Fill part of a larger grid of points in 2d space with noise values,
+     * rounded to single precision.
+     *
+     * @param x0 x coordinate of the first column of the larger grid
+     * @param y0 y coordinate of the first row of the larger grid
+     * @param dx distance between columns
+     * @param dy distance between rows
+     * @param col0 first column of the block to fill
+     * @param row0 first row of the block to fill
+     * @param w number of columns in the block
+     * @param h number of rows in the block
+     * @param out receives the values, {@code out[offset + row * stride + col]}
+     * @param offset where in out the block's first value goes
+     * @param stride distance in out between the starts of consecutive rows
+     */
+    @Override
+    public void fillGrid2(double x0, double y0, double dx, double dy, int col0, int row0, int w, int h,
+                          float[] out, int offset, int stride) {
+        checkGrid(out.length, offset, stride, w, h);
+        for (int row = 0; row < h; row++) {
+            final double y = y0 + (row0 + row) * dy;
+            final int at = offset + row * stride;
+            for (int col = 0; col < w; col++) {
+                out[at + col] = (float) noise2(x0 + (col0 + col) * dx, y);
+            }
+        }
+    }
+
+    /**
+     * Fill a regular grid of points in 3d space with noise values, the same
+     * as calling {@link #noise3} at each point.
+     *
+     * @param x0 x coordinate of the first column
+     * @param y0 y coordinate of the first row
+     * @param z0 z coordinate of the first slice
+     * @param dx distance between columns
+     * @param dy distance between rows
+     * @param dz distance between slices
+     * @param w number of columns
+     * @param h number of rows
+     * @param d number of slices
+     * @param out receives the values, {@code out[(slice * h + row) * w + col]}
+     */
+    public void fillGrid3(double x0, double y0, double z0, double dx, double dy, double dz,
+                          int w, int h, int d, double[] out) {
+        checkGrid(out.length, w, h, d);
+        for (int slice = 0, at = 0; slice < d; slice++) {
+            final double z = z0 + slice * dz;
+            for (int row = 0; row < h; row++) {
+                final double y = y0 + row * dy;
+                for (int col = 0; col < w; col++) {
+                    out[at++] = noise3(x0 + col * dx, y, z);
+                }
+            }
+        }
+    }
+
+    /**
+     * Round down to a whole number, faster than {@link Math#floor}.
+     */
+    private static int floor(double t) {
+        final int whole = (int) t;
+        return t < whole ? whole - 1 : whole;
+    }
+
+    /**
+     * Contribution of one corner's kernel in 2d.
+     * @param g which gradient the corner has
+     * @param x offset of the point from the corner along x
+     * @param y offset along y
+     */
+    private static double corner2(int g, double x, double y) {
+        double t = 0.5 - x * x - y * y;
+        if (t < 0) {
+            return 0;
+        }
+        t *= t;
+        final int at = g * 3;
+        return t * t * (GRAD3[at] * x + GRAD3[at + 1] * y);
+    }
+
+    /**
+     * Contribution of one corner's kernel in 3d.
+     */
+    private static double corner3(int g, double x, double y, double z) {
+        double t = 0.6 - x * x - y * y - z * z;
+        if (t < 0) {
+            return 0;
+        }
+        t *= t;
+        final int at = g * 3;
+        return t * t * (GRAD3[at] * x + GRAD3[at + 1] * y + GRAD3[at + 2] * z);
+    }
+
+    /**
+     * Contribution of one corner's kernel in 4d.
+     */
+    private static double corner4(int g, double x, double y, double z, double w) {
+        double t = 0.6 - x * x - y * y - z * z - w * w;
+        if (t < 0) {
+            return 0;
+        }
+        t *= t;
+        final int at = g * 4;
+        return t * t * (GRAD4[at] * x + GRAD4[at + 1] * y + GRAD4[at + 2] * z + GRAD4[at + 3] * w);
+    }
+}
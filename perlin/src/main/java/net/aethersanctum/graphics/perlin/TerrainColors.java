@@ -11,7 +11,7 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package net.aethersanctum.graphics.perlin.demo;
+package net.aethersanctum.graphics.perlin;
 
 import java.awt.*;
 
@@ -31,4 +31,11 @@ public class TerrainColors {
     public Color colorAt(double elevation) {
         return colors.colorAt(elevation);
     }
+
+    /**
+     * @return the colour at that elevation as packed ARGB, from a table
+     */
+    public int argbAt(double elevation) {
+        return colors.argbAt(elevation);
+    }
 }
@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+/**
+ * An indexed triangle mesh of a square of landscape, as built by
+ * {@link TerrainMesher}.
+ * <p>
+ * The arrays are handed over as they are, not copied, so they can go
+ * straight to a mesh builder or vertex buffer; callers which change them
+ * change the mesh.
+ */
+public final class TerrainMesh {
+    private final float[] positions;
+    private final int[] indices;
+    private final int leafCount;
+    private final int sampleCount;
+
+    TerrainMesh(float[] positions, int[] indices, int leafCount, int sampleCount) {
+        this.positions = positions;
+        this.indices = indices;
+        this.leafCount = leafCount;
+        this.sampleCount = sampleCount;
+    }
+
+    /**
+     * @return vertex positions, {@code x, y, z} for each vertex in turn;
+     *         x and z are measured from the corner of the square and y is
+     *         the altitude
+     */
+    public float[] getPositions() {
+        return positions;
+    }
+
+    /**
+     * @return three vertex indices for each triangle, wound so that their
+     *         normals point up by the right-hand rule
+     */
+    public int[] getIndices() {
+        return indices;
+    }
+
+    /**
+     * @return number of vertices
+     */
+    public int getVertexCount() {
+        return positions.length / 3;
+    }
+
+    /**
+     * @return number of triangles
+     */
+    public int getTriangleCount() {
+        return indices.length / 3;
+    }
+
+    /**
+     * @return number of quadtree nodes the mesh was built from
+     */
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * @return number of altitudes computed to build the mesh, including
+     *         those only used to measure error
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    @Override
+    public String toString() {
+        return "TerrainMesh[" + getVertexCount() + " vertices, " + getTriangleCount() + " triangles, "
+                + leafCount + " leaves, " + sampleCount + " samples]";
+    }
+}
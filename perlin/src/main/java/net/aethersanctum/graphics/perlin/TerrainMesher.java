@@ -0,0 +1,428 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import java.util.Arrays;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Builds triangle meshes of {@link FractalNoise} landscape with vertices
+ * only where the ground needs them, rather than on a uniform grid.
+ * <p>
+ * A square of landscape is the root of a quadtree. A node is split in four
+ * while the triangles it would become stray from the landscape by more than
+ * a threshold, either a fixed height or one which grows with distance from
+ * a viewer so that it stays near a number of pixels on screen. Flat
+ * ground, such as the lowland {@link FractalNoise#fractalNoiseSmoothBottom(double, double)}
+ * makes, ends up in a few large triangles.
+ * <p>
+ * The threshold is a heuristic, not a bound on the error. How far a node
+ * strays is measured only at the midpoints of its edges and halfway between
+ * its corners and its centre, the points its children would add, so
+ * features much smaller than a node can go unnoticed and the finished mesh
+ * can stray further than the threshold in places. Bounding the landscape
+ * over each node instead, with {@link FractalNoise#fractalNoiseBounds}, would
+ * make it a guarantee, but the finer octaves' bounds are wider than useful
+ * thresholds and every node would be split to the deepest level. Nodes are
+ * always split until they are no wider than a cell of the coarsest octave.
+ * <p>
+ * Neighbouring leaves differ by at most one level, and a leaf fans its
+ * triangles out from its centre to its corners and to the midpoint of any
+ * edge shared with finer leaves, so the mesh has no cracks. Altitudes are
+ * sampled once per point and shared by every node which touches it. They
+ * leave out octaves finer than the smallest leaves, as
+ * {@link FractalNoise#fractalNoise(double, double, double)} does.
+ */
+@ThreadSafe
+public class TerrainMesher {
+    /**
+     * Deepest quadtree allowed, a mesh of up to 8192 spacings across; larger
+     * areas are better built as several meshes.
+     */
+    public static final int MAX_LEVEL = 12;
+
+    private final FractalNoise noise;
+    private final boolean smoothBottom;
+    private final int maxLevel;
+
+    /**
+     * @param noise the landscape to mesh
+     * @param smoothBottom whether to use the smooth bottomed altitudes
+     * @param maxLevel deepest quadtree level; a square split this many
+     *                 times has leaves {@code 2^maxLevel} across, and its
+     *                 finest vertices are twice as close
+     */
+    public TerrainMesher(FractalNoise noise, boolean smoothBottom, int maxLevel) {
+        if (maxLevel < 0 || maxLevel > MAX_LEVEL) {
+            throw new IllegalArgumentException("quadtree level must be from 0 to " + MAX_LEVEL);
+        }
+        this.noise = noise;
+        this.smoothBottom = smoothBottom;
+        this.maxLevel = maxLevel;
+    }
+
+    /**
+     * Mesh a square, splitting nodes which stray by more than a fixed height.
+     *
+     * @param x0 east-west coordinate of the square's corner
+     * @param z0 north-south coordinate of the square's corner
+     * @param size width of the square
+     * @param errorThreshold how far a node may stray from the landscape where
+     *                       it is measured before it is split, in altitude
+     * @return the mesh, with positions measured from (x0, z0)
+     */
+    public TerrainMesh build(double x0, double z0, double size, double errorThreshold) {
+        if (!(errorThreshold >= 0)) {
+            throw new IllegalArgumentException("error threshold must not be negative");
+        }
+        return new Build(x0, z0, size, (x, z, width, low, high) -> errorThreshold).run();
+    }
+
+    /**
+     * Mesh a square, splitting nodes which stray from the landscape by more
+     * than a number of pixels as seen from a viewpoint, letting distant
+     * ground be coarser than nearby ground.
+     *
+     * @param x0 east-west coordinate of the square's corner
+     * @param z0 north-south coordinate of the square's corner
+     * @param size width of the square
+     * @param pixelThreshold how far a node may stray on screen where it is
+     *                       measured before it is split, in pixels
+     * @param eyeX east-west coordinate of the viewpoint
+     * @param eyeY altitude of the viewpoint
+     * @param eyeZ north-south coordinate of the viewpoint
+     * @param focalLength pixels covered by one unit seen from one unit away,
+     *                    {@code viewportHeight / (2 * tan(fieldOfView / 2))}
+     * @return the mesh, with positions measured from (x0, z0)
+     */
+    public TerrainMesh build(double x0, double z0, double size, double pixelThreshold,
+                             double eyeX, double eyeY, double eyeZ, double focalLength) {
+        if (!(pixelThreshold >= 0) || !(focalLength > 0)) {
+            throw new IllegalArgumentException("pixel threshold must not be negative and focal length must be positive");
+        }
+        final double pixel = pixelThreshold / focalLength;
+        return new Build(x0, z0, size, (x, z, width, low, high) -> {
+            final double dx = Math.max(0, Math.max(x - eyeX, eyeX - (x + width))),
+                    dy = Math.max(0, Math.max(low - eyeY, eyeY - high)),
+                    dz = Math.max(0, Math.max(z - eyeZ, eyeZ - (z + width)));
+            return pixel * Math.sqrt(dx * dx + dy * dy + dz * dz);
+        }).run();
+    }
+
+    /**
+     * How far a node may stray from the landscape.
+     */
+    private interface Tolerance {
+        /**
+         * @param x east-west coordinate of the node's corner
+         * @param z north-south coordinate of the node's corner
+         * @param width width of the node
+         * @param low lowest altitude sampled at the node's corners and centre
+         * @param high highest altitude sampled there
+         */
+        double allowed(double x, double z, double width, double low, double high);
+    }
+
+    /**
+     * The state of one mesh being built. Points are addressed on a lattice
+     * {@code 2^(maxLevel + 1)} spacings across, fine enough to hold the
+     * centres of the smallest leaves; which nodes are split is kept as a
+     * bit for each node on each level.
+     */
+    private final class Build {
+        private final double x0;
+        private final double z0;
+        private final double spacing;
+        private final double footprint;
+        private final int forcedLevel;
+        private final Tolerance tolerance;
+
+        private final LongIntTable slots = new LongIntTable();
+        private final long[][] splits = new long[maxLevel][];
+        private float[] heights = new float[1024];
+        private int[] vertexOf = new int[1024];
+        private int sampleCount;
+
+        private float[] positions = new float[3072];
+        private int[] indices = new int[6144];
+        private int vertexCount;
+        private int indexCount;
+        private int leafCount;
+
+        Build(double x0, double z0, double size, Tolerance tolerance) {
+            if (!(size > 0) || Double.isInfinite(size)) {
+                throw new IllegalArgumentException("size must be positive");
+            }
+            this.x0 = x0;
+            this.z0 = z0;
+            this.spacing = size / (1 << (maxLevel + 1));
+            // the width of the smallest leaves
+            this.footprint = 2 * spacing;
+            this.tolerance = tolerance;
+            int level = 0;
+            while (level < maxLevel && size / (1 << level) > 1 / noise.getFrequency()) {
+                level++;
+            }
+            this.forcedLevel = level;
+        }
+
+        TerrainMesh run() {
+            refine(0, 0, 0);
+            emit(0, 0, 0);
+            return new TerrainMesh(Arrays.copyOf(positions, vertexCount * 3), Arrays.copyOf(indices, indexCount),
+                    leafCount, sampleCount);
+        }
+
+        private void refine(int level, int ix, int iz) {
+            if (level < maxLevel && !isSplit(level, ix, iz) && (level < forcedLevel || needsSplit(level, ix, iz))) {
+                split(level, ix, iz);
+            }
+            if (isSplit(level, ix, iz)) {
+                for (int child = 0; child < 4; child++) {
+                    refine(level + 1, 2 * ix + (child & 1), 2 * iz + (child >> 1));
+                }
+            }
+        }
+
+        /**
+         * Check the points a node's children would add against the node's
+         * own triangles: edge midpoints against their edges, and points
+         * between the corners and centre against the diagonals.
+         */
+        private boolean needsSplit(int level, int ix, int iz) {
+            final int span = (1 << (maxLevel + 1 - level)),
+                    half = span >> 1, quarter = span >> 2,
+                    i0 = ix * span, j0 = iz * span, i1 = i0 + span, j1 = j0 + span;
+            final float h00 = height(i0, j0), h10 = height(i1, j0),
+                    h01 = height(i0, j1), h11 = height(i1, j1),
+                    centre = height(i0 + half, j0 + half);
+            final double low = Math.min(Math.min(Math.min(h00, h10), Math.min(h01, h11)), centre),
+                    high = Math.max(Math.max(Math.max(h00, h10), Math.max(h01, h11)), centre);
+            final double allowed = tolerance.allowed(x0 + i0 * spacing, z0 + j0 * spacing, span * spacing, low, high);
+            return deviation(height(i0 + half, j0), h00, h10) > allowed
+                    || deviation(height(i1, j0 + half), h10, h11) > allowed
+                    || deviation(height(i0 + half, j1), h01, h11) > allowed
+                    || deviation(height(i0, j0 + half), h00, h01) > allowed
+                    || deviation(height(i0 + quarter, j0 + quarter), h00, centre) > allowed
+                    || deviation(height(i1 - quarter, j0 + quarter), h10, centre) > allowed
+                    || deviation(height(i0 + quarter, j1 - quarter), h01, centre) > allowed
+                    || deviation(height(i1 - quarter, j1 - quarter), h11, centre) > allowed;
+        }
+
+        private double deviation(float midway, float a, float b) {
+            return Math.abs(midway - 0.5 * (a + b));
+        }
+
+        /**
+         * Split a node, first splitting whatever is needed for it to exist
+         * and for its neighbours on the same level to exist, so that its
+         * children are never next to leaves more than one level coarser.
+         */
+        private void split(int level, int ix, int iz) {
+            if (isSplit(level, ix, iz)) {
+                return;
+            }
+            if (level > 0) {
+                final int across = 1 << level;
+                split(level - 1, ix >> 1, iz >> 1);
+                if (ix > 0) {
+                    split(level - 1, (ix - 1) >> 1, iz >> 1);
+                }
+                if (ix + 1 < across) {
+                    split(level - 1, (ix + 1) >> 1, iz >> 1);
+                }
+                if (iz > 0) {
+                    split(level - 1, ix >> 1, (iz - 1) >> 1);
+                }
+                if (iz + 1 < across) {
+                    split(level - 1, ix >> 1, (iz + 1) >> 1);
+                }
+            }
+            if (splits[level] == null) {
+                splits[level] = new long[Math.max(1, (1 << (2 * level)) >> 6)];
+            }
+            final int bit = (iz << level) + ix;
+            splits[level][bit >> 6] |= 1L << bit;
+        }
+
+        /**
+         * @return whether a node exists and has been split, so nodes outside
+         *         the square or below the deepest level count as unsplit
+         */
+        private boolean isSplit(int level, int ix, int iz) {
+            if (ix < 0 || iz < 0 || ix >= (1 << level) || iz >= (1 << level)
+                    || level >= maxLevel || splits[level] == null) {
+                return false;
+            }
+            final int bit = (iz << level) + ix;
+            return (splits[level][bit >> 6] & (1L << bit)) != 0;
+        }
+
+        private void emit(int level, int ix, int iz) {
+            if (isSplit(level, ix, iz)) {
+                for (int child = 0; child < 4; child++) {
+                    emit(level + 1, 2 * ix + (child & 1), 2 * iz + (child >> 1));
+                }
+                return;
+            }
+            leafCount++;
+            final int span = (1 << (maxLevel + 1 - level)), half = span >> 1,
+                    i0 = ix * span, j0 = iz * span, i1 = i0 + span, j1 = j0 + span;
+            final int centre = vertex(i0 + half, j0 + half);
+            final int first = vertex(i0, j0);
+            int last = first;
+            if (isSplit(level, ix, iz - 1)) {
+                last = fan(centre, last, vertex(i0 + half, j0));
+            }
+            last = fan(centre, last, vertex(i1, j0));
+            if (isSplit(level, ix + 1, iz)) {
+                last = fan(centre, last, vertex(i1, j0 + half));
+            }
+            last = fan(centre, last, vertex(i1, j1));
+            if (isSplit(level, ix, iz + 1)) {
+                last = fan(centre, last, vertex(i0 + half, j1));
+            }
+            last = fan(centre, last, vertex(i0, j1));
+            if (isSplit(level, ix - 1, iz)) {
+                last = fan(centre, last, vertex(i0, j0 + half));
+            }
+            fan(centre, last, first);
+        }
+
+        /**
+         * Add the triangle between the centre and two consecutive points
+         * of the boundary, going round the boundary towards +x then +z.
+         * @return the later boundary point
+         */
+        private int fan(int centre, int from, int to) {
+            if (indexCount + 3 > indices.length) {
+                indices = Arrays.copyOf(indices, indices.length * 2);
+            }
+            indices[indexCount++] = centre;
+            indices[indexCount++] = to;
+            indices[indexCount++] = from;
+            return to;
+        }
+
+        private int vertex(int i, int j) {
+            final int slot = slot(i, j);
+            if (vertexOf[slot] < 0) {
+                if (vertexCount * 3 + 3 > positions.length) {
+                    positions = Arrays.copyOf(positions, positions.length * 2);
+                }
+                positions[vertexCount * 3] = (float) (i * spacing);
+                positions[vertexCount * 3 + 1] = heights[slot];
+                positions[vertexCount * 3 + 2] = (float) (j * spacing);
+                vertexOf[slot] = vertexCount++;
+            }
+            return vertexOf[slot];
+        }
+
+        private float height(int i, int j) {
+            final int slot = slot(i, j);
+            return heights[slot];
+        }
+
+        /**
+         * Find where a lattice point's altitude is kept, sampling it the
+         * first time it is asked for.
+         */
+        private int slot(int i, int j) {
+            final long key = ((long) i << 32) | j;
+            int slot = slots.get(key);
+            if (slot < 0) {
+                if (sampleCount == heights.length) {
+                    heights = Arrays.copyOf(heights, sampleCount * 2);
+                    vertexOf = Arrays.copyOf(vertexOf, sampleCount * 2);
+                }
+                final double x = x0 + i * spacing, z = z0 + j * spacing;
+                slot = sampleCount++;
+                heights[slot] = (float) (smoothBottom
+                        ? noise.fractalNoiseSmoothBottom(x, z, footprint)
+                        : noise.fractalNoise(x, z, footprint));
+                vertexOf[slot] = -1;
+                slots.put(key, slot);
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * An open addressed map from non-negative longs to ints, so lattice
+     * points can be looked up without boxing.
+     */
+    private static final class LongIntTable {
+        private static final long EMPTY = -1;
+
+        private long[] keys = new long[1024];
+        private int[] values = new int[1024];
+        private int size;
+
+        LongIntTable() {
+            Arrays.fill(keys, EMPTY);
+        }
+
+        /**
+         * @return the value for a key, or -1 if it has none
+         */
+        int get(long key) {
+            final int mask = keys.length - 1;
+            for (int at = index(key, mask); ; at = (at + 1) & mask) {
+                if (keys[at] == key) {
+                    return values[at];
+                }
+                if (keys[at] == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        void put(long key, int value) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+            }
+            final int mask = keys.length - 1;
+            int at = index(key, mask);
+            while (keys[at] != EMPTY && keys[at] != key) {
+                at = (at + 1) & mask;
+            }
+            if (keys[at] == EMPTY) {
+                size++;
+            }
+            keys[at] = key;
+            values[at] = value;
+        }
+
+        private void grow() {
+            final long[] oldKeys = keys;
+            final int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int index(long key, int mask) {
+            long mixed = (key ^ (key >>> 33)) * 0xFF51AFD7ED558CCDL;
+            mixed = (mixed ^ (mixed >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            return (int) (mixed ^ (mixed >>> 33)) & mask;
+        }
+    }
+}
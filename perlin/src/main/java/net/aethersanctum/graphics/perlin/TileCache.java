@@ -0,0 +1,652 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Keeps recently used tiles of {@link FractalNoise} altitudes in memory, so
+ * that repeated queries around the same places read arrays instead of
+ * evaluating every octave again.
+ * <p>
+ * One cache can hold the tiles of many worlds, each the landscape for a
+ * seed, under a single memory budget: tiles are kept by seed as well as by
+ * position and level of detail. The methods without a seed use the cache's
+ * default world.
+ * <p>
+ * The plane is cut into square tiles of {@code tileSize} by {@code tileSize}
+ * samples. At level of detail 0 samples are {@code spacing} apart, and each
+ * level up doubles the spacing, so one tile covers four times the area.
+ * Tiles store one extra row and column shared with their neighbours, so
+ * any point can be interpolated from a single tile. Octaves too fine to
+ * show at a tile's sample spacing are left out, which makes the coarser
+ * levels of detail much cheaper to compute.
+ * <p>
+ * Samples sit a fixed, irrational fraction of a step off the multiples of
+ * the step. Were they on them, any level whose step is a whole number of
+ * lattice cells would sample the noise only where it is zero, and come
+ * out flat.
+ * <p>
+ * Lookups take no locks and allocate nothing when the tile is cached. The
+ * tiles are spread over stripes, each an open addressed table which is
+ * copied whenever a tile is added or dropped, so readers never see one
+ * half changed. Callers making many queries close together can hold on to
+ * a {@link Tile} from {@link #tileAt} and query it directly.
+ * <p>
+ * Once the tiles' total size goes over the memory budget, the least
+ * recently used of a handful of tiles picked at random is dropped, until
+ * the total fits again. When several threads miss on the same tile at
+ * once, only one of them computes it and the rest wait for its result.
+ */
+@ThreadSafe
+public class TileCache {
+    /**
+     * Rough cost of a tile beyond its samples: the array header, the tile
+     * object and its slot in a table.
+     */
+    static final int TILE_OVERHEAD_BYTES = 96;
+    private static final int STRIPES = 16;
+    private static final int EVICTION_SAMPLES = 8;
+    /**
+     * How far, in steps, samples sit east and north of the multiples of
+     * the step: the golden ratio's fractional part, which no power of two
+     * times a whole number of cells brings back onto the lattice.
+     */
+    public static final double SAMPLE_OFFSET = (Math.sqrt(5) - 1) / 2;
+
+    private final LongFunction<FractalNoise> worlds;
+    private final long defaultSeed;
+    private final int tileSize;
+    private final double spacing;
+    private final long maxBytes;
+    private final long tileBytes;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final ConcurrentHashMap<Key, CompletableFuture<Tile>> loading = new ConcurrentHashMap<>();
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    /**
+     * Advances once per tile stored, stamping tiles as they are used.
+     */
+    private final AtomicLong clock = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Cache a single landscape, which is also the default world.
+     *
+     * @param noise the landscape to cache
+     * @param tileSize number of samples along each edge of a tile
+     * @param spacing distance between samples at level of detail 0
+     * @param maxBytes how much memory the cached tiles may use
+     */
+    public TileCache(FractalNoise noise, int tileSize, double spacing, long maxBytes) {
+        this(only(noise), noise.getSeed(), tileSize, spacing, maxBytes);
+    }
+
+    /**
+     * Cache the landscapes of many worlds, with seed 0 as the default world.
+     *
+     * @param worlds gives the landscape for a seed; called whenever one of
+     *               that world's tiles is computed, from whichever thread
+     *               computes it, so it must be thread-safe and should be
+     *               cheap, as creating a {@link FractalNoise} from a seed is
+     * @param tileSize number of samples along each edge of a tile
+     * @param spacing distance between samples at level of detail 0
+     * @param maxBytes how much memory the cached tiles may use
+     */
+    public TileCache(LongFunction<FractalNoise> worlds, int tileSize, double spacing, long maxBytes) {
+        this(worlds, 0, tileSize, spacing, maxBytes);
+    }
+
+    private TileCache(LongFunction<FractalNoise> worlds, long defaultSeed, int tileSize, double spacing,
+                      long maxBytes) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("tile size must be positive");
+        }
+        if (!(spacing > 0)) {
+            throw new IllegalArgumentException("sample spacing must be positive");
+        }
+        this.worlds = worlds;
+        this.defaultSeed = defaultSeed;
+        this.tileSize = tileSize;
+        this.spacing = spacing;
+        this.maxBytes = maxBytes;
+        this.tileBytes = 4L * (tileSize + 1) * (tileSize + 1) + TILE_OVERHEAD_BYTES;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private static LongFunction<FractalNoise> only(FractalNoise noise) {
+        return seed -> {
+            if (seed != noise.getSeed()) {
+                throw new IllegalArgumentException("this cache only holds the world with seed " + noise.getSeed());
+            }
+            return noise;
+        };
+    }
+
+    /**
+     * @return the seed of the world the methods without a seed use
+     */
+    public long getDefaultSeed() {
+        return defaultSeed;
+    }
+
+    /**
+     * @return the default world's altitude at a point, interpolated from level of detail 0
+     */
+    public float height(double x, double z) {
+        return height(defaultSeed, x, z, 0);
+    }
+
+    /**
+     * @return the default world's altitude at a point, interpolated from a level of detail
+     */
+    public float height(double x, double z, int lod) {
+        return height(defaultSeed, x, z, lod);
+    }
+
+    /**
+     * Look up the landscape altitude at a point, interpolating bilinearly
+     * between the cached samples around it.
+     *
+     * @param seed which world
+     * @param x east-west coordinate
+     * @param z north-south coordinate
+     * @param lod level of detail, 0 for the finest
+     * @return the altitude at (x, z)
+     */
+    public float height(long seed, double x, double z, int lod) {
+        final double step = stepAt(lod),
+                gx = x / step - SAMPLE_OFFSET,
+                gz = z / step - SAMPLE_OFFSET,
+                fx = Math.floor(gx),
+                fz = Math.floor(gz);
+        final long cx = (long) fx,
+                cz = (long) fz;
+        final int tx = (int) Math.floorDiv(cx, tileSize),
+                tz = (int) Math.floorDiv(cz, tileSize),
+                col = (int) (cx - (long) tx * tileSize),
+                row = (int) (cz - (long) tz * tileSize);
+        return lookup(seed, tx, tz, lod).interpolate(row * (tileSize + 1) + col, (float) (gx - fx), (float) (gz - fz));
+    }
+
+    /**
+     * @return the default world's tile holding a point, as {@link #tileAt(long, double, double, int)} fetches it
+     */
+    public Tile tileAt(double x, double z, int lod) {
+        return tileAt(defaultSeed, x, z, lod);
+    }
+
+    /**
+     * Fetch the tile holding a point, computing it if it isn't cached.
+     *
+     * @param seed which world
+     * @param x east-west coordinate
+     * @param z north-south coordinate
+     * @param lod level of detail, 0 for the finest
+     * @return the tile whose samples surround (x, z)
+     */
+    public Tile tileAt(long seed, double x, double z, int lod) {
+        final double step = stepAt(lod);
+        final long cx = (long) Math.floor(x / step - SAMPLE_OFFSET),
+                cz = (long) Math.floor(z / step - SAMPLE_OFFSET);
+        return tileAt(seed, (int) Math.floorDiv(cx, tileSize), (int) Math.floorDiv(cz, tileSize), lod);
+    }
+
+    /**
+     * @return the default world's tile, as {@link #tileAt(long, int, int, int)} fetches it
+     */
+    public Tile tileAt(int tx, int tz, int lod) {
+        return tileAt(defaultSeed, tx, tz, lod);
+    }
+
+    /**
+     * Fetch a tile by its indices, computing it if it isn't cached.
+     *
+     * @param seed which world
+     * @param tx east-west tile index
+     * @param tz north-south tile index
+     * @param lod level of detail
+     * @return the tile
+     */
+    public Tile tileAt(long seed, int tx, int tz, int lod) {
+        stepAt(lod);
+        return lookup(seed, tx, tz, lod);
+    }
+
+    /**
+     * @return the samples of one of the default world's tiles, as {@link #tile(long, int, int, int)} fetches them
+     */
+    public float[] tile(int tx, int tz, int lod) {
+        return tile(defaultSeed, tx, tz, lod);
+    }
+
+    /**
+     * Fetch the samples of a tile, computing them if they aren't cached.
+     * The sample in column {@code col} and row {@code row} is taken at
+     * {@code ((tx * tileSize + col + SAMPLE_OFFSET) * step, (tz * tileSize + row + SAMPLE_OFFSET) * step)}.
+     * The returned array is shared with the cache and other callers and
+     * must not be modified.
+     *
+     * @param seed which world
+     * @param tx east-west tile index
+     * @param tz north-south tile index
+     * @param lod level of detail
+     * @return {@code (tileSize + 1)} squared altitudes, in row-major order
+     */
+    public float[] tile(long seed, int tx, int tz, int lod) {
+        return tileAt(seed, tx, tz, lod).samples;
+    }
+
+    private Tile lookup(long seed, int tx, int tz, int lod) {
+        final int hash = hash(seed, tx, tz, lod);
+        Tile tile = stripes[hash & (STRIPES - 1)].get(seed, tx, tz, lod, hash);
+        if (tile != null) {
+            hits.increment();
+            tile.touch(clock.get());
+            return tile;
+        }
+        misses.increment();
+        final Key key = new Key(seed, tx, tz, lod);
+        final CompletableFuture<Tile> mine = new CompletableFuture<>();
+        final CompletableFuture<Tile> theirs = loading.putIfAbsent(key, mine);
+        if (theirs != null) {
+            return theirs.join();
+        }
+        try {
+            // another thread may have finished loading between our two lookups
+            tile = stripes[hash & (STRIPES - 1)].get(seed, tx, tz, lod, hash);
+            if (tile == null) {
+                tile = load(seed, tx, tz, lod);
+                store(tile, hash);
+            }
+            mine.complete(tile);
+            return tile;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, mine);
+        }
+    }
+
+    /**
+     * @return how many tile lookups found their tile cached
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return how many tile lookups did not find their tile cached
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return how many tiles have been computed
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    /**
+     * @return how many tiles have been dropped to stay within the memory budget
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return how much memory the cached tiles are estimated to use
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * @return the number of tiles currently cached
+     */
+    public int size() {
+        return count.get();
+    }
+
+    private double stepAt(int lod) {
+        if (lod < 0 || lod > 30) {
+            throw new IllegalArgumentException("level of detail must be from 0 to 30");
+        }
+        return spacing * (1 << lod);
+    }
+
+    private Tile load(long seed, int tx, int tz, int lod) {
+        final double step = stepAt(lod);
+        final int edge = tileSize + 1;
+        final float[] samples = new float[edge * edge];
+        worlds.apply(seed).fillGrid2(SAMPLE_OFFSET * step, SAMPLE_OFFSET * step, step, step,
+                Math.multiplyExact(tx, tileSize), Math.multiplyExact(tz, tileSize),
+                edge, edge, samples, 0, edge, step);
+        loads.increment();
+        return new Tile(seed, tx, tz, lod, tileSize, step, samples);
+    }
+
+    private void store(Tile tile, int hash) {
+        tile.touch(clock.incrementAndGet());
+        if (stripes[hash & (STRIPES - 1)].put(tile, hash)) {
+            count.incrementAndGet();
+            bytes.addAndGet(tileBytes);
+        }
+        while (bytes.get() > maxBytes && count.get() > 1) {
+            final Tile eldest = eldest(tile);
+            if (eldest == null) {
+                break;
+            }
+            if (stripes[hash(eldest.seed, eldest.tx, eldest.tz, eldest.lod) & (STRIPES - 1)].remove(eldest)) {
+                count.decrementAndGet();
+                bytes.addAndGet(-tileBytes);
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Pick the least recently used of a few tiles, starting from a random
+     * place in a random stripe.
+     *
+     * @param keep a tile not to pick, such as one just stored
+     * @return the tile, or null if there are no others
+     */
+    private Tile eldest(Tile keep) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int first = random.nextInt(STRIPES);
+        Tile eldest = null;
+        int sampled = 0;
+        for (int s = 0; s < STRIPES && sampled < EVICTION_SAMPLES; s++) {
+            final Tile[] table = stripes[(first + s) & (STRIPES - 1)].table;
+            final int start = random.nextInt(table.length);
+            for (int i = 0; i < table.length && sampled < EVICTION_SAMPLES; i++) {
+                final Tile tile = table[(start + i) & (table.length - 1)];
+                if (tile != null && tile != keep) {
+                    sampled++;
+                    if (eldest == null || tile.used < eldest.used) {
+                        eldest = tile;
+                    }
+                }
+            }
+        }
+        return eldest;
+    }
+
+    private static int hash(long seed, int tx, int tz, int lod) {
+        int hash = Long.hashCode(seed) * 0x9e3779b9 + tx;
+        hash = hash * 0x9e3779b9 + tz;
+        hash = hash * 0x9e3779b9 + lod;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * A cached square of samples, which can be queried without going back
+     * to the cache as long as the points stay inside it.
+     */
+    @ThreadSafe
+    public static final class Tile {
+        private final long seed;
+        private final int tx;
+        private final int tz;
+        private final int lod;
+        private final int tileSize;
+        private final double step;
+        private final float[] samples;
+        /**
+         * When the tile was last used, by the cache's clock. Updates race,
+         * which only makes the eviction order a little less exact.
+         */
+        private volatile long used;
+
+        Tile(long seed, int tx, int tz, int lod, int tileSize, double step, float[] samples) {
+            this.seed = seed;
+            this.tx = tx;
+            this.tz = tz;
+            this.lod = lod;
+            this.tileSize = tileSize;
+            this.step = step;
+            this.samples = samples;
+        }
+
+        /**
+         * @return seed of the world the tile is from
+         */
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * @return east-west tile index
+         */
+        public int getTx() {
+            return tx;
+        }
+
+        /**
+         * @return north-south tile index
+         */
+        public int getTz() {
+            return tz;
+        }
+
+        /**
+         * @return level of detail
+         */
+        public int getLod() {
+            return lod;
+        }
+
+        /**
+         * @return whether {@link #height} can answer for a point
+         */
+        public boolean contains(double x, double z) {
+            final long col = (long) Math.floor(x / step - SAMPLE_OFFSET) - (long) tx * tileSize,
+                    row = (long) Math.floor(z / step - SAMPLE_OFFSET) - (long) tz * tileSize;
+            return col >= 0 && col < tileSize && row >= 0 && row < tileSize;
+        }
+
+        /**
+         * Look up the altitude at a point in this tile, interpolating
+         * bilinearly between the samples around it, as
+         * {@link TileCache#height(double, double, int)} does.
+         *
+         * @param x east-west coordinate
+         * @param z north-south coordinate
+         * @return the altitude at (x, z)
+         * @throws IllegalArgumentException if the point isn't in this tile
+         */
+        public float height(double x, double z) {
+            final double gx = x / step - SAMPLE_OFFSET,
+                    gz = z / step - SAMPLE_OFFSET,
+                    fx = Math.floor(gx),
+                    fz = Math.floor(gz);
+            final long col = (long) fx - (long) tx * tileSize,
+                    row = (long) fz - (long) tz * tileSize;
+            if (col < 0 || col >= tileSize || row < 0 || row >= tileSize) {
+                throw new IllegalArgumentException("point is outside this tile");
+            }
+            return interpolate((int) row * (tileSize + 1) + (int) col, (float) (gx - fx), (float) (gz - fz));
+        }
+
+        /**
+         * @return {@code (tileSize + 1)} squared altitudes, in row-major
+         * order, shared with the cache and not to be modified
+         */
+        public float[] getSamples() {
+            return samples;
+        }
+
+        /**
+         * Interpolate bilinearly between a sample and those east, north
+         * and north-east of it.
+         */
+        float interpolate(int at, float u, float v) {
+            final int edge = tileSize + 1;
+            final float a = PerlinUtil.lerp(u, samples[at], samples[at + 1]),
+                    b = PerlinUtil.lerp(u, samples[at + edge], samples[at + edge + 1]);
+            return PerlinUtil.lerp(v, a, b);
+        }
+
+        void touch(long now) {
+            // skip the write when nothing changed, so hot tiles aren't
+            // bounced between cores on every read
+            if (used != now) {
+                used = now;
+            }
+        }
+
+        boolean is(long seed, int tx, int tz, int lod) {
+            return this.seed == seed && this.tx == tx && this.tz == tz && this.lod == lod;
+        }
+    }
+
+    /**
+     * Some of the tiles, in an open addressed table which readers see
+     * through a volatile field and writers replace whole.
+     */
+    private static final class Stripe {
+        volatile Tile[] table = new Tile[8];
+        @GuardedBy("this")
+        private int size;
+
+        Tile get(long seed, int tx, int tz, int lod, int hash) {
+            final Tile[] table = this.table;
+            final int mask = table.length - 1;
+            for (int i = (hash >>> 4) & mask; ; i = (i + 1) & mask) {
+                final Tile tile = table[i];
+                if (tile == null || tile.is(seed, tx, tz, lod)) {
+                    return tile;
+                }
+            }
+        }
+
+        /**
+         * @return whether the tile was added, rather than replacing an equal one
+         */
+        synchronized boolean put(Tile tile, int hash) {
+            final Tile[] table = this.table;
+            final int mask = table.length - 1;
+            for (int i = (hash >>> 4) & mask; table[i] != null; i = (i + 1) & mask) {
+                if (table[i].is(tile.seed, tile.tx, tile.tz, tile.lod)) {
+                    final Tile[] copy = table.clone();
+                    copy[i] = tile;
+                    this.table = copy;
+                    return false;
+                }
+            }
+            size++;
+            this.table = rebuild(table, null, tile, size);
+            return true;
+        }
+
+        /**
+         * @return whether the tile was there to remove
+         */
+        synchronized boolean remove(Tile tile) {
+            final Tile[] table = this.table;
+            for (Tile other : table) {
+                if (other == tile) {
+                    size--;
+                    this.table = rebuild(table, tile, null, size);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Copy a table, leaving out one tile and adding another, into a
+         * table at most half full.
+         */
+        private static Tile[] rebuild(Tile[] from, Tile without, Tile with, int size) {
+            int length = from.length;
+            while (length < 2 * size) {
+                length *= 2;
+            }
+            while (length > 8 && length > 4 * size) {
+                length /= 2;
+            }
+            final Tile[] to = new Tile[length];
+            for (Tile tile : from) {
+                if (tile != null && tile != without) {
+                    insert(to, tile);
+                }
+            }
+            if (with != null) {
+                insert(to, with);
+            }
+            return to;
+        }
+
+        private static void insert(Tile[] table, Tile tile) {
+            final int mask = table.length - 1;
+            int i = (hash(tile.seed, tile.tx, tile.tz, tile.lod) >>> 4) & mask;
+            while (table[i] != null) {
+                i = (i + 1) & mask;
+            }
+            table[i] = tile;
+        }
+    }
+
+    /**
+     * Identifies a tile being computed.
+     */
+    private static final class Key {
+        final long seed;
+        final int tx;
+        final int tz;
+        final int lod;
+
+        Key(long seed, int tx, int tz, int lod) {
+            this.seed = seed;
+            this.tx = tx;
+            this.tz = tz;
+            this.lod = lod;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return seed == other.seed && tx == other.tx && tz == other.tz && lod == other.lod;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash(seed, tx, tz, lod);
+        }
+    }
+}
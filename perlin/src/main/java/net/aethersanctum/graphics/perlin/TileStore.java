@@ -0,0 +1,321 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Serves altitudes from a heightmap file written by {@link TileStoreWriter},
+ * reading them straight out of memory-mapped regions of the file rather than
+ * loading it onto the heap.
+ * <p>
+ * File layout, all little-endian:
+ * <pre>
+ *   0  int     magic, "AEHT"
+ *   4  int     format version, 1
+ *   8  int     sample encoding, see {@link Encoding}
+ *  12  int     tile size, samples along each tile edge
+ *  16  int     tiles east-west
+ *  20  int     tiles north-south
+ *  24  long    seed of the landscape
+ *  32  double  east-west coordinate of the first sample
+ *  40  double  north-south coordinate of the first sample
+ *  48  double  distance between samples
+ *  56  float   altitude of quantized sample 0, or 0 for float samples
+ *  60  float   altitude step between quantized samples, or 0 for float samples
+ * 128  long[]  file offset of each tile, in row-major tile order
+ * then the tiles, back to back from the first page boundary after the index,
+ *   each its samples in row-major order
+ * </pre>
+ * Only the start of the tile data is page aligned; tiles after the first
+ * start on a page boundary only when the tile's size is a multiple of a page.
+ * Files bigger than a single mapping allows are mapped as several regions,
+ * each holding a whole number of tiles.
+ * <p>
+ * Lookups only read the mapped buffers, so one store can serve any number
+ * of threads, until it is closed.
+ */
+@ThreadSafe
+public class TileStore implements Closeable {
+    /**
+     * How samples are stored in the file.
+     */
+    public enum Encoding {
+        /**
+         * Unsigned 16-bit samples, spread evenly over the range of altitudes.
+         */
+        UINT16(2),
+        /**
+         * 32-bit floating point samples, exactly as generated.
+         */
+        FLOAT32(4);
+
+        private final int bytes;
+
+        Encoding(int bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return how many bytes each sample takes
+         */
+        public int getBytes() {
+            return bytes;
+        }
+    }
+
+    static final int MAGIC = 0x54484541;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 128;
+    static final int PAGE_BYTES = 4096;
+
+    /**
+     * Biggest region mapped at once. Mappings are limited to 2 GB, and
+     * keeping them smaller leaves room to find address space.
+     */
+    static final long MAX_REGION_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final Encoding encoding;
+    private final int tileSize;
+    private final int across;
+    private final int down;
+    private final long seed;
+    private final double x0;
+    private final double z0;
+    private final double spacing;
+    private final float heightOffset;
+    private final float heightScale;
+    private final int tileBytes;
+    private final int tilesPerRegion;
+    private final long dataOffset;
+    private final int[] tileRegion;
+    private final int[] tilePosition;
+    private final MappedByteBuffer[] regions;
+
+    /**
+     * Open a heightmap file for reading.
+     * @param file the file, as written by {@link TileStoreWriter}
+     * @return the opened store, which should be closed when done with
+     * @throws IOException if the file can't be read or isn't a heightmap file
+     */
+    public static TileStore open(Path file) throws IOException {
+        return open(file, MAX_REGION_BYTES);
+    }
+
+    static TileStore open(Path file, long maxRegionBytes) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new TileStore(channel, maxRegionBytes);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private TileStore(FileChannel channel, long maxRegionBytes) throws IOException {
+        this.channel = channel;
+        final long fileSize = channel.size();
+        if (fileSize < HEADER_BYTES) {
+            throw new IOException("file is too short to be a heightmap");
+        }
+        final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("not a heightmap file");
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("unsupported heightmap version " + header.getInt(4));
+        }
+        final int encodingIndex = header.getInt(8);
+        if (encodingIndex < 0 || encodingIndex >= Encoding.values().length) {
+            throw new IOException("unknown sample encoding " + encodingIndex);
+        }
+        this.encoding = Encoding.values()[encodingIndex];
+        this.tileSize = header.getInt(12);
+        this.across = header.getInt(16);
+        this.down = header.getInt(20);
+        this.seed = header.getLong(24);
+        this.x0 = header.getDouble(32);
+        this.z0 = header.getDouble(40);
+        this.spacing = header.getDouble(48);
+        this.heightOffset = header.getFloat(56);
+        this.heightScale = header.getFloat(60);
+        final long bytesPerTile = (long) tileSize * tileSize * encoding.bytes;
+        if (tileSize <= 0 || across <= 0 || down <= 0 || bytesPerTile > maxRegionBytes
+                || (long) across * down > Integer.MAX_VALUE / 8) {
+            throw new IOException("bad heightmap dimensions");
+        }
+        final int tiles = across * down;
+        this.tileBytes = (int) bytesPerTile;
+        this.tilesPerRegion = (int) Math.min(maxRegionBytes / bytesPerTile, Integer.MAX_VALUE);
+        this.dataOffset = dataOffset(tiles);
+        if (dataOffset > fileSize) {
+            throw new IOException("file is too short for its tile index");
+        }
+
+        final ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, tiles * 8L).order(ByteOrder.LITTLE_ENDIAN);
+        this.tileRegion = new int[tiles];
+        this.tilePosition = new int[tiles];
+        for (int tile = 0; tile < tiles; tile++) {
+            final long offset = index.getLong(tile * 8);
+            final long relative = offset - dataOffset;
+            if (relative < 0 || relative % tileBytes != 0 || offset + tileBytes > fileSize) {
+                throw new IOException("tile " + tile + " lies outside the file");
+            }
+            final long slot = relative / tileBytes;
+            tileRegion[tile] = (int) (slot / tilesPerRegion);
+            tilePosition[tile] = (int) (slot % tilesPerRegion) * tileBytes;
+        }
+
+        final long slots = fileSize > dataOffset ? (fileSize - dataOffset) / tileBytes : 0;
+        this.regions = new MappedByteBuffer[(int) ((slots + tilesPerRegion - 1) / tilesPerRegion)];
+        for (int region = 0; region < regions.length; region++) {
+            final long start = dataOffset + (long) region * tilesPerRegion * tileBytes,
+                    length = Math.min((long) tilesPerRegion, slots - (long) region * tilesPerRegion) * tileBytes;
+            regions[region] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            regions[region].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * Where the tiles start in a file with a given number of tiles.
+     */
+    static long dataOffset(int tiles) {
+        final long indexEnd = HEADER_BYTES + 8L * tiles;
+        return (indexEnd + PAGE_BYTES - 1) / PAGE_BYTES * PAGE_BYTES;
+    }
+
+    /**
+     * Fetch the stored altitude of one sample.
+     * @param col east-west sample index, from 0 to {@link #getWidth()} - 1
+     * @param row north-south sample index, from 0 to {@link #getHeight()} - 1
+     * @return the altitude at that sample
+     */
+    public float sample(int col, int row) {
+        if (col < 0 || row < 0 || col >= getWidth() || row >= getHeight()) {
+            throw new IndexOutOfBoundsException("sample " + col + "," + row + " is outside the heightmap");
+        }
+        final int tile = (row / tileSize) * across + col / tileSize,
+                at = (row % tileSize) * tileSize + col % tileSize;
+        final MappedByteBuffer region = regions[tileRegion[tile]];
+        final int position = tilePosition[tile];
+        if (encoding == Encoding.UINT16) {
+            return heightOffset + heightScale * (region.getShort(position + at * 2) & 0xffff);
+        }
+        return region.getFloat(position + at * 4);
+    }
+
+    /**
+     * Look up the altitude at a point, interpolating bilinearly between the
+     * samples around it. Points beyond the edges take the nearest edge value.
+     *
+     * @param x east-west coordinate
+     * @param z north-south coordinate
+     * @return the altitude at (x, z)
+     */
+    public float height(double x, double z) {
+        final double gx = Math.max(0, Math.min(getWidth() - 1, (x - x0) / spacing)),
+                gz = Math.max(0, Math.min(getHeight() - 1, (z - z0) / spacing));
+        final int col = (int) gx,
+                row = (int) gz,
+                col1 = Math.min(col + 1, getWidth() - 1),
+                row1 = Math.min(row + 1, getHeight() - 1);
+        final float u = (float) (gx - col),
+                v = (float) (gz - row),
+                a = PerlinUtil.lerp(u, sample(col, row), sample(col1, row)),
+                b = PerlinUtil.lerp(u, sample(col, row1), sample(col1, row1));
+        return PerlinUtil.lerp(v, a, b);
+    }
+
+    /**
+     * @return how samples are stored
+     */
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * @return samples along each tile edge
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * @return number of samples east-west
+     */
+    public int getWidth() {
+        return across * tileSize;
+    }
+
+    /**
+     * @return number of samples north-south
+     */
+    public int getHeight() {
+        return down * tileSize;
+    }
+
+    /**
+     * @return seed of the landscape the heightmap was generated from
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return east-west coordinate of the first sample
+     */
+    public double getX0() {
+        return x0;
+    }
+
+    /**
+     * @return north-south coordinate of the first sample
+     */
+    public double getZ0() {
+        return z0;
+    }
+
+    /**
+     * @return distance between samples
+     */
+    public double getSpacing() {
+        return spacing;
+    }
+
+    /**
+     * @return number of regions the file is mapped as
+     */
+    int regionCount() {
+        return regions.length;
+    }
+
+    /**
+     * Close the file. The mappings stay valid until they are garbage
+     * collected, but the store must not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
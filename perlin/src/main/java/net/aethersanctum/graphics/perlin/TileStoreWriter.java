@@ -0,0 +1,187 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import net.aethersanctum.graphics.perlin.TileStore.Encoding;
+
+/**
+ * Bakes a region of {@link FractalNoise} landscape into a heightmap file
+ * which {@link TileStore} can serve from disk.
+ * <p>
+ * Tiles are generated a band at a time on a {@link HeightmapGenerator}, so
+ * only one band is ever held in memory however big the file is.
+ * <p>
+ * 16-bit samples are spread over every altitude the landscape can reach
+ * unless a range is given, and the range is recorded in the file's header.
+ */
+@ThreadSafe
+public class TileStoreWriter {
+    private final FractalNoise noise;
+    private final HeightmapGenerator generator;
+    private final int tileSize;
+    private final double spacing;
+    private final Encoding encoding;
+    private final HeightQuantizer quantizer;
+
+    /**
+     * Create a writer which generates tiles on the common fork/join pool.
+     * @param noise the landscape to bake
+     * @param tileSize samples along each tile edge
+     * @param spacing distance between samples
+     * @param encoding how to store the samples
+     */
+    public TileStoreWriter(FractalNoise noise, int tileSize, double spacing, Encoding encoding) {
+        this(noise, tileSize, spacing, encoding, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a writer which generates tiles on a particular executor.
+     * @param noise the landscape to bake
+     * @param tileSize samples along each tile edge
+     * @param spacing distance between samples
+     * @param encoding how to store the samples
+     * @param executor runs the tile generation
+     */
+    public TileStoreWriter(FractalNoise noise, int tileSize, double spacing, Encoding encoding, Executor executor) {
+        this(noise, tileSize, spacing, encoding, executor,
+                encoding == Encoding.UINT16 ? HeightQuantizer.forLandscape(noise) : null);
+    }
+
+    /**
+     * Create a writer with a particular range for 16-bit samples, such as
+     * one shared with other files. Altitudes outside it are clamped.
+     * @param noise the landscape to bake
+     * @param tileSize samples along each tile edge
+     * @param spacing distance between samples
+     * @param encoding how to store the samples
+     * @param executor runs the tile generation
+     * @param quantizer maps altitudes to samples; only needed for {@link Encoding#UINT16},
+     *                  which otherwise uses {@link HeightQuantizer#forLandscape}
+     */
+    public TileStoreWriter(FractalNoise noise, int tileSize, double spacing, Encoding encoding, Executor executor,
+                           HeightQuantizer quantizer) {
+        if (encoding == Encoding.UINT16 && quantizer == null) {
+            throw new IllegalArgumentException("16-bit samples need an altitude range");
+        }
+        if (tileSize <= 0 || (long) tileSize * tileSize * encoding.getBytes() > TileStore.MAX_REGION_BYTES) {
+            throw new IllegalArgumentException("tile size must be positive and a tile must fit in one mapping");
+        }
+        if (!(spacing > 0)) {
+            throw new IllegalArgumentException("sample spacing must be positive");
+        }
+        this.noise = noise;
+        this.generator = new HeightmapGenerator(noise, executor);
+        this.tileSize = tileSize;
+        this.spacing = spacing;
+        this.encoding = encoding;
+        this.quantizer = quantizer;
+    }
+
+    /**
+     * Bake a rectangle of tiles into a file, replacing anything already there.
+     *
+     * @param file where to write the heightmap
+     * @param x0 east-west coordinate of the first sample
+     * @param z0 north-south coordinate of the first sample
+     * @param across number of tiles east-west
+     * @param down number of tiles north-south
+     * @throws IOException if the file can't be written
+     */
+    public void write(Path file, double x0, double z0, int across, int down) throws IOException {
+        if (across <= 0 || down <= 0 || (long) across * down > Integer.MAX_VALUE / 8) {
+            throw new IllegalArgumentException("bad number of tiles");
+        }
+        final int tiles = across * down,
+                tileBytes = tileSize * tileSize * encoding.getBytes();
+        final long dataOffset = TileStore.dataOffset(tiles);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer tile = ByteBuffer.allocateDirect(tileBytes).order(ByteOrder.LITTLE_ENDIAN);
+            long position = dataOffset;
+            for (int band = 0; band < down; band++) {
+                for (float[] samples : generateBand(x0, z0, band, across)) {
+                    tile.clear();
+                    encode(samples, tile);
+                    tile.flip();
+                    writeFully(channel, tile, position);
+                    position += tileBytes;
+                }
+            }
+
+            final ByteBuffer index = ByteBuffer.allocate(tiles * 8).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < tiles; i++) {
+                index.putLong(dataOffset + (long) i * tileBytes);
+            }
+            index.flip();
+            writeFully(channel, index, TileStore.HEADER_BYTES);
+
+            // the header goes last, so an interrupted bake never looks like a good file
+            final ByteBuffer header = ByteBuffer.allocate(TileStore.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0, TileStore.MAGIC)
+                    .putInt(4, TileStore.VERSION)
+                    .putInt(8, encoding.ordinal())
+                    .putInt(12, tileSize)
+                    .putInt(16, across)
+                    .putInt(20, down)
+                    .putLong(24, noise.getSeed())
+                    .putDouble(32, x0)
+                    .putDouble(40, z0)
+                    .putDouble(48, spacing)
+                    .putFloat(56, quantizer == null ? 0 : quantizer.getMin())
+                    .putFloat(60, quantizer == null ? 0 : quantizer.getStep());
+            writeFully(channel, header, 0);
+        }
+    }
+
+    private float[][] generateBand(double x0, double z0, int band, int across) throws IOException {
+        try {
+            return generator.generateTilesAsync(x0, z0, spacing, spacing, tileSize, 0, band, across, 1).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while generating tiles", e);
+        } catch (ExecutionException e) {
+            throw new IOException("failed to generate tiles", e.getCause());
+        }
+    }
+
+    private void encode(float[] samples, ByteBuffer out) {
+        if (encoding == Encoding.UINT16) {
+            for (float sample : samples) {
+                out.putShort((short) quantizer.quantize(sample));
+            }
+        } else {
+            for (float sample : samples) {
+                out.putFloat(sample);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+/**
+ * Picks the bulk noise implementation for this JVM.
+ * <p>
+ * This is the Java 17 version, which prefers the SIMD kernel. That needs the
+ * JVM to be started with {@code --add-modules jdk.incubator.vector}; without
+ * it, or with {@code -Daether.perlin.simd=false}, the scalar kernel is used.
+ */
+final class BulkNoiseKernels {
+    static final BulkNoise BEST = pick();
+
+    private BulkNoiseKernels() {
+    }
+
+    private static BulkNoise pick() {
+        if (!Boolean.parseBoolean(System.getProperty("aether.perlin.simd", "true"))) {
+            return new ScalarBulkNoise();
+        }
+        try {
+            return new VectorBulkNoise();
+        } catch (LinkageError | UnsupportedOperationException e) {
+            // jdk.incubator.vector isn't available, or has nothing worth using
+            return new ScalarBulkNoise();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+/**
+ * Fills grids straight into {@link MemorySegment}s, such as native memory
+ * shared with a mesh builder or GPU staging area, as
+ * {@link FractalNoise#fillGrid2(double, double, double, double, int, int, int, int, java.nio.ByteBuffer, int, int, int, SampleFormat)}
+ * does for buffers, but with 64-bit offsets so that segments may be larger
+ * than 2GB.
+ * <p>
+ * Only in the Java 22 layer of the multi-release jar, where the foreign
+ * memory API is final.
+ */
+public final class SegmentGrids {
+
+    private SegmentGrids() {
+    }
+
+    /**
+     * Fill a block of a larger landscape grid into a memory segment, a band
+     * of rows at a time, with the same samples the buffer fill writes.
+     *
+     * @param noise the landscape
+     * @param x0 east-west coordinate of the first column of the larger grid
+     * @param z0 north-south coordinate of the first row of the larger grid
+     * @param dx distance between columns
+     * @param dz distance between rows
+     * @param col0 first column of the block to fill
+     * @param row0 first row of the block to fill
+     * @param w number of columns in the block
+     * @param h number of rows in the block
+     * @param out receives the samples; the sample for a row and column of the
+     *            block starts at byte {@code offset + row * rowStride + col * sampleStride}
+     * @param offset where in out the block's first sample goes, in bytes
+     * @param sampleStride distance in out between the starts of consecutive samples in a row, in bytes
+     * @param rowStride distance in out between the starts of consecutive rows, in bytes
+     * @param format how each sample is written
+     * @param order byte order of the samples
+     */
+    public static void fillGrid2(FractalNoise noise, double x0, double z0, double dx, double dz,
+                                 int col0, int row0, int w, int h, MemorySegment out, long offset,
+                                 long sampleStride, long rowStride, SampleFormat format, ByteOrder order) {
+        checkSegment(out, offset, sampleStride, rowStride, w, h, format);
+        final HeightQuantizer quantizer = format == SampleFormat.UINT16 ? HeightQuantizer.forLandscape(noise) : null;
+        GridFills.fill(noise, x0, z0, dx, dz, col0, row0, w, h, format,
+                new SegmentBands(out, offset, sampleStride, rowStride, w, format, order, quantizer));
+    }
+
+    /**
+     * Fill a block of a larger grid of noise into a memory segment, a band
+     * of rows at a time, with the same samples the buffer fill writes.
+     *
+     * @param noise the noise
+     * @param x0 x coordinate of the first column of the larger grid
+     * @param y0 y coordinate of the first row of the larger grid
+     * @param dx distance between columns
+     * @param dy distance between rows
+     * @param col0 first column of the block to fill
+     * @param row0 first row of the block to fill
+     * @param w number of columns in the block
+     * @param h number of rows in the block
+     * @param out receives the samples; the sample for a row and column of the
+     *            block starts at byte {@code offset + row * rowStride + col * sampleStride}
+     * @param offset where in out the block's first sample goes, in bytes
+     * @param sampleStride distance in out between the starts of consecutive samples in a row, in bytes
+     * @param rowStride distance in out between the starts of consecutive rows, in bytes
+     * @param format how each sample is written
+     * @param order byte order of the samples
+     */
+    public static void fillGrid2(NoiseEngine noise, double x0, double y0, double dx, double dy,
+                                 int col0, int row0, int w, int h, MemorySegment out, long offset,
+                                 long sampleStride, long rowStride, SampleFormat format, ByteOrder order) {
+        checkSegment(out, offset, sampleStride, rowStride, w, h, format);
+        final HeightQuantizer quantizer = format == SampleFormat.UINT16 ? HeightQuantizer.forNoise(noise) : null;
+        GridFills.fill(noise, x0, y0, dx, dy, col0, row0, w, h, format,
+                new SegmentBands(out, offset, sampleStride, rowStride, w, format, order, quantizer));
+    }
+
+    private static void checkSegment(MemorySegment out, long offset, long sampleStride, long rowStride,
+                                     int w, int h, SampleFormat format) {
+        format.checkBlock(out.byteSize(), offset, sampleStride, rowStride, w, h);
+        if (out.isReadOnly()) {
+            throw new IllegalArgumentException("segment is read-only");
+        }
+    }
+
+    /**
+     * Writes bands of a grid into a segment, copying whole rows where the
+     * samples are packed and need no conversion.
+     */
+    private static final class SegmentBands implements GridBands {
+        private final MemorySegment out;
+        private final long offset;
+        private final long sampleStride;
+        private final long rowStride;
+        private final int w;
+        private final SampleFormat format;
+        private final HeightQuantizer quantizer;
+        private final boolean packed;
+        private final ValueLayout.OfFloat floats;
+        private final ValueLayout.OfDouble doubles;
+        private final ValueLayout.OfShort shorts;
+
+        SegmentBands(MemorySegment out, long offset, long sampleStride, long rowStride, int w,
+                     SampleFormat format, ByteOrder order, HeightQuantizer quantizer) {
+            this.out = out;
+            this.offset = offset;
+            this.sampleStride = sampleStride;
+            this.rowStride = rowStride;
+            this.w = w;
+            this.format = format;
+            this.quantizer = quantizer;
+            this.packed = sampleStride == format.getBytes();
+            this.floats = ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(order);
+            this.doubles = ValueLayout.JAVA_DOUBLE_UNALIGNED.withOrder(order);
+            this.shorts = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(order);
+        }
+
+        @Override
+        public void singles(int row, int rows, float[] values) {
+            for (int r = 0; r < rows; r++) {
+                long at = offset + (row + r) * rowStride;
+                final int from = r * w, to = from + w;
+                if (format == SampleFormat.UINT16) {
+                    for (int i = from; i < to; i++, at += sampleStride) {
+                        out.set(shorts, at, (short) quantizer.quantize(values[i]));
+                    }
+                } else if (packed) {
+                    MemorySegment.copy(values, from, out, floats, at, w);
+                } else {
+                    for (int i = from; i < to; i++, at += sampleStride) {
+                        out.set(floats, at, values[i]);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void doubles(int row, int rows, double[] values) {
+            for (int r = 0; r < rows; r++) {
+                long at = offset + (row + r) * rowStride;
+                final int from = r * w, to = from + w;
+                if (packed) {
+                    MemorySegment.copy(values, from, out, doubles, at, w);
+                } else {
+                    for (int i = from; i < to; i++, at += sampleStride) {
+                        out.set(doubles, at, values[i]);
+                    }
+                }
+            }
+        }
+    }
+}
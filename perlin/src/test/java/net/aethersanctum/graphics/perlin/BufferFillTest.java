@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+public class BufferFillTest {
+    private static final int W = 37;
+    private static final int H = 150;
+    private static final double X0 = 3.25, Z0 = -7.5, DX = 0.75, DZ = 1.25;
+    private static final byte FILLER = 0x5a;
+
+    @Test
+    public void interleavedSamplesMatchTheArrayFill() {
+        final FractalNoise noise = new FractalNoise(7);
+        final float[] expected = new float[W * H];
+        noise.fillGrid2(X0, Z0, DX, DZ, 0, 0, W, H, expected, 0, W);
+
+        // x, height, z vertices with a couple of bytes of padding per row
+        final int vertex = 12, rowStride = W * vertex + 2, offset = 4;
+        final ByteBuffer out = filledBuffer(offset + H * rowStride).order(ByteOrder.LITTLE_ENDIAN);
+        noise.fillGrid2(X0, Z0, DX, DZ, 0, 0, W, H, out, offset + 4, vertex, rowStride, SampleFormat.FLOAT32);
+
+        for (int row = 0; row < H; row++) {
+            for (int col = 0; col < W; col++) {
+                final int at = offset + row * rowStride + col * vertex;
+                assertEquals(expected[row * W + col], out.getFloat(at + 4), 0);
+                assertUntouched(out, at, 4);
+                assertUntouched(out, at + 8, 4);
+            }
+            assertUntouched(out, offset + row * rowStride + W * vertex, 2);
+        }
+        assertUntouched(out, 0, offset);
+    }
+
+    @Test
+    public void engineFillsMatchTheirArrayFills() {
+        final NoiseEngine noise = new PerlinNoise(11);
+        final double[] doubles = new double[W * H];
+        final float[] singles = new float[W * H];
+        noise.fillGrid2(X0, Z0, DX, DZ, W, H, doubles);
+        noise.fillGrid2(X0, Z0, DX, DZ, W, H, singles);
+        final HeightQuantizer quantizer = HeightQuantizer.forNoise(noise);
+
+        final ByteBuffer wide = filledBuffer(W * H * 16);
+        noise.fillGrid2(X0, Z0, DX, DZ, 0, 0, W, H, wide, 0, 16, W * 16, SampleFormat.FLOAT64);
+        final ByteBuffer narrow = filledBuffer(W * H * 4);
+        noise.fillGrid2(X0, Z0, DX, DZ, 0, 0, W, H, narrow, 0, 4, W * 4, SampleFormat.FLOAT32);
+        final ByteBuffer quantized = filledBuffer(W * H * 2);
+        noise.fillGrid2(X0, Z0, DX, DZ, 0, 0, W, H, quantized, 0, 2, W * 2, SampleFormat.UINT16);
+
+        for (int i = 0; i < W * H; i++) {
+            assertEquals(doubles[i], wide.getDouble(i * 16), 1e-12);
+            assertUntouched(wide, i * 16 + 8, 8);
+            assertEquals(singles[i], narrow.getFloat(i * 4), 0);
+            assertEquals(quantizer.quantize(singles[i]), quantized.getShort(i * 2) & 0xffff);
+        }
+    }
+
+    @Test
+    public void blocksOfALargerGridLineUp() {
+        final NoiseEngine noise = new SimplexNoise(3);
+        final ByteBuffer whole = filledBuffer(W * H * 4);
+        noise.fillGrid2(X0, Z0, DX, DZ, 0, 0, W, H, whole, 0, 4, W * 4, SampleFormat.FLOAT32);
+        final ByteBuffer block = filledBuffer(W * H * 4);
+        noise.fillGrid2(X0, Z0, DX, DZ, 5, 9, 10, 20, block, 0, 4, 40, SampleFormat.FLOAT32);
+        for (int row = 0; row < 20; row++) {
+            for (int col = 0; col < 10; col++) {
+                assertEquals(whole.getFloat(((row + 9) * W + col + 5) * 4), block.getFloat((row * 10 + col) * 4), 0);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void overlappingSamplesAreRejected() {
+        new FractalNoise(1).fillGrid2(0, 0, 1, 1, 0, 0, 4, 4, ByteBuffer.allocate(1024), 0, 2, 64, SampleFormat.FLOAT32);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void overlappingRowsAreRejected() {
+        new FractalNoise(1).fillGrid2(0, 0, 1, 1, 0, 0, 4, 4, ByteBuffer.allocate(1024), 0, 8, 24, SampleFormat.FLOAT32);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void blocksPastTheLimitAreRejected() {
+        // the last sample would end at 3 * 30 + 3 * 8 + 4 = 118
+        new FractalNoise(1).fillGrid2(0, 0, 1, 1, 0, 0, 4, 4, ByteBuffer.allocate(117), 0, 8, 30, SampleFormat.FLOAT32);
+    }
+
+    @Test
+    public void blocksReachingTheLimitFit() {
+        new FractalNoise(1).fillGrid2(0, 0, 1, 1, 0, 0, 4, 4, ByteBuffer.allocate(118), 0, 8, 30, SampleFormat.FLOAT32);
+    }
+
+    private static ByteBuffer filledBuffer(int bytes) {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes);
+        for (int i = 0; i < bytes; i++) {
+            buffer.put(i, FILLER);
+        }
+        return buffer;
+    }
+
+    private static void assertUntouched(ByteBuffer buffer, int at, int bytes) {
+        for (int i = at; i < at + bytes; i++) {
+            assertEquals("byte " + i, FILLER, buffer.get(i));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.function.DoubleConsumer;
+
+import org.junit.Test;
+
+public class FractalNoiseBuilderTest {
+    private static final double[] NOT_FINITE = {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+    @Test
+    public void amplitudeAndGainMustBeFinite() {
+        for (double value : NOT_FINITE) {
+            assertRejected("amplitude", value, FractalNoise.builder()::amplitude);
+            assertRejected("gain", value, FractalNoise.builder()::gain);
+        }
+        FractalNoise.builder().amplitude(-64).gain(0);
+    }
+
+    @Test
+    public void smoothBottomExponentMustBeFiniteAndNotNegative() {
+        for (double value : NOT_FINITE) {
+            assertRejected("smooth bottom exponent", value, FractalNoise.builder()::smoothBottomExponent);
+        }
+        assertRejected("smooth bottom exponent", -0.25, FractalNoise.builder()::smoothBottomExponent);
+        FractalNoise.builder().smoothBottomExponent(0);
+    }
+
+    @Test
+    public void frequencyAndLacunarityMustBeFinite() {
+        assertRejected("frequency", Double.POSITIVE_INFINITY, FractalNoise.builder()::frequency);
+        assertRejected("lacunarity", Double.POSITIVE_INFINITY, FractalNoise.builder()::lacunarity);
+    }
+
+    @Test
+    public void acceptedSettingsAreUsed() {
+        final FractalNoise flat = FractalNoise.builder().seed(5).octaves(1).amplitude(0).build();
+        assertEquals(0, flat.fractalNoise(3.5, -1.25), 0);
+        assertEquals(0, flat.fractalNoiseSmoothBottom(3.5, -1.25), 0);
+    }
+
+    private static void assertRejected(String setting, double value, DoubleConsumer set) {
+        try {
+            set.accept(value);
+            fail(setting + " " + value + " was accepted");
+        } catch (IllegalArgumentException expected) {
+            // the builder refused it
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+public class TileCacheTest {
+    private static final int TILE_SIZE = 16;
+    private static final int THREADS = 8;
+
+    @Test
+    public void coarseLevelsCarryTerrain() {
+        final FractalNoise noise = new FractalNoise(1);
+        for (double spacing : new double[] {0.25, 1, 1.5, 2}) {
+            final TileCache cache = new TileCache(noise, TILE_SIZE, spacing, 1L << 24);
+            for (int lod = 1; lod <= 6; lod++) {
+                float low = Float.POSITIVE_INFINITY, high = Float.NEGATIVE_INFINITY;
+                for (float sample : cache.tile(0, 0, lod)) {
+                    low = Math.min(low, sample);
+                    high = Math.max(high, sample);
+                }
+                assertTrue("spacing " + spacing + " lod " + lod + " spans " + low + " to " + high,
+                        high - low > 1);
+            }
+        }
+    }
+
+    @Test
+    public void samplesSitWhereTheDocumentationSays() {
+        final FractalNoise noise = new FractalNoise(1);
+        final TileCache cache = new TileCache(noise, TILE_SIZE, 0.5, 1L << 24);
+        final int lod = 2, tx = -3, tz = 5, edge = TILE_SIZE + 1;
+        final double step = 0.5 * (1 << lod);
+        final float[] samples = cache.tile(tx, tz, lod);
+        for (int row = 0; row < edge; row++) {
+            for (int col = 0; col < edge; col++) {
+                final double x = (tx * TILE_SIZE + col + TileCache.SAMPLE_OFFSET) * step,
+                        z = (tz * TILE_SIZE + row + TileCache.SAMPLE_OFFSET) * step;
+                assertEquals(noise.fractalNoise(x, z, step), samples[row * edge + col], 1e-3);
+            }
+        }
+    }
+
+    @Test
+    public void tileAndCacheAgreeOnHeights() {
+        final TileCache cache = new TileCache(new FractalNoise(1), TILE_SIZE, 0.25, 1L << 24);
+        for (int i = 0; i < 1000; i++) {
+            final double x = i * 0.731 - 300, z = i * 0.377 - 100;
+            final TileCache.Tile tile = cache.tileAt(x, z, 1);
+            assertTrue(tile.contains(x, z));
+            assertEquals(cache.height(x, z, 1), tile.height(x, z), 0);
+        }
+    }
+
+    @Test
+    public void worldsAreKeptApart() {
+        final TileCache cache = new TileCache(FractalNoise::new, TILE_SIZE, 1, 1L << 24);
+        final TileCache.Tile first = cache.tileAt(1, 0, 0, 0), second = cache.tileAt(2, 0, 0, 0);
+        assertEquals(1, first.getSeed());
+        assertEquals(2, second.getSeed());
+        assertFalse(Arrays.equals(first.getSamples(), second.getSamples()));
+        assertEquals(new FractalNoise(2).fractalNoise(TileCache.SAMPLE_OFFSET, TileCache.SAMPLE_OFFSET, 1),
+                second.getSamples()[0], 1e-3);
+        assertSame(first, cache.tileAt(1, 0, 0, 0));
+        assertEquals(2, cache.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void singleWorldCachesRejectOtherSeeds() {
+        new TileCache(new FractalNoise(1), TILE_SIZE, 1, 1L << 24).tileAt(2, 0, 0, 0);
+    }
+
+    @Test
+    public void eachMissedTileIsLoadedOnce() throws Exception {
+        final int worlds = 64;
+        final AtomicIntegerArray calls = new AtomicIntegerArray(worlds);
+        final TileCache cache = new TileCache(seed -> {
+            calls.incrementAndGet((int) seed);
+            return new FractalNoise(seed);
+        }, TILE_SIZE, 1, 1L << 24);
+        final CyclicBarrier start = new CyclicBarrier(THREADS);
+        final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<TileCache.Tile[]>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    final TileCache.Tile[] tiles = new TileCache.Tile[worlds];
+                    for (int seed = 0; seed < worlds; seed++) {
+                        tiles[seed] = cache.tileAt(seed, 0, 0, 0);
+                    }
+                    return tiles;
+                }));
+            }
+            final TileCache.Tile[] first = results.get(0).get();
+            for (Future<TileCache.Tile[]> result : results) {
+                final TileCache.Tile[] tiles = result.get();
+                for (int seed = 0; seed < worlds; seed++) {
+                    assertSame(first[seed], tiles[seed]);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        for (int seed = 0; seed < worlds; seed++) {
+            assertEquals("loads of world " + seed, 1, calls.get(seed));
+        }
+        assertEquals(worlds, cache.getLoads());
+        assertEquals(worlds, cache.size());
+        assertEquals((long) THREADS * worlds, cache.getHits() + cache.getMisses());
+    }
+
+    @Test
+    public void budgetIsKeptExactlyUnderContention() throws Exception {
+        final int tileSize = 4, lookups = 20000, budgetTiles = 10;
+        final long tileBytes = 4L * (tileSize + 1) * (tileSize + 1) + TileCache.TILE_OVERHEAD_BYTES;
+        final TileCache cache = new TileCache(FractalNoise::new, tileSize, 1, budgetTiles * tileBytes);
+        final CyclicBarrier start = new CyclicBarrier(THREADS);
+        final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int wrong = 0;
+                    for (int i = 0; i < lookups; i++) {
+                        final int seed = random.nextInt(4), tx = random.nextInt(8), tz = random.nextInt(4);
+                        final TileCache.Tile tile = cache.tileAt(seed, tx, tz, 0);
+                        if (tile.getSeed() != seed || tile.getTx() != tx || tile.getTz() != tz) {
+                            wrong++;
+                        }
+                    }
+                    return wrong;
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(0, (int) result.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(cache.size() * tileBytes, cache.getBytes());
+        assertTrue(cache.size() + " tiles cached", cache.size() <= budgetTiles);
+        assertEquals(cache.getLoads(), cache.size() + cache.getEvictions());
+        assertEquals((long) THREADS * lookups, cache.getHits() + cache.getMisses());
+    }
+}
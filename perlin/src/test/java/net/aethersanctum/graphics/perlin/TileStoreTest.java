@@ -0,0 +1,176 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.aethersanctum.graphics.perlin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.aethersanctum.graphics.perlin.TileStore.Encoding;
+
+public class TileStoreTest {
+    private static final int TILE_SIZE = 8;
+    private static final int ACROSS = 5;
+    private static final int DOWN = 3;
+    private static final double X0 = -12.5, Z0 = 40, SPACING = 0.75;
+    private static final int TILE_BYTES = TILE_SIZE * TILE_SIZE * 4;
+    private static final Executor CALLER = Runnable::run;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final FractalNoise noise = new FractalNoise(3);
+
+    @Test
+    public void smallRegionsServeTheSameSamples() throws IOException {
+        final Path file = write(Encoding.FLOAT32);
+        try (TileStore whole = TileStore.open(file);
+             TileStore split = TileStore.open(file, 2L * TILE_BYTES)) {
+            assertEquals(1, whole.regionCount());
+            // 15 tiles, two to a region
+            assertEquals(8, split.regionCount());
+            assertEquals(noise.getSeed(), split.getSeed());
+            assertEquals(ACROSS * TILE_SIZE, split.getWidth());
+            assertEquals(DOWN * TILE_SIZE, split.getHeight());
+            for (int row = 0; row < split.getHeight(); row++) {
+                for (int col = 0; col < split.getWidth(); col++) {
+                    assertEquals(whole.sample(col, row), split.sample(col, row), 0);
+                }
+            }
+            for (int i = 0; i < 200; i++) {
+                final double x = X0 + i * 0.173, z = Z0 + i * 0.089;
+                assertEquals(whole.height(x, z), split.height(x, z), 0);
+            }
+        }
+    }
+
+    @Test
+    public void samplesAreTheLandscape() throws IOException {
+        final Path file = write(Encoding.FLOAT32);
+        try (TileStore store = TileStore.open(file, TILE_BYTES)) {
+            assertEquals(ACROSS * DOWN, store.regionCount());
+            final float[] expected = new HeightmapGenerator(noise, CALLER)
+                    .generate(X0, Z0, SPACING, SPACING, store.getWidth(), store.getHeight());
+            for (int row = 0; row < store.getHeight(); row++) {
+                for (int col = 0; col < store.getWidth(); col++) {
+                    assertEquals(expected[row * store.getWidth() + col], store.sample(col, row), 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void quantizedSamplesStayWithinAStep() throws IOException {
+        final Path floats = write(Encoding.FLOAT32), shorts = write(Encoding.UINT16);
+        try (TileStore exact = TileStore.open(floats); TileStore quantized = TileStore.open(shorts, TILE_BYTES / 2)) {
+            final float step = HeightQuantizer.forLandscape(noise).getStep();
+            assertEquals(Encoding.UINT16, quantized.getEncoding());
+            // half a float tile holds one 16-bit tile
+            assertEquals(ACROSS * DOWN, quantized.regionCount());
+            for (int row = 0; row < exact.getHeight(); row++) {
+                for (int col = 0; col < exact.getWidth(); col++) {
+                    assertEquals(exact.sample(col, row), quantized.sample(col, row), step);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void regionsSmallerThanATileAreRejected() throws IOException {
+        final Path file = write(Encoding.FLOAT32);
+        try (TileStore store = TileStore.open(file, TILE_BYTES - 1)) {
+            fail("opened with " + store.regionCount() + " regions");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("dimensions"));
+        }
+    }
+
+    @Test
+    public void misalignedIndexEntriesAreRejected() throws IOException {
+        final Path file = write(Encoding.FLOAT32);
+        putIndex(file, 4, TileStore.dataOffset(ACROSS * DOWN) + 4 * TILE_BYTES + 2);
+        assertRejected(file, "tile 4");
+    }
+
+    @Test
+    public void indexEntriesBeforeTheDataAreRejected() throws IOException {
+        final Path file = write(Encoding.FLOAT32);
+        putIndex(file, 0, TileStore.HEADER_BYTES);
+        assertRejected(file, "tile 0");
+    }
+
+    @Test
+    public void indexEntriesPastTheEndAreRejected() throws IOException {
+        final Path file = write(Encoding.FLOAT32);
+        putIndex(file, ACROSS * DOWN - 1, TileStore.dataOffset(ACROSS * DOWN) + ACROSS * DOWN * TILE_BYTES);
+        assertRejected(file, "tile " + (ACROSS * DOWN - 1));
+    }
+
+    @Test
+    public void interruptedBakesNeverLookGood() throws IOException {
+        final Path file = write(Encoding.FLOAT32);
+        // let the first band of tiles through, then fail, as a crash part way would
+        final AtomicInteger tasks = new AtomicInteger();
+        final Executor failing = command -> {
+            if (tasks.incrementAndGet() > ACROSS) {
+                throw new RejectedExecutionException("stopped");
+            }
+            command.run();
+        };
+        try {
+            new TileStoreWriter(noise, TILE_SIZE, SPACING, Encoding.FLOAT32, failing).write(file, X0, Z0, ACROSS, DOWN);
+            fail("bake should have failed");
+        } catch (IOException e) {
+            // expected
+        }
+        assertTrue(file.toFile().length() > TileStore.HEADER_BYTES);
+        assertRejected(file, "not a heightmap");
+    }
+
+    private Path write(Encoding encoding) throws IOException {
+        final Path file = folder.newFile().toPath();
+        new TileStoreWriter(noise, TILE_SIZE, SPACING, encoding, CALLER).write(file, X0, Z0, ACROSS, DOWN);
+        return file;
+    }
+
+    private static void putIndex(Path file, int tile, long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            final ByteBuffer entry = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            entry.putLong(0, offset);
+            channel.write(entry, TileStore.HEADER_BYTES + 8L * tile);
+        }
+    }
+
+    private static void assertRejected(Path file, String reason) {
+        try (TileStore store = TileStore.open(file)) {
+            fail("opened with " + store.regionCount() + " regions");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(reason));
+        }
+    }
+}